@@ -0,0 +1,60 @@
+package org.tensorics.gson.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tensorics.core.tensor.Tensor;
+import org.tensorics.gson.benchmarks.TensorbackedFixtures.Fill;
+import org.tensorics.gson.benchmarks.TensorbackedFixtures.Keys;
+import org.tensorics.gson.util.Nestmaps;
+
+import java.util.List;
+
+/**
+ * Conversion of tensors into nested maps and back, without any json involved.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class NestmapsBenchmark {
+
+    @Param({"1", "2", "4"})
+    private int dimensionality;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    private int entries;
+
+    @Param({"SIMPLE", "COMPLEX"})
+    private Keys keys;
+
+    @Param({"DENSE", "SPARSE"})
+    private Fill fill;
+
+    private List<Class<?>> dimensions;
+    private Tensor<Double> tensor;
+    private Object nested;
+
+    @Setup
+    public void setUp() {
+        dimensions = TensorbackedFixtures.dimensions(dimensionality, keys);
+        tensor = TensorbackedFixtures.tensor(dimensionality, keys, fill, entries);
+        nested = Nestmaps.nestmap(tensor, dimensions);
+    }
+
+    @Benchmark
+    public Object nestmap() {
+        return Nestmaps.nestmap(tensor, dimensions);
+    }
+
+    @Benchmark
+    public Tensor<Double> unnestmap() {
+        return Nestmaps.unnestmap(nested, dimensions);
+    }
+
+}
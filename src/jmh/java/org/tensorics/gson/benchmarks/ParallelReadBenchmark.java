@@ -0,0 +1,97 @@
+package org.tensorics.gson.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tensorics.core.tensorbacked.Tensorbacked;
+import org.tensorics.gson.adapters.TensorbackedFileReader;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapter;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterFactory;
+import org.tensorics.gson.benchmarks.TensorbackedFixtures.Fill;
+import org.tensorics.gson.benchmarks.TensorbackedFixtures.Keys;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Sequential and parallel deserialization of big tensorbacked objects in nested layout, from a string through gson
+ * (where the parallel reader buffers the sub-maps as json trees on the calling thread) and from a file through the
+ * {@link TensorbackedFileReader} (where the parallel reader parses the byte ranges of the sub-maps concurrently).
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ParallelReadBenchmark {
+
+    @Param({"2", "4"})
+    private int dimensionality;
+
+    @Param({"100000", "1000000"})
+    private int entries;
+
+    private Gson sequentialGson;
+    private Gson parallelGson;
+    private Class<? extends Tensorbacked<Double>> tensorbackedClass;
+    private String json;
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        sequentialGson = new GsonBuilder().registerTypeAdapterFactory(TensorbackedGsonAdapter.FACTORY).create();
+        parallelGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                        .withParallelReads(ForkJoinPool.commonPool(), 0)//
+                        .build())//
+                .create();
+        tensorbackedClass = TensorbackedFixtures.tensorbackedClass(dimensionality, Keys.SIMPLE);
+        json = sequentialGson.toJson(TensorbackedFixtures.tensorbacked(dimensionality, Keys.SIMPLE, Fill.DENSE,
+                entries));
+        file = Files.createTempFile("parallel-read-benchmark", ".json");
+        Files.write(file, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Tensorbacked<Double> sequentialFromJson() {
+        return sequentialGson.fromJson(json, tensorbackedClass);
+    }
+
+    @Benchmark
+    public Tensorbacked<Double> parallelFromJson() {
+        return parallelGson.fromJson(json, tensorbackedClass);
+    }
+
+    @Benchmark
+    public Tensorbacked<Double> sequentialFileRead() throws IOException {
+        return read(sequentialGson, tensorbackedClass, file);
+    }
+
+    @Benchmark
+    public Tensorbacked<Double> parallelFileRead() throws IOException {
+        return read(parallelGson, tensorbackedClass, file);
+    }
+
+    private static <TB extends Tensorbacked<Double>> TB read(Gson gson, Class<TB> tensorbackedClass, Path file)
+            throws IOException {
+        try (TensorbackedFileReader<Double, TB> reader = TensorbackedFileReader.open(gson, tensorbackedClass, file)) {
+            return reader.read();
+        }
+    }
+
+}
@@ -0,0 +1,42 @@
+package org.tensorics.gson.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tensorics.core.lang.Tensorics;
+import org.tensorics.core.tensorbacked.dimtyped.TensorbackedScalar;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapter;
+
+/**
+ * Serialization and deserialization of scalar tensorbacked objects, which mainly shows the constant overhead per
+ * object.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ScalarSerializationBenchmark {
+
+    private final Gson gson = new GsonBuilder().registerTypeAdapterFactory(TensorbackedGsonAdapter.FACTORY).create();
+    private final AScalar scalar = Tensorics.builderForScalar(AScalar.class).put(0.33).build();
+    private final String json = gson.toJson(scalar);
+
+    @Benchmark
+    public String toJson() {
+        return gson.toJson(scalar);
+    }
+
+    @Benchmark
+    public AScalar fromJson() {
+        return gson.fromJson(json, AScalar.class);
+    }
+
+    public interface AScalar extends TensorbackedScalar<Double> {
+    }
+
+}
@@ -0,0 +1,222 @@
+package org.tensorics.gson.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import org.tensorics.core.lang.Tensorics;
+import org.tensorics.core.tensor.Position;
+import org.tensorics.core.tensor.Tensor;
+import org.tensorics.core.tensor.TensorBuilder;
+import org.tensorics.core.tensorbacked.AbstractTensorbacked;
+import org.tensorics.core.tensorbacked.Tensorbacked;
+import org.tensorics.core.tensorbacked.TensorbackedInternals;
+import org.tensorics.core.tensorbacked.annotation.Dimensions;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * Tensorbacked types and instances of different shapes, which are used as input for the benchmarks.
+ */
+public final class TensorbackedFixtures {
+
+    /**
+     * The fraction of the positions of the surrounding grid, which are filled in a sparse tensor.
+     */
+    private static final double SPARSE_FILL_RATIO = 0.1;
+
+    private TensorbackedFixtures() {
+        throw new UnsupportedOperationException("Only static methods");
+    }
+
+    public enum Keys {
+        /**
+         * Coordinates which are serialized as json primitives and can therefore be used as names in json objects.
+         */
+        SIMPLE,
+        /**
+         * Coordinates which are serialized as json objects. With complex map key serialization enabled, they are
+         * written as arrays of key-value entries.
+         */
+        COMPLEX
+    }
+
+    public enum Fill {
+        /**
+         * All the positions of the (hyper-) cube are filled (up to the requested amount of entries)
+         */
+        DENSE,
+        /**
+         * Only a random fraction of the positions of a larger (hyper-) cube is filled.
+         */
+        SPARSE
+    }
+
+    public static Class<? extends Tensorbacked<Double>> tensorbackedClass(int dimensionality, Keys keys) {
+        switch (dimensionality) {
+            case 1:
+                return keys == Keys.SIMPLE ? Simple1d.class : Complex1d.class;
+            case 2:
+                return keys == Keys.SIMPLE ? Simple2d.class : Complex2d.class;
+            case 4:
+                return keys == Keys.SIMPLE ? Simple4d.class : Complex4d.class;
+            default:
+                throw new IllegalArgumentException("No tensorbacked with dimensionality " + dimensionality + " available.");
+        }
+    }
+
+    public static List<Class<?>> dimensions(int dimensionality, Keys keys) {
+        return TensorbackedInternals.dimensionListFrom(tensorbackedClass(dimensionality, keys));
+    }
+
+    public static Tensorbacked<Double> tensorbacked(int dimensionality, Keys keys, Fill fill, int entries) {
+        Class<? extends Tensorbacked<Double>> tensorbackedClass = tensorbackedClass(dimensionality, keys);
+        return TensorbackedInternals.createBackedByTensor((Class) tensorbackedClass, tensor(dimensionality, keys, fill, entries));
+    }
+
+    public static Tensor<Double> tensor(int dimensionality, Keys keys, Fill fill, int entries) {
+        List<Class<?>> dimensions = dimensions(dimensionality, keys);
+        List<IntFunction<Object>> coordinates = coordinateFactories(keys).subList(0, dimensionality);
+        TensorBuilder<Double> builder = Tensorics.builder(dimensions);
+
+        Random random = new Random(42);
+        if (fill == Fill.DENSE) {
+            long side = sideLength(entries, dimensionality);
+            for (long i = 0; i < entries; i++) {
+                builder.put(position(i, side, coordinates), random.nextDouble());
+            }
+        } else {
+            long side = sideLength((long) Math.ceil(entries / SPARSE_FILL_RATIO), dimensionality);
+            long gridSize = (long) Math.pow(side, dimensionality);
+            Set<Long> used = new HashSet<>();
+            while (used.size() < entries) {
+                long i = (long) (random.nextDouble() * gridSize);
+                if (used.add(i)) {
+                    builder.put(position(i, side, coordinates), random.nextDouble());
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private static long sideLength(long entries, int dimensionality) {
+        long side = (long) Math.floor(Math.pow(entries, 1.0 / dimensionality));
+        while (Math.pow(side, dimensionality) < entries) {
+            side++;
+        }
+        return side;
+    }
+
+    private static Position position(long linearIndex, long side, List<IntFunction<Object>> coordinates) {
+        Object[] coords = new Object[coordinates.size()];
+        long remaining = linearIndex;
+        for (int dim = coordinates.size() - 1; dim >= 0; dim--) {
+            coords[dim] = coordinates.get(dim).apply((int) (remaining % side));
+            remaining /= side;
+        }
+        return Position.of(coords);
+    }
+
+    private static List<IntFunction<Object>> coordinateFactories(Keys keys) {
+        if (keys == Keys.SIMPLE) {
+            return ImmutableList.of(i -> "c" + i, i -> i, i -> (long) i, i -> (short) i);
+        }
+        return ImmutableList.of(KeyA::new, KeyB::new, KeyC::new, KeyD::new);
+    }
+
+    @Dimensions({String.class})
+    public static class Simple1d extends AbstractTensorbacked<Double> {
+        public Simple1d(Tensor<Double> tensor) {
+            super(tensor);
+        }
+    }
+
+    @Dimensions({String.class, Integer.class})
+    public static class Simple2d extends AbstractTensorbacked<Double> {
+        public Simple2d(Tensor<Double> tensor) {
+            super(tensor);
+        }
+    }
+
+    @Dimensions({String.class, Integer.class, Long.class, Short.class})
+    public static class Simple4d extends AbstractTensorbacked<Double> {
+        public Simple4d(Tensor<Double> tensor) {
+            super(tensor);
+        }
+    }
+
+    @Dimensions({KeyA.class})
+    public static class Complex1d extends AbstractTensorbacked<Double> {
+        public Complex1d(Tensor<Double> tensor) {
+            super(tensor);
+        }
+    }
+
+    @Dimensions({KeyA.class, KeyB.class})
+    public static class Complex2d extends AbstractTensorbacked<Double> {
+        public Complex2d(Tensor<Double> tensor) {
+            super(tensor);
+        }
+    }
+
+    @Dimensions({KeyA.class, KeyB.class, KeyC.class, KeyD.class})
+    public static class Complex4d extends AbstractTensorbacked<Double> {
+        public Complex4d(Tensor<Double> tensor) {
+            super(tensor);
+        }
+    }
+
+    /**
+     * A coordinate which is serialized as a json object. Each dimension of the complex tensorbacked types needs its own
+     * class, therefore there are the subclasses below.
+     */
+    public abstract static class ComplexKey {
+        public final int id;
+        public final String label;
+
+        ComplexKey(int id) {
+            this.id = id;
+            this.label = "k" + id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            ComplexKey that = (ComplexKey) o;
+            return id == that.id && Objects.equals(label, that.label);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, label);
+        }
+    }
+
+    public static final class KeyA extends ComplexKey {
+        public KeyA(int id) {
+            super(id);
+        }
+    }
+
+    public static final class KeyB extends ComplexKey {
+        public KeyB(int id) {
+            super(id);
+        }
+    }
+
+    public static final class KeyC extends ComplexKey {
+        public KeyC(int id) {
+            super(id);
+        }
+    }
+
+    public static final class KeyD extends ComplexKey {
+        public KeyD(int id) {
+            super(id);
+        }
+    }
+
+}
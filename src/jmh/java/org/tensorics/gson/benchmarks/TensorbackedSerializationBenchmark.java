@@ -0,0 +1,67 @@
+package org.tensorics.gson.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tensorics.core.tensorbacked.Tensorbacked;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapter;
+import org.tensorics.gson.benchmarks.TensorbackedFixtures.Fill;
+import org.tensorics.gson.benchmarks.TensorbackedFixtures.Keys;
+
+/**
+ * Serialization and deserialization of tensorbacked objects of different shapes through gson, using the
+ * {@link TensorbackedGsonAdapter#FACTORY}. Complex keys are serialized with complex map key serialization enabled.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TensorbackedSerializationBenchmark {
+
+    @Param({"1", "2", "4"})
+    private int dimensionality;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    private int entries;
+
+    @Param({"SIMPLE", "COMPLEX"})
+    private Keys keys;
+
+    @Param({"DENSE", "SPARSE"})
+    private Fill fill;
+
+    private Gson gson;
+    private Class<? extends Tensorbacked<Double>> tensorbackedClass;
+    private Tensorbacked<Double> tensorbacked;
+    private String json;
+
+    @Setup
+    public void setUp() {
+        GsonBuilder gsonBuilder = new GsonBuilder().registerTypeAdapterFactory(TensorbackedGsonAdapter.FACTORY);
+        if (keys == Keys.COMPLEX) {
+            gsonBuilder.enableComplexMapKeySerialization();
+        }
+        gson = gsonBuilder.create();
+        tensorbackedClass = TensorbackedFixtures.tensorbackedClass(dimensionality, keys);
+        tensorbacked = TensorbackedFixtures.tensorbacked(dimensionality, keys, fill, entries);
+        json = gson.toJson(tensorbacked);
+    }
+
+    @Benchmark
+    public String toJson() {
+        return gson.toJson(tensorbacked);
+    }
+
+    @Benchmark
+    public Tensorbacked<Double> fromJson() {
+        return gson.fromJson(json, tensorbackedClass);
+    }
+
+}
@@ -0,0 +1,138 @@
+package org.tensorics.gson.adapters;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The (immutable) options, with which a {@link TensorbackedGsonAdapterFactory} creates its adapters.
+ */
+final class AdapterOptions {
+
+    static final AdapterOptions DEFAULT = new AdapterOptions(TensorbackedGsonAdapterFactory.builder());
+
+    private final JsonLayout layout;
+    private final ForkJoinPool parallelWritePool;
+    private final int parallelWriteThreshold;
+    private final ForkJoinPool parallelReadPool;
+    private final int parallelReadThreshold;
+    private final int maxInternedCoordinatesPerDimension;
+    private final boolean sharedCoordinateDictionary;
+    private final CoordinateFilter readFilter;
+    private final TensorbackedAdapterListener listener;
+    private final List<Class<?>> contextTypes;
+    private final boolean sizeHints;
+    private final Map<Class<?>, TensorbackedType<?, ?>> types;
+    private final int cacheSize;
+
+    AdapterOptions(TensorbackedGsonAdapterFactory.Builder builder) {
+        this.layout = requireNonNull(builder.layout, "layout must not be null.");
+        this.parallelWritePool = builder.parallelWritePool;
+        this.parallelWriteThreshold = builder.parallelWriteThreshold;
+        this.parallelReadPool = builder.parallelReadPool;
+        this.parallelReadThreshold = builder.parallelReadThreshold;
+        this.maxInternedCoordinatesPerDimension = builder.maxInternedCoordinatesPerDimension;
+        this.sharedCoordinateDictionary = builder.sharedCoordinateDictionary;
+        this.readFilter = requireNonNull(builder.readFilter, "readFilter must not be null.");
+        this.listener = builder.listener;
+        this.contextTypes = ImmutableList.copyOf(builder.contextTypes);
+        this.sizeHints = builder.sizeHints;
+        this.types = ImmutableMap.copyOf(builder.types);
+        this.cacheSize = builder.cacheSize;
+    }
+
+    JsonLayout layout() {
+        return layout;
+    }
+
+    /**
+     * @return the pool to use for writing in parallel, or empty if parallel writing is disabled
+     */
+    Optional<ForkJoinPool> parallelWritePool() {
+        return Optional.ofNullable(parallelWritePool);
+    }
+
+    /**
+     * @return the minimum amount of entries of a tensor, from which on it is written in parallel
+     */
+    int parallelWriteThreshold() {
+        return parallelWriteThreshold;
+    }
+
+    /**
+     * @return the pool to use for reading in parallel, or empty if parallel reading is disabled
+     */
+    Optional<ForkJoinPool> parallelReadPool() {
+        return Optional.ofNullable(parallelReadPool);
+    }
+
+    /**
+     * @return the minimum amount of top level entries, from which on the sub-maps are read in parallel
+     */
+    int parallelReadThreshold() {
+        return parallelReadThreshold;
+    }
+
+    /**
+     * @return the maximum amount of coordinates per dimension to intern on reading, 0 if interning is disabled
+     */
+    int maxInternedCoordinatesPerDimension() {
+        return maxInternedCoordinatesPerDimension;
+    }
+
+    /**
+     * @return {@code true} if the coordinate dictionary shall be shared between all the reads of an adapter
+     */
+    boolean sharedCoordinateDictionary() {
+        return sharedCoordinateDictionary;
+    }
+
+    /**
+     * @return the filter for the entries to read
+     */
+    CoordinateFilter readFilter() {
+        return readFilter;
+    }
+
+    /**
+     * @return the listener to notify about each read and write, or {@code null} if there is none
+     */
+    TensorbackedAdapterListener listener() {
+        return listener;
+    }
+
+    /**
+     * @return the types of the context coordinates to serialize, empty if the context is not serialized
+     */
+    List<Class<?>> contextTypes() {
+        return contextTypes;
+    }
+
+    /**
+     * @return {@code true} if size hints shall be written
+     */
+    boolean sizeHints() {
+        return sizeHints;
+    }
+
+    /**
+     * @return the tensorbacked types registered explicitly, by their class
+     */
+    Map<Class<?>, TensorbackedType<?, ?>> types() {
+        return types;
+    }
+
+    /**
+     * @return the maximum amount of tensorbacked classes, of which the metadata is cached
+     */
+    int cacheSize() {
+        return cacheSize;
+    }
+
+}
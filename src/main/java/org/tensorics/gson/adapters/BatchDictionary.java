@@ -0,0 +1,181 @@
+package org.tensorics.gson.adapters;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.tensorics.core.tensor.Position;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The coordinate dictionary shared by all the elements of a batch (see {@link TensorbackedBatchWriter}). The
+ * coordinates of each dimension are numbered in the order of their first occurrence, and the elements are written in
+ * nested layout with these numbers as names. New coordinates are announced by dictionary elements, which precede the
+ * first element using them:
+ * <pre>
+ * {"@dictionary":[["A","B"],[1,2]]}
+ * {"0":{"0":0.11,"1":0.12},"1":{"0":0.21}}
+ * {"@dictionary":[["C"],[]]}
+ * {"2":{"1":0.32}}
+ * </pre>
+ * One instance is used either for writing or for reading a batch, it is not thread safe.
+ */
+final class BatchDictionary {
+
+    /**
+     * The name of the only field of a dictionary element.
+     */
+    static final String DICTIONARY = "@dictionary";
+
+    private final List<Class<?>> dimensions;
+    private final List<? extends TypeAdapter<?>> keyAdapters;
+    private final List<Map<Object, String>> names;
+    private final List<List<Object>> coordinates;
+    private final List<TypeAdapter<Object>> ordinalAdapters;
+    private boolean used = false;
+
+    /**
+     * @param dimensions  the dimensions of the tensorbacked class
+     * @param keyAdapters the gson adapters for the coordinates, one per dimension
+     */
+    BatchDictionary(List<Class<?>> dimensions, List<? extends TypeAdapter<?>> keyAdapters) {
+        this.dimensions = dimensions;
+        this.keyAdapters = keyAdapters;
+        this.names = new ArrayList<>(dimensions.size());
+        this.coordinates = new ArrayList<>(dimensions.size());
+        this.ordinalAdapters = new ArrayList<>(dimensions.size());
+        for (int d = 0; d < dimensions.size(); d++) {
+            names.add(new HashMap<>());
+            List<Object> dimCoordinates = new ArrayList<>();
+            coordinates.add(dimCoordinates);
+            ordinalAdapters.add(new OrdinalAdapter(dimCoordinates));
+        }
+    }
+
+    /**
+     * Numbers the coordinates of the given positions, which are not yet contained in the dictionary.
+     *
+     * @return the new coordinates per dimension, or {@code null} if there are none
+     */
+    List<List<Object>> add(Iterable<Position> positions) {
+        List<List<Object>> added = null;
+        for (Position position : positions) {
+            for (int d = 0; d < dimensions.size(); d++) {
+                Object coordinate = position.coordinateFor(dimensions.get(d));
+                Map<Object, String> dimNames = names.get(d);
+                if (!dimNames.containsKey(coordinate)) {
+                    dimNames.put(coordinate, Integer.toString(dimNames.size()));
+                    if (added == null) {
+                        added = new ArrayList<>(dimensions.size());
+                        for (int i = 0; i < dimensions.size(); i++) {
+                            added.add(new ArrayList<>());
+                        }
+                    }
+                    added.get(d).add(coordinate);
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Writes a dictionary element, announcing the given new coordinates.
+     */
+    @SuppressWarnings("unchecked")
+    void write(JsonWriter out, List<List<Object>> added) throws IOException {
+        out.beginObject();
+        out.name(DICTIONARY);
+        out.beginArray();
+        for (int d = 0; d < added.size(); d++) {
+            TypeAdapter<Object> keyAdapter = (TypeAdapter<Object>) keyAdapters.get(d);
+            out.beginArray();
+            for (Object coordinate : added.get(d)) {
+                keyAdapter.write(out, coordinate);
+            }
+            out.endArray();
+        }
+        out.endArray();
+        out.endObject();
+    }
+
+    /**
+     * @return the names of all the numbered coordinates, per dimension
+     */
+    List<Map<Object, String>> names() {
+        return names;
+    }
+
+    /**
+     * Reads the remainder of a dictionary element, of which the beginning of the object and the name are already
+     * consumed, and appends the coordinates to the dictionary.
+     */
+    void readAfterName(JsonReader in) throws IOException {
+        in.beginArray();
+        for (int d = 0; d < dimensions.size(); d++) {
+            TypeAdapter<?> keyAdapter = keyAdapters.get(d);
+            List<Object> dimCoordinates = coordinates.get(d);
+            in.beginArray();
+            while (in.hasNext()) {
+                dimCoordinates.add(keyAdapter.read(in));
+            }
+            in.endArray();
+        }
+        in.endArray();
+        in.endObject();
+        used = true;
+    }
+
+    /**
+     * @return {@code true} if at least one dictionary element was read, so that the following elements are written
+     * with numbered coordinates
+     */
+    boolean isUsed() {
+        return used;
+    }
+
+    /**
+     * @return adapters (one per dimension), which read the numbers of coordinates and return the coordinates (and
+     * write the numbers of the coordinates)
+     */
+    List<TypeAdapter<Object>> ordinalAdapters() {
+        return ordinalAdapters;
+    }
+
+    /**
+     * Reads the number of a coordinate (also if it is a json name, which was promoted to a value) and returns the
+     * coordinate from the dictionary of one dimension. Writes the number of a coordinate of the dictionary.
+     */
+    private static final class OrdinalAdapter extends TypeAdapter<Object> {
+
+        private final List<Object> coordinates;
+
+        private OrdinalAdapter(List<Object> coordinates) {
+            this.coordinates = coordinates;
+        }
+
+        @Override
+        public void write(JsonWriter out, Object value) throws IOException {
+            int ordinal = coordinates.indexOf(value);
+            if (ordinal < 0) {
+                throw new IllegalArgumentException("Coordinate " + value + " is not in the dictionary.");
+            }
+            out.value(ordinal);
+        }
+
+        @Override
+        public Object read(JsonReader in) throws IOException {
+            int ordinal = in.nextInt();
+            if (ordinal < 0 || ordinal >= coordinates.size()) {
+                throw new JsonSyntaxException("Coordinate number " + ordinal + " is not in the dictionary (size "
+                        + coordinates.size() + ") at " + in.getPath());
+            }
+            return coordinates.get(ordinal);
+        }
+    }
+
+}
@@ -0,0 +1,27 @@
+package org.tensorics.gson.adapters;
+
+/**
+ * The possible framings of a sequence of tensorbacked objects, as written by {@link TensorbackedBatchWriter} and read
+ * by {@link TensorbackedBatchReader}.
+ */
+public enum BatchFormat {
+
+    /**
+     * Newline delimited json: each element on its own line, without any enclosing structure. E.g.:
+     * <pre>
+     * {"A":{"1":0.11}}
+     * {"A":{"1":0.12}}
+     * </pre>
+     * Elements are never indented, so that each one fits on a single line.
+     */
+    NDJSON,
+
+    /**
+     * One json array, containing all the elements. E.g.:
+     * <pre>
+     * [{"A":{"1":0.11}},{"A":{"1":0.12}}]
+     * </pre>
+     */
+    JSON_ARRAY
+
+}
@@ -0,0 +1,81 @@
+package org.tensorics.gson.adapters;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A simple, thread safe pool of (direct) byte buffers of the same size, which are reused between serializations
+ * instead of being allocated per request. At most the given amount of buffers is kept; further released buffers are
+ * left to the garbage collector.
+ */
+public final class ByteBufferPool {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int DEFAULT_MAX_POOLED = 16;
+
+    private final int bufferSize;
+    private final int maxPooled;
+    private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    private ByteBufferPool(int bufferSize, int maxPooled) {
+        if (bufferSize < 16) {
+            throw new IllegalArgumentException("bufferSize must be at least 16, but was " + bufferSize + ".");
+        }
+        if (maxPooled < 0) {
+            throw new IllegalArgumentException("maxPooled must not be negative, but was " + maxPooled + ".");
+        }
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * @param bufferSize the size of each buffer in bytes
+     * @param maxPooled  the maximum amount of idle buffers to keep
+     * @return a new, empty pool
+     */
+    public static ByteBufferPool create(int bufferSize, int maxPooled) {
+        return new ByteBufferPool(bufferSize, maxPooled);
+    }
+
+    /**
+     * @return a new pool with buffers of 64 KiB, keeping at most 16 idle buffers
+     */
+    public static ByteBufferPool createDefault() {
+        return new ByteBufferPool(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_POOLED);
+    }
+
+    /**
+     * @return a cleared buffer, either from the pool or newly allocated
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        pooled.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Gives back a buffer, which was acquired from this pool. The buffer must not be used by the caller afterwards.
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer.capacity() != bufferSize || !buffer.isDirect()) {
+            throw new IllegalArgumentException("The buffer was not acquired from this pool.");
+        }
+        if (pooled.incrementAndGet() > maxPooled) {
+            pooled.decrementAndGet();
+            return;
+        }
+        buffers.offer(buffer);
+    }
+
+    public int bufferSize() {
+        return bufferSize;
+    }
+
+}
@@ -0,0 +1,310 @@
+package org.tensorics.gson.adapters;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.tensorics.core.tensor.Position;
+import org.tensorics.core.tensor.Tensor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Writes and reads tensors in the {@link JsonLayout#COLUMNAR} layout.
+ */
+final class ColumnarJson {
+
+    /**
+     * The name of the first field of the columnar layout. This is used to detect the layout on reading.
+     */
+    static final String COORDINATES = "@coordinates";
+    static final String VALUES = "@values";
+
+    /**
+     * The maximum amount of positions in the grid. Bigger grids are never written in columnar layout.
+     */
+    private static final long MAX_GRID_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * The maximum ratio of positions in the grid to entries in the tensor. Sparser tensors are written in nested
+     * layout, as the nulls of the absent positions would take more space than the names saved by the columnar layout.
+     */
+    private static final int MAX_GRID_TO_ENTRIES_RATIO = 2;
+
+    private final List<Class<?>> dimensions;
+    private final List<? extends TypeAdapter<?>> keyAdapters;
+    private final TypeAdapter<Object> valueAdapter;
+    private final ValueWriter valueWriter;
+
+    /**
+     * @param dimensions   the dimensions of the tensors
+     * @param keyAdapters  one adapter per dimension, used for writing and reading the coordinates
+     * @param valueAdapter the adapter for reading the values
+     * @param valueWriter  the writer of the values
+     */
+    ColumnarJson(List<Class<?>> dimensions, List<? extends TypeAdapter<?>> keyAdapters, TypeAdapter<?> valueAdapter,
+                 ValueWriter valueWriter) {
+        this.dimensions = dimensions;
+        this.keyAdapters = keyAdapters;
+        this.valueAdapter = (TypeAdapter<Object>) valueAdapter;
+        this.valueWriter = valueWriter;
+    }
+
+    /**
+     * Writes the given tensor in columnar layout, if it is dense enough. The values are written in the order of the
+     * grid by sorting the entries by their cell, without allocating the grid itself. As absent cells are written as
+     * null, a tensor with a value that is written as null (e.g. by a custom adapter) cannot be written in columnar
+     * layout: the entry would be lost on reading.
+     *
+     * @return {@code true} if the tensor was written, {@code false} if the grid would be too big or too sparse, or if
+     * a value is written as null. In this case, nothing was written to the output and the tensor has to be written in
+     * nested layout.
+     * @throws IllegalArgumentException if the tensor cannot be written in either layout: it cannot be written in
+     *                                  columnar layout, but the first top level coordinate is named like the first
+     *                                  field of the columnar layout
+     */
+    boolean write(JsonWriter out, Tensor<?> tensor) throws IOException {
+        int dimensionCount = dimensions.size();
+        List<Map<Object, Integer>> ordinals = new ArrayList<>(dimensionCount);
+        for (int d = 0; d < dimensionCount; d++) {
+            ordinals.add(new LinkedHashMap<>());
+        }
+
+        Map<Position, ?> entries = tensor.asMap();
+        int entryCount = entries.size();
+        int[] entryOrdinals = new int[entryCount * dimensionCount];
+        Object[] entryValues = new Object[entryCount];
+        boolean nullValues = false;
+        int i = 0;
+        for (Map.Entry<Position, ?> entry : entries.entrySet()) {
+            for (int d = 0; d < dimensionCount; d++) {
+                Object coordinate = entry.getKey().coordinateFor(dimensions.get(d));
+                Map<Object, Integer> dimOrdinals = ordinals.get(d);
+                Integer ordinal = dimOrdinals.get(coordinate);
+                if (ordinal == null) {
+                    ordinal = dimOrdinals.size();
+                    dimOrdinals.put(coordinate, ordinal);
+                }
+                entryOrdinals[i * dimensionCount + d] = ordinal;
+            }
+            entryValues[i] = entry.getValue();
+            nullValues = nullValues || valueWriter.writesNull(entry.getValue());
+            i++;
+        }
+        if (nullValues) {
+            return nestedUnlessStartedBy(ordinals, "a value is written as null");
+        }
+
+        long gridSize = 1;
+        for (Map<Object, Integer> dimOrdinals : ordinals) {
+            gridSize *= dimOrdinals.size();
+            if (gridSize > MAX_GRID_SIZE) {
+                return nestedUnlessStartedBy(ordinals, "the tensor is too sparse");
+            }
+        }
+        /* The nested layout of a tensor starting with the reserved name would be mistaken for the columnar one */
+        if (gridSize > (long) MAX_GRID_TO_ENTRIES_RATIO * entryCount && !isStartedBy(ordinals)) {
+            return false;
+        }
+
+        /* Each key combines the cell (major) and the entry (minor), so that sorting them orders the entries by cell */
+        long[] keys = new long[entryCount];
+        for (int e = 0; e < entryCount; e++) {
+            long cell = 0;
+            for (int d = 0; d < dimensionCount; d++) {
+                cell = cell * ordinals.get(d).size() + entryOrdinals[e * dimensionCount + d];
+            }
+            keys[e] = cell * entryCount + e;
+        }
+        Arrays.sort(keys);
+
+        out.beginObject();
+        out.name(COORDINATES);
+        out.beginArray();
+        for (int d = 0; d < dimensionCount; d++) {
+            TypeAdapter<Object> keyAdapter = (TypeAdapter<Object>) keyAdapters.get(d);
+            out.beginArray();
+            for (Object coordinate : ordinals.get(d).keySet()) {
+                keyAdapter.write(out, coordinate);
+            }
+            out.endArray();
+        }
+        out.endArray();
+        out.name(VALUES);
+        out.beginArray();
+        int next = 0;
+        for (long cell = 0; cell < gridSize; cell++) {
+            if (next < entryCount && keys[next] / entryCount == cell) {
+                valueWriter.write(out, entryValues[(int) (keys[next] % entryCount)]);
+                next++;
+            } else {
+                out.nullValue(); // absent in the tensor
+            }
+        }
+        out.endArray();
+        out.endObject();
+        return true;
+    }
+
+    /**
+     * @return {@code false}, for writing the tensor in nested layout
+     * @throws IllegalArgumentException if the nested layout would be mistaken for the columnar one
+     */
+    private static boolean nestedUnlessStartedBy(List<Map<Object, Integer>> ordinals, String reason) {
+        if (isStartedBy(ordinals)) {
+            throw new IllegalArgumentException("The tensor cannot be written in columnar layout (" + reason + "), "
+                    + "but its first coordinate is named '" + COORDINATES + "', so it cannot be written in nested "
+                    + "layout either.");
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code true} if the first top level name of the nested layout would be the reserved name of the
+     * columnar layout
+     */
+    private static boolean isStartedBy(List<Map<Object, Integer>> ordinals) {
+        Iterator<Object> topLevel = ordinals.get(0).keySet().iterator();
+        return topLevel.hasNext() && COORDINATES.equals(String.valueOf(topLevel.next()));
+    }
+
+    /**
+     * Creates a cursor on the remainder of a tensor in columnar layout. The enclosing object and the name of the
+     * coordinates field are expected to be already consumed. The coordinates are read immediately, the values while
+     * iterating. Only the entries, of which the coordinates fulfill the conditions of their dimensions, are returned;
+     * the values of the other entries are skipped.
+     *
+     * @param conditions one condition per dimension (or {@code null} for accepting all coordinates of a dimension), or
+     *                   {@code null} for accepting all entries
+     */
+    <V> EntryCursor<V> cursorAfterCoordinatesName(JsonReader in, Predicate<Object>[] conditions) throws IOException {
+        return new Cursor<>(in, conditions);
+    }
+
+    private final class Cursor<V> implements EntryCursor<V> {
+
+        private final JsonReader in;
+        private final List<List<Object>> coordinates;
+        private final long gridSize;
+        private final int[] indices;
+        private final Object[] current;
+        private final boolean[][] accepted;
+
+        private long cell = 0;
+        private boolean finished = false;
+        private V value;
+
+        private Cursor(JsonReader in, Predicate<Object>[] conditions) throws IOException {
+            this.in = in;
+            int dimensionCount = dimensions.size();
+            this.coordinates = new ArrayList<>(dimensionCount);
+            in.beginArray();
+            for (int d = 0; d < dimensionCount; d++) {
+                TypeAdapter<?> keyAdapter = keyAdapters.get(d);
+                List<Object> dimCoordinates = new ArrayList<>();
+                Set<Object> seen = new HashSet<>();
+                in.beginArray();
+                while (in.hasNext()) {
+                    Object coordinate = keyAdapter.read(in);
+                    if (!seen.add(coordinate)) {
+                        throw new JsonSyntaxException("duplicate key: " + coordinate);
+                    }
+                    dimCoordinates.add(coordinate);
+                }
+                in.endArray();
+                coordinates.add(dimCoordinates);
+            }
+            in.endArray();
+
+            String name = in.nextName();
+            if (!VALUES.equals(name)) {
+                throw new JsonSyntaxException("Expected '" + VALUES + "' after '" + COORDINATES + "' but was '" + name
+                        + "' at " + in.getPath());
+            }
+
+            long size = 1;
+            for (List<Object> dimCoordinates : coordinates) {
+                size *= dimCoordinates.size();
+            }
+            this.gridSize = size;
+            this.indices = new int[dimensionCount];
+            this.current = new Object[dimensionCount];
+            this.accepted = new boolean[dimensionCount][];
+            for (int d = 0; d < dimensionCount; d++) {
+                List<Object> dimCoordinates = coordinates.get(d);
+                accepted[d] = new boolean[dimCoordinates.size()];
+                for (int c = 0; c < accepted[d].length; c++) {
+                    accepted[d][c] = CoordinateFilter.accepts(conditions, d, dimCoordinates.get(c));
+                }
+            }
+            in.beginArray();
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            if (finished) {
+                return false;
+            }
+            while (in.hasNext()) {
+                if (cell >= gridSize) {
+                    throw new JsonSyntaxException("More values than coordinate combinations (" + gridSize + ") at "
+                            + in.getPath());
+                }
+                boolean present = in.peek() != JsonToken.NULL && isAccepted();
+                if (present) {
+                    for (int d = 0; d < current.length; d++) {
+                        current[d] = coordinates.get(d).get(indices[d]);
+                    }
+                    value = (V) valueAdapter.read(in);
+                } else {
+                    in.skipValue(); // absent in the tensor or not matching the filter
+                }
+                cell++;
+                for (int d = current.length - 1; d >= 0 && ++indices[d] == coordinates.get(d).size(); d--) {
+                    indices[d] = 0;
+                }
+                if (present) {
+                    return true;
+                }
+            }
+            in.endArray();
+            if (cell != gridSize) {
+                throw new JsonSyntaxException("Expected " + gridSize + " values, but got only " + cell + " at "
+                        + in.getPath());
+            }
+            in.endObject();
+            finished = true;
+            return false;
+        }
+
+        private boolean isAccepted() {
+            for (int d = 0; d < indices.length; d++) {
+                if (!accepted[d][indices[d]]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Position position() {
+            return Position.of(current);
+        }
+
+        @Override
+        public V value() {
+            return value;
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+package org.tensorics.gson.adapters;
+
+import com.google.common.collect.Maps;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.TypeAdapter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps the json names of coordinates to canonical coordinate instances, one map per dimension. Like this, a coordinate
+ * which occurs under many parent keys is converted only once and all the positions of the read tensor share the same
+ * coordinate instance.
+ * <p>
+ * The amount of coordinates per dimension is bounded: when a dictionary is full, further coordinates are still
+ * converted, but not cached anymore. A dictionary can either be used for a single read (not thread safe) or be shared
+ * between all the reads of one adapter (thread safe).
+ */
+final class CoordinateDictionary {
+
+    private final Map<String, Object>[] dictionaries;
+    private final int maxCoordinatesPerDimension;
+    private final boolean shared;
+
+    @SuppressWarnings("unchecked")
+    private CoordinateDictionary(int dimensionCount, int maxCoordinatesPerDimension, boolean shared, SizeHint hint) {
+        this.dictionaries = new Map[dimensionCount];
+        for (int d = 0; d < dimensionCount; d++) {
+            if (shared) {
+                dictionaries[d] = new ConcurrentHashMap<>();
+            } else {
+                /* Without a hint, the default capacity is used, as the amount of coordinates is not known */
+                int expected = hint == null ? -1 : Math.min(hint.coordinates(d), maxCoordinatesPerDimension);
+                dictionaries[d] = expected < 0 ? Maps.newHashMap() : Maps.newHashMapWithExpectedSize(expected);
+            }
+        }
+        this.maxCoordinatesPerDimension = maxCoordinatesPerDimension;
+        this.shared = shared;
+    }
+
+    /**
+     * @param dimensionCount             the amount of dimensions of the tensors to read
+     * @param maxCoordinatesPerDimension the maximum amount of coordinates to keep per dimension
+     * @param shared                     {@code true} if the same dictionary shall be used by all reads,
+     *                                   {@code false} if each read shall start with an empty dictionary
+     */
+    static CoordinateDictionary create(int dimensionCount, int maxCoordinatesPerDimension, boolean shared) {
+        return new CoordinateDictionary(dimensionCount, maxCoordinatesPerDimension, shared, null);
+    }
+
+    /**
+     * @param hint the size hint of the read document, or {@code null} if there is none
+     * @return the dictionary to use for one read: this one if it is shared, a new empty one otherwise (sized for the
+     * amount of coordinates given by the hint)
+     */
+    CoordinateDictionary forRead(SizeHint hint) {
+        return shared ? this : new CoordinateDictionary(dictionaries.length, maxCoordinatesPerDimension, false, hint);
+    }
+
+    /**
+     * Returns the canonical coordinate for the given json name, converting it with the given adapter if it is not
+     * known yet.
+     */
+    Object coordinateFor(int dimension, String name, TypeAdapter<?> keyAdapter) {
+        Map<String, Object> dictionary = dictionaries[dimension];
+        Object coordinate = dictionary.get(name);
+        if (coordinate != null) {
+            return coordinate;
+        }
+        coordinate = keyAdapter.fromJsonTree(new JsonPrimitive(name));
+        if (coordinate == null || dictionary.size() >= maxCoordinatesPerDimension) {
+            return coordinate;
+        }
+        Object existing = shared ? dictionary.putIfAbsent(name, coordinate) : dictionary.put(name, coordinate);
+        return existing == null ? coordinate : existing;
+    }
+
+}
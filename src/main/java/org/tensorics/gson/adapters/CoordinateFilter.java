@@ -0,0 +1,118 @@
+package org.tensorics.gson.adapters;
+
+import com.google.common.collect.ImmutableMap;
+import org.tensorics.core.tensor.Position;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Restricts the entries, which are read from json, by a condition on the coordinates of each dimension. Entries (or
+ * whole sub-maps) with coordinates not matching the condition are skipped while parsing, without being materialized.
+ * <p>
+ * Example:
+ * <pre>
+ * CoordinateFilter filter = CoordinateFilter.matching(Position.of("A"))
+ *         .and(Integer.class, i -&gt; i &lt; 10);
+ * </pre>
+ * Conditions are assigned to the dimensions of a tensorbacked by their class: a condition on a class applies to the
+ * dimension of that class (or, if there is none, to the dimensions which are super classes of it). Conditions for
+ * classes, which are not dimensions of the read tensorbacked, are ignored. Instances are immutable.
+ */
+public final class CoordinateFilter {
+
+    private static final CoordinateFilter ALL = new CoordinateFilter(ImmutableMap.of());
+
+    private final Map<Class<?>, Predicate<Object>> conditions;
+
+    private CoordinateFilter(Map<Class<?>, Predicate<Object>> conditions) {
+        this.conditions = conditions;
+    }
+
+    /**
+     * @return a filter, which accepts all entries
+     */
+    public static CoordinateFilter all() {
+        return ALL;
+    }
+
+    /**
+     * @param position the coordinates, which the read entries must have
+     * @return a filter, which accepts only entries with all the coordinates of the given position
+     */
+    @SuppressWarnings("unchecked")
+    public static CoordinateFilter matching(Position position) {
+        requireNonNull(position, "position must not be null.");
+        CoordinateFilter filter = ALL;
+        for (Object coordinate : position.coordinates()) {
+            filter = filter.and((Class<Object>) coordinate.getClass(), coordinate::equals);
+        }
+        return filter;
+    }
+
+    /**
+     * Returns a filter, which additionally requires the coordinates of the given dimension to fulfill the given
+     * condition. If there is already a condition for the dimension, both have to be fulfilled.
+     *
+     * @param dimension the dimension to which the condition applies
+     * @param condition the condition for the coordinates of the dimension
+     * @return a new filter
+     */
+    public <C> CoordinateFilter and(Class<C> dimension, Predicate<? super C> condition) {
+        requireNonNull(dimension, "dimension must not be null.");
+        requireNonNull(condition, "condition must not be null.");
+        Predicate<Object> objectCondition = c -> dimension.isInstance(c) && condition.test(dimension.cast(c));
+        Map<Class<?>, Predicate<Object>> newConditions = new LinkedHashMap<>(conditions);
+        newConditions.merge(dimension, objectCondition, Predicate::and);
+        return new CoordinateFilter(ImmutableMap.copyOf(newConditions));
+    }
+
+    /**
+     * @param other another filter
+     * @return a filter, which accepts only the entries accepted by both filters
+     */
+    public CoordinateFilter and(CoordinateFilter other) {
+        requireNonNull(other, "other must not be null.");
+        if (other.conditions.isEmpty()) {
+            return this;
+        }
+        Map<Class<?>, Predicate<Object>> newConditions = new LinkedHashMap<>(conditions);
+        other.conditions.forEach((dimension, condition) -> newConditions.merge(dimension, condition, Predicate::and));
+        return new CoordinateFilter(ImmutableMap.copyOf(newConditions));
+    }
+
+    /**
+     * Resolves the conditions for the given dimensions.
+     *
+     * @return one condition per dimension ({@code null} for dimensions without condition), or {@code null} if there
+     * is no condition for any of the dimensions
+     */
+    @SuppressWarnings("unchecked")
+    Predicate<Object>[] forDimensions(List<Class<?>> dimensions) {
+        Predicate<Object>[] resolved = new Predicate[dimensions.size()];
+        boolean any = false;
+        for (Map.Entry<Class<?>, Predicate<Object>> condition : conditions.entrySet()) {
+            int exact = dimensions.indexOf(condition.getKey());
+            for (int d = 0; d < dimensions.size(); d++) {
+                boolean applies = exact >= 0 ? d == exact : dimensions.get(d).isAssignableFrom(condition.getKey());
+                if (applies) {
+                    resolved[d] = resolved[d] == null ? condition.getValue() : resolved[d].and(condition.getValue());
+                    any = true;
+                }
+            }
+        }
+        return any ? resolved : null;
+    }
+
+    /**
+     * @return {@code true} if the given coordinate is accepted by the condition for the given dimension
+     */
+    static boolean accepts(Predicate<Object>[] conditions, int dimension, Object coordinate) {
+        return conditions == null || conditions[dimension] == null || conditions[dimension].test(coordinate);
+    }
+
+}
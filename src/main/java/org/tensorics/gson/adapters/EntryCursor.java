@@ -0,0 +1,53 @@
+package org.tensorics.gson.adapters;
+
+import org.tensorics.core.tensor.Position;
+
+import java.io.IOException;
+
+/**
+ * Reads the entries of a tensor from json one by one, independent of the layout in which they are written.
+ *
+ * @param <V> the type of the values of the tensor
+ */
+interface EntryCursor<V> {
+
+    /**
+     * Advances to the next entry.
+     *
+     * @return {@code true} if a new entry was read, {@code false} if the end of the tensor was reached.
+     */
+    boolean next() throws IOException;
+
+    /**
+     * @return the position of the current entry. This is a new object on each call.
+     */
+    Position position();
+
+    /**
+     * @return the value of the current entry
+     */
+    V value();
+
+    /**
+     * @return a cursor without any entries
+     */
+    static <V> EntryCursor<V> empty() {
+        return new EntryCursor<V>() {
+            @Override
+            public boolean next() {
+                return false;
+            }
+
+            @Override
+            public Position position() {
+                throw new IllegalStateException("No current entry.");
+            }
+
+            @Override
+            public V value() {
+                throw new IllegalStateException("No current entry.");
+            }
+        };
+    }
+
+}
@@ -0,0 +1,215 @@
+package org.tensorics.gson.adapters;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.tensorics.core.tensor.Position;
+import org.tensorics.core.tensor.Tensor;
+import org.tensorics.core.tensor.TensorBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes and reads the envelope, which contains the context and/or the size hint of a tensor next to its content:
+ * <pre>
+ * {"@context":{"org.example.Plane":"XY","org.example.Unit":"mm"},"@size":{"entries":1,"coordinates":[1,1]},"@tensor":{"A":{"1":0.11}}}
+ * </pre>
+ * As the types of the context coordinates are not defined by the tensorbacked class, only coordinates of types which
+ * are explicitly registered are written; each one by the name of its registered type. Coordinates of other types are
+ * skipped, on writing as well as on reading. The size hint is described in {@link SizeHint}.
+ * <p>
+ * The envelope is only detected on reading, if context types are registered or size hints are enabled. Otherwise, the
+ * names of its fields are read as normal coordinates. If the envelope is enabled, tensors of which the first top level
+ * coordinate is named like a field of the envelope are always written in an envelope (possibly just
+ * {@code {"@tensor":...}}), so that the coordinate is not mistaken for the envelope.
+ */
+final class EnvelopeJson {
+
+    /**
+     * The names of the fields, which can start the envelope. They are used to detect the envelope on reading.
+     */
+    static final String CONTEXT = "@context";
+    static final String SIZE = "@size";
+    static final String TENSOR = "@tensor";
+
+    private final List<Class<?>> types;
+    private final Map<String, TypeAdapter<Object>> adapters;
+    private final List<Class<?>> dimensions;
+    private final boolean sizeHints;
+
+    /**
+     * @param context    the gson instance, whose adapters are used for the context coordinates
+     * @param types      the types of the context coordinates to write, which might be empty
+     * @param dimensions the dimensions of the tensors, in the order of nesting
+     * @param sizeHints  {@code true} if the size hint shall be written for non-scalar, non-empty tensors
+     */
+    @SuppressWarnings("unchecked")
+    EnvelopeJson(Gson context, List<Class<?>> types, List<Class<?>> dimensions, boolean sizeHints) {
+        this.types = types;
+        this.adapters = new LinkedHashMap<>();
+        for (Class<?> type : types) {
+            adapters.put(type.getName(), (TypeAdapter<Object>) context.getAdapter(TypeToken.get(type)));
+        }
+        this.dimensions = dimensions;
+        this.sizeHints = sizeHints && !dimensions.isEmpty();
+    }
+
+    /**
+     * @return {@code true} if the envelope is enabled and the given name is the first name of an envelope
+     */
+    boolean isStartedBy(String firstName) {
+        return isEnabled() && isReserved(firstName);
+    }
+
+    private static boolean isReserved(String name) {
+        return CONTEXT.equals(name) || SIZE.equals(name) || TENSOR.equals(name);
+    }
+
+    /**
+     * @return {@code true} if the given tensor is written in an envelope, i.e. if it has a non-empty context and
+     * context types are registered, or if it is a non-empty, non-scalar tensor and size hints are enabled, or if the
+     * envelope is enabled and the name of the first top level coordinate is reserved by the envelope
+     */
+    boolean appliesTo(Tensor<?> tensor) {
+        if (contextAppliesTo(tensor.context())) {
+            return true;
+        }
+        if (tensor.asMap().isEmpty() || dimensions.isEmpty()) {
+            return false;
+        }
+        return sizeHints || (isEnabled() && isReserved(String.valueOf(tensor.asMap().keySet().iterator().next()
+                .coordinateFor(dimensions.get(0)))));
+    }
+
+    private boolean contextAppliesTo(Position tensorContext) {
+        if (types.isEmpty()) {
+            return false;
+        }
+        for (Object coordinate : tensorContext.coordinates()) {
+            if (nameOf(coordinate) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code true} if context types are registered
+     */
+    boolean isContextEnabled() {
+        return !types.isEmpty();
+    }
+
+    /**
+     * @return {@code true} if context types are registered or size hints are enabled
+     */
+    boolean isEnabled() {
+        return isContextEnabled() || sizeHints;
+    }
+
+    /**
+     * @return {@code true} if the size hint is written for the given tensor, i.e. if size hints are enabled and the
+     * tensor is non-scalar and non-empty
+     */
+    boolean hasSizeHint(Tensor<?> tensor) {
+        return sizeHints && !tensor.asMap().isEmpty();
+    }
+
+    /**
+     * Writes the beginning of the envelope, up to (and including) the name of the content.
+     *
+     * @param index the index of the tensor, from which the size hint is derived. It is only used (and might be
+     *              {@code null} otherwise), if {@link #hasSizeHint(Tensor)}
+     * @throws IllegalArgumentException if two coordinates of the context are of the same registered type
+     */
+    void writeStart(JsonWriter out, Tensor<?> tensor, NestedIndex index) throws IOException {
+        out.beginObject();
+        if (contextAppliesTo(tensor.context())) {
+            out.name(CONTEXT);
+            writeContext(out, tensor.context());
+        }
+        if (hasSizeHint(tensor)) {
+            out.name(SIZE);
+            SizeHint.of(index).write(out);
+        }
+        out.name(TENSOR);
+    }
+
+    private void writeContext(JsonWriter out, Position tensorContext) throws IOException {
+        Set<String> written = new HashSet<>();
+        out.beginObject();
+        for (Object coordinate : tensorContext.coordinates()) {
+            String name = nameOf(coordinate);
+            if (name == null) {
+                continue;
+            }
+            if (!written.add(name)) {
+                throw new IllegalArgumentException("The context " + tensorContext + " contains more than one "
+                        + "coordinate of the type " + name + ".");
+            }
+            out.name(name);
+            adapters.get(name).write(out, coordinate);
+        }
+        out.endObject();
+    }
+
+    /**
+     * @return the name of the registered type of the given coordinate, or {@code null} if its type is not registered
+     */
+    private String nameOf(Object coordinate) {
+        for (Class<?> type : types) {
+            if (type.isInstance(coordinate)) {
+                return type.getName();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the fields of an envelope, of which the beginning and the first name are already consumed, up to (and
+     * including) the name of the content. The context (if any) is set on the given builder.
+     *
+     * @return the size hint of the envelope, or {@code null} if it has none
+     */
+    SizeHint readAfterFirstName(JsonReader in, String firstName, TensorBuilder<?> builder) throws IOException {
+        SizeHint hint = null;
+        String name = firstName;
+        while (!TENSOR.equals(name)) {
+            if (CONTEXT.equals(name)) {
+                builder.context(readContext(in));
+            } else if (SIZE.equals(name)) {
+                hint = SizeHint.read(in);
+            } else {
+                throw new JsonSyntaxException("Expected '" + TENSOR + "' in the envelope but was '" + name + "' at "
+                        + in.getPath());
+            }
+            name = in.nextName();
+        }
+        return hint;
+    }
+
+    private Position readContext(JsonReader in) throws IOException {
+        List<Object> coordinates = new ArrayList<>();
+        in.beginObject();
+        while (in.hasNext()) {
+            TypeAdapter<Object> adapter = adapters.get(in.nextName());
+            if (adapter == null) {
+                in.skipValue();
+            } else {
+                coordinates.add(adapter.read(in));
+            }
+        }
+        in.endObject();
+        return Position.of(coordinates.toArray());
+    }
+
+}
@@ -0,0 +1,101 @@
+package org.tensorics.gson.adapters;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.io.Resources;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The tensorbacked types generated by the {@link org.tensorics.gson.processor.TensorbackedTypeProcessor}. Up front,
+ * only the names of the registered providers are read. A provider is instantiated on the first lookup of its
+ * tensorbacked class (its name is derived from the name of this class), so that neither the classes of unused providers
+ * are loaded, nor a broken provider (e.g. one compiled against another version of its class) affects the others: such
+ * classes are simply handled by reflection.
+ * <p>
+ * The services files are read through the class loader of this library and through the class loader of each looked up
+ * class (e.g. of a plugin or web application, which might not be visible to the former), once per class loader. The
+ * providers themselves are instantiated reflectively (through their public no-arg constructors).
+ */
+final class GeneratedTypes {
+
+    private static final String SERVICES = "META-INF/services/" + TensorbackedTypeProvider.class.getName();
+    private static final String SUFFIX = "_TensorbackedType";
+
+    private final ClassLoader classLoader;
+    /* Weak keys (compared by identity), so that the names never keep a class loader alive */
+    private final LoadingCache<ClassLoader, Set<String>> providerNames = CacheBuilder.newBuilder()//
+            .weakKeys()//
+            .build(CacheLoader.from(GeneratedTypes::readProviderNames));
+
+    /**
+     * @param classLoader the class loader, through which the services files are read for all classes
+     */
+    GeneratedTypes(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * @return the generated type of the given class, or {@code null} if there is none (or it cannot be loaded)
+     */
+    TensorbackedType<?, ?> typeOf(Class<?> tensorbackedClass) {
+        String providerName = providerNameOf(tensorbackedClass);
+        if (!isRegistered(providerName, classLoader) && !isRegistered(providerName,
+                tensorbackedClass.getClassLoader())) {
+            return null;
+        }
+        try {
+            Class<?> providerClass = Class.forName(providerName, true, tensorbackedClass.getClassLoader());
+            TensorbackedType<?, ?> type = ((TensorbackedTypeProvider) providerClass.getConstructor().newInstance())
+                    .type();
+            /* Names with '_' or '$' might be ambiguous */
+            return type.tensorbackedClass() == tensorbackedClass ? type : null;
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the name of the provider, which the processor generates for the given class: in the same package, named
+     * after the class and its enclosing classes (separated by '_')
+     */
+    static String providerNameOf(Class<?> tensorbackedClass) {
+        return tensorbackedClass.getName().replace('$', '_') + SUFFIX;
+    }
+
+    private boolean isRegistered(String providerName, ClassLoader loader) {
+        return loader != null && providerNames.getUnchecked(loader).contains(providerName);
+    }
+
+    private static Set<String> readProviderNames(ClassLoader classLoader) {
+        Enumeration<URL> files;
+        try {
+            files = classLoader.getResources(SERVICES);
+        } catch (IOException e) {
+            return Collections.emptySet();
+        }
+        Set<String> names = new HashSet<>();
+        while (files.hasMoreElements()) {
+            try {
+                for (String line : Resources.readLines(files.nextElement(), StandardCharsets.UTF_8)) {
+                    int comment = line.indexOf('#');
+                    String name = (comment < 0 ? line : line.substring(0, comment)).trim();
+                    if (!name.isEmpty()) {
+                        names.add(name);
+                    }
+                }
+            } catch (IOException e) {
+                /* The providers of an unreadable file are skipped, like all other broken providers */
+            }
+        }
+        return names;
+    }
+
+}
@@ -0,0 +1,34 @@
+package org.tensorics.gson.adapters;
+
+/**
+ * The possible json structures, into which the content of a (non-scalar) tensorbacked object can be written. On
+ * deserialization, the layout is detected automatically. As the columnar layout is recognized by its reserved first
+ * name, it is however only detected by adapters configured for it; the nested layout is always read.
+ *
+ * @see TensorbackedGsonAdapterFactory.Builder#withLayout(JsonLayout)
+ */
+public enum JsonLayout {
+
+    /**
+     * Nested maps, the first dimension of the tensorbacked being the top level key. E.g.:
+     * <pre>
+     * {"A":{"1":0.11,"2":0.12},"B":{"1":0.21,"2":0.22}}
+     * </pre>
+     * This is the default layout.
+     */
+    NESTED,
+
+    /**
+     * The coordinates of each dimension are written once, followed by a flat array of all the values of the resulting
+     * grid in row-major order (i.e. the last dimension changing fastest). Positions which are not present in the
+     * tensor are written as {@code null}. E.g.:
+     * <pre>
+     * {"@coordinates":[["A","B"],[1,2]],"@values":[0.11,0.12,0.21,null]}
+     * </pre>
+     * This is considerably more compact for dense tensors, but can be much bigger for sparse ones. Therefore, if the
+     * grid contains more than twice as many positions as the tensor contains entries (or would be too big to be
+     * written as one json array), the nested layout is used instead.
+     */
+    COLUMNAR
+
+}
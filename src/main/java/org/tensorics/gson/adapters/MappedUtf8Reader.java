@@ -0,0 +1,86 @@
+package org.tensorics.gson.adapters;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A reader, which decodes a range of a file as UTF-8 directly from memory mapped regions of the file. Compared to a
+ * {@code FileReader}, the bytes are not copied into an intermediate byte buffer. The range is mapped in regions of
+ * limited size, so that also files bigger than 2GB can be read.
+ */
+final class MappedUtf8Reader extends Reader {
+
+    private static final long REGION_SIZE = 256L * 1024 * 1024;
+
+    private final FileChannel file;
+    private final long end;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()//
+            .onMalformedInput(CodingErrorAction.REPLACE)//
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private long regionStart;
+    private ByteBuffer region;
+    private boolean flushed = false;
+
+    /**
+     * @param file  the file to read from. It is not closed by this reader.
+     * @param start the position of the first byte to read
+     * @param end   the position after the last byte to read
+     */
+    MappedUtf8Reader(FileChannel file, long start, long end) throws IOException {
+        if (start < 0 || end < start) {
+            throw new IllegalArgumentException("Invalid range [" + start + ", " + end + ").");
+        }
+        this.file = file;
+        this.end = end;
+        map(start);
+    }
+
+    private void map(long position) throws IOException {
+        regionStart = position;
+        region = file.map(FileChannel.MapMode.READ_ONLY, position, Math.min(REGION_SIZE, end - position));
+    }
+
+    @Override
+    public int read(char[] chars, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        CharBuffer out = CharBuffer.wrap(chars, offset, length);
+        while (true) {
+            boolean lastRegion = regionStart + region.limit() == end;
+            CoderResult result = decoder.decode(region, out, lastRegion);
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (out.position() > offset) {
+                return out.position() - offset;
+            }
+            if (!lastRegion) {
+                /* the remaining bytes (if any) are the start of a character, which continues in the next region */
+                map(regionStart + region.position());
+            } else if (!flushed) {
+                flushed = true;
+                decoder.flush(out);
+                if (out.position() > offset) {
+                    return out.position() - offset;
+                }
+            } else {
+                return -1;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        /* the file is owned by the caller */
+    }
+
+}
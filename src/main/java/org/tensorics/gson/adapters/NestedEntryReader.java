@@ -0,0 +1,243 @@
+package org.tensorics.gson.adapters;
+
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.internal.JsonReaderInternalAccess;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.tensorics.core.tensor.Position;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Reads the entries of a tensor from json, written as nested maps, one leaf at a time. Instead of building the nested
+ * maps, the coordinates of the current path are kept on a stack which is reused for the whole document. Each level can
+ * either be a json object (the keys being the json names), or an array of 2-element arrays, containing the key and the
+ * value (as written by gson for complex map keys).
+ * <p>
+ * Usage:
+ * <pre>
+ *     while (reader.next()) {
+ *         builder.put(reader.position(), reader.value());
+ *     }
+ * </pre>
+ *
+ * @param <V> the type of the values of the tensor
+ */
+final class NestedEntryReader<V> implements EntryCursor<V> {
+
+    private final JsonReader in;
+    private final List<? extends TypeAdapter<?>> keyAdapters;
+    private final TypeAdapter<V> valueAdapter;
+    private final int dimensionCount;
+    private final int startDepth;
+
+    private final Object[] coordinates;
+    private final boolean[] entryArrays;
+    private final Set<Object>[] seenKeys;
+
+    private int depth = -1;
+    private boolean started = false;
+    private boolean finished = false;
+    private String pendingName;
+    private V value;
+    private CoordinateDictionary dictionary;
+    private Predicate<Object>[] conditions;
+    private TopLevelDuplicates<?> duplicates;
+
+    NestedEntryReader(JsonReader in, List<? extends TypeAdapter<?>> keyAdapters, TypeAdapter<V> valueAdapter) {
+        this(in, keyAdapters, valueAdapter, new Object[0]);
+    }
+
+    /**
+     * Creates a reader for a sub-map of a tensor, for which the coordinates of the leading dimensions are already
+     * known.
+     *
+     * @param in           the reader, positioned at the start of the sub-map
+     * @param keyAdapters  the key adapters for all the dimensions of the tensor (including the ones of the prefix)
+     * @param valueAdapter the adapter for the values
+     * @param prefix       the coordinates of the leading dimensions, which are common to all entries of the sub-map
+     */
+    @SuppressWarnings("unchecked")
+    NestedEntryReader(JsonReader in, List<? extends TypeAdapter<?>> keyAdapters, TypeAdapter<V> valueAdapter,
+                      Object... prefix) {
+        if (prefix.length > keyAdapters.size()) {
+            throw new IllegalArgumentException("More prefix coordinates (" + prefix.length + ") than dimensions ("
+                    + keyAdapters.size() + ").");
+        }
+        this.in = in;
+        this.keyAdapters = keyAdapters;
+        this.valueAdapter = valueAdapter;
+        this.dimensionCount = keyAdapters.size();
+        this.startDepth = prefix.length;
+        this.coordinates = new Object[dimensionCount];
+        System.arraycopy(prefix, 0, coordinates, 0, prefix.length);
+        this.entryArrays = new boolean[dimensionCount];
+        this.seenKeys = new Set[dimensionCount];
+    }
+
+    /**
+     * Lets this reader look up the coordinates of json object keys in the given dictionary, instead of converting each
+     * key separately. Keys of entry arrays (complex keys) are always converted by the key adapters.
+     *
+     * @param coordinateDictionary the dictionary to use, which must not be used concurrently by other readers, unless
+     *                             it is thread safe
+     */
+    void internCoordinates(CoordinateDictionary coordinateDictionary) {
+        this.dictionary = coordinateDictionary;
+    }
+
+    /**
+     * Lets this reader skip all the sub-maps and values, of which the key does not fulfill the condition of its
+     * dimension. Skipped parts are not parsed further, but only consumed by {@link JsonReader#skipValue()}.
+     *
+     * @param dimensionConditions one condition per dimension (or {@code null} for accepting all coordinates of a
+     *                            dimension), or {@code null} for accepting all entries
+     */
+    void filter(Predicate<Object>[] dimensionConditions) {
+        this.conditions = dimensionConditions;
+    }
+
+    /**
+     * Lets this reader report each top level key of a json object to the given duplicates, so that the caller can let
+     * repeated keys replace the earlier ones (entry arrays with repeated keys are rejected anyway).
+     *
+     * @param topLevelDuplicates the duplicates, which the caller also uses for putting the entries into the builder
+     */
+    void reportTopLevelKeys(TopLevelDuplicates<?> topLevelDuplicates) {
+        this.duplicates = topLevelDuplicates;
+    }
+
+    /**
+     * Prepares this reader to continue a document, of which the caller already consumed the beginning of the top level
+     * object and (if the object is not empty) the first name. This is required, if the caller had to look at the first
+     * name to detect the layout of the document.
+     *
+     * @param firstName the first name of the top level object, or {@code null} if the object has no entries
+     */
+    void resumeInTopLevelObject(String firstName) {
+        if (started || dimensionCount == startDepth) {
+            throw new IllegalStateException("Can only resume a reader for a non-scalar, which did not start yet.");
+        }
+        started = true;
+        depth = startDepth;
+        entryArrays[depth] = false;
+        pendingName = firstName;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        if (finished) {
+            return false;
+        }
+        if (dimensionCount == startDepth) {
+            /* This is the special case of a scalar (or a single value within a tensor) */
+            value = valueAdapter.read(in);
+            finished = true;
+            return true;
+        }
+        if (!started) {
+            started = true;
+            openLevel(startDepth);
+        }
+
+        while (true) {
+            if (pendingName != null || in.hasNext()) {
+                coordinates[depth] = readKey(depth);
+                if (depth == 0 && duplicates != null && !entryArrays[0]) {
+                    duplicates.onKey(coordinates[0]);
+                }
+                if (!CoordinateFilter.accepts(conditions, depth, coordinates[depth])) {
+                    in.skipValue();
+                    if (entryArrays[depth]) {
+                        in.endArray();
+                    }
+                    continue;
+                }
+                if (depth == dimensionCount - 1) {
+                    value = valueAdapter.read(in);
+                    if (entryArrays[depth]) {
+                        in.endArray();
+                    }
+                    return true;
+                }
+                openLevel(depth + 1);
+            } else {
+                closeLevel();
+                if (depth < startDepth) {
+                    finished = true;
+                    return false;
+                }
+            }
+        }
+    }
+
+    @Override
+    public Position position() {
+        return Position.of(coordinates);
+    }
+
+    @Override
+    public V value() {
+        return value;
+    }
+
+    private void openLevel(int newDepth) throws IOException {
+        depth = newDepth;
+        if (in.peek() == JsonToken.BEGIN_ARRAY) {
+            in.beginArray();
+            entryArrays[depth] = true;
+            if (seenKeys[depth] == null) {
+                seenKeys[depth] = new HashSet<>();
+            } else {
+                seenKeys[depth].clear();
+            }
+        } else {
+            in.beginObject();
+            entryArrays[depth] = false;
+        }
+    }
+
+    private Object readKey(int keyDepth) throws IOException {
+        TypeAdapter<?> keyAdapter = keyAdapters.get(keyDepth);
+        if (pendingName != null) {
+            String name = pendingName;
+            pendingName = null;
+            if (dictionary != null) {
+                return dictionary.coordinateFor(keyDepth, name, keyAdapter);
+            }
+            return keyAdapter.fromJsonTree(new JsonPrimitive(name));
+        }
+        if (entryArrays[keyDepth]) {
+            in.beginArray(); // entry array
+            Object key = keyAdapter.read(in);
+            if (!seenKeys[keyDepth].add(key)) {
+                throw new JsonSyntaxException("duplicate key: " + key);
+            }
+            return key;
+        }
+        if (dictionary != null) {
+            return dictionary.coordinateFor(keyDepth, in.nextName(), keyAdapter);
+        }
+        JsonReaderInternalAccess.INSTANCE.promoteNameToValue(in);
+        return keyAdapter.read(in);
+    }
+
+    private void closeLevel() throws IOException {
+        if (entryArrays[depth]) {
+            in.endArray();
+        } else {
+            in.endObject();
+        }
+        depth--;
+        if (depth >= startDepth && entryArrays[depth]) {
+            in.endArray(); // entry array of the parent
+        }
+    }
+
+}
@@ -0,0 +1,180 @@
+package org.tensorics.gson.adapters;
+
+import org.tensorics.core.lang.Tensorics;
+import org.tensorics.core.tensor.Position;
+import org.tensorics.core.tensor.Tensor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A flat view on the entries of a tensor, ordered such that all the entries sharing the same coordinates in the leading
+ * dimensions are contiguous. This is the same grouping as the nested maps produced by
+ * {@link org.tensorics.gson.util.Nestmaps#nestmap(Tensor, List)}, but without creating any intermediate maps or tensors:
+ * On each level, the groups appear in the order in which their coordinate is first encountered within the parent group
+ * when iterating over the tensor.
+ */
+final class NestedIndex {
+
+    private final int dimensionCount;
+    private final int size;
+    private final Object[] coordinates;
+    private final Object[] values;
+    private final int[] order;
+    private final int[] maxGroupCounts;
+
+    private final int[] scratchOrder;
+    private final int[] scratchOrdinals;
+    private final Map<Object, Integer> scratchFirstSeen = new HashMap<>();
+
+    private NestedIndex(int dimensionCount, int size) {
+        this.dimensionCount = dimensionCount;
+        this.size = size;
+        this.coordinates = new Object[size * dimensionCount];
+        this.values = new Object[size];
+        this.order = new int[size];
+        this.maxGroupCounts = new int[dimensionCount];
+        Arrays.fill(maxGroupCounts, size == 0 ? 0 : 1);
+        this.scratchOrder = new int[size];
+        this.scratchOrdinals = new int[size];
+    }
+
+    /**
+     * Creates the index for the given tensor.
+     *
+     * @param tensor     the tensor to index
+     * @param dimensions the dimensions of the tensor. The first one is the one of the top level group, the second the
+     *                   one of the next level, etc.
+     * @return a new index
+     * @throws IllegalArgumentException if the dimensionality of the tensor does not match the provided dimensions
+     */
+    static NestedIndex of(Tensor<?> tensor, List<Class<?>> dimensions) {
+        int tensorDimensionality = Tensorics.dimensionsOf(tensor).size();
+        if (tensorDimensionality != dimensions.size()) {
+            throw new IllegalArgumentException("Tensor dimensionality (" + tensorDimensionality +
+                    ") and number of provided dimensions (" + dimensions.size() + ": " + dimensions +
+                    ") do not match!");
+        }
+
+        return of(tensor.asMap(), dimensions);
+    }
+
+    /**
+     * Creates the index for the given entries, which all have to contain a coordinate for each of the given
+     * dimensions. The values are not interpreted, so they might also be {@code null}.
+     *
+     * @param entries    the entries to index
+     * @param dimensions the dimensions of the positions, in the order of nesting
+     * @return a new index
+     */
+    static NestedIndex of(Map<Position, ?> entries, List<Class<?>> dimensions) {
+        NestedIndex index = new NestedIndex(dimensions.size(), entries.size());
+        int i = 0;
+        for (Map.Entry<Position, ?> entry : entries.entrySet()) {
+            Position position = entry.getKey();
+            for (int depth = 0; depth < index.dimensionCount; depth++) {
+                index.coordinates[i * index.dimensionCount + depth] = position.coordinateFor(dimensions.get(depth));
+            }
+            index.values[i] = entry.getValue();
+            index.order[i] = i;
+            i++;
+        }
+        index.group(0, index.size, 0);
+        return index;
+    }
+
+    /**
+     * Stable partitioning of the given range by the coordinate at the given depth (a counting sort on the ordinal of
+     * first occurrence), followed by the same for each of the resulting groups on the next depth.
+     */
+    private void group(int from, int to, int depth) {
+        if (depth >= dimensionCount || to - from < 2) {
+            return;
+        }
+
+        scratchFirstSeen.clear();
+        for (int i = from; i < to; i++) {
+            Integer ordinal = scratchFirstSeen.get(coordinate(i, depth));
+            if (ordinal == null) {
+                ordinal = scratchFirstSeen.size();
+                scratchFirstSeen.put(coordinate(i, depth), ordinal);
+            }
+            scratchOrdinals[i] = ordinal;
+        }
+
+        int groupCount = scratchFirstSeen.size();
+        maxGroupCounts[depth] = Math.max(maxGroupCounts[depth], groupCount);
+        if (groupCount == 1) {
+            group(from, to, depth + 1);
+            return;
+        }
+
+        int[] groupStarts = new int[groupCount + 1];
+        for (int i = from; i < to; i++) {
+            groupStarts[scratchOrdinals[i] + 1]++;
+        }
+        for (int g = 0; g < groupCount; g++) {
+            groupStarts[g + 1] += groupStarts[g];
+        }
+        int[] cursors = groupStarts.clone();
+        for (int i = from; i < to; i++) {
+            scratchOrder[from + cursors[scratchOrdinals[i]]++] = order[i];
+        }
+        System.arraycopy(scratchOrder, from, order, from, to - from);
+
+        for (int g = 0; g < groupCount; g++) {
+            group(from + groupStarts[g], from + groupStarts[g + 1], depth + 1);
+        }
+    }
+
+    int dimensionCount() {
+        return dimensionCount;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the biggest amount of groups at the given depth within one group of the parent depth, i.e. the amount of
+     * distinct coordinates at the given depth if the tensor is dense (and a lower bound of it otherwise)
+     */
+    int maxGroupCount(int depth) {
+        return maxGroupCounts[depth];
+    }
+
+    /**
+     * @return the coordinate at the given depth of the i-th entry (in grouped order)
+     */
+    Object coordinate(int i, int depth) {
+        return coordinates[order[i] * dimensionCount + depth];
+    }
+
+    /**
+     * @return the value of the i-th entry (in grouped order)
+     */
+    Object value(int i) {
+        return values[order[i]];
+    }
+
+    /**
+     * Finds the end of the group, which starts at the given index.
+     *
+     * @param from  the first index of the group
+     * @param to    the end (exclusive) of the parent group
+     * @param depth the depth of the group
+     * @return the first index after from (and not bigger than to) which has a different coordinate at the given depth
+     */
+    int groupEnd(int from, int to, int depth) {
+        Object coordinate = coordinate(from, depth);
+        int end = from + 1;
+        while (end < to && Objects.equals(coordinate, coordinate(end, depth))) {
+            end++;
+        }
+        return end;
+    }
+
+}
@@ -0,0 +1,294 @@
+package org.tensorics.gson.adapters;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.TypeAdapter;
+import com.google.gson.internal.Streams;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Writes the content of a {@link NestedIndex} directly as tokens to a {@link JsonWriter}. The produced json is exactly
+ * the one, which the standard gson map adapter would produce for the corresponding nested maps, including the
+ * array-of-entries form for complex map keys if this is enabled on the gson instance.
+ */
+final class NestedJsonWriter {
+
+    private final boolean complexMapKeySerialization;
+    private final List<TypeAdapter<Object>> keyAdapters;
+    private final ValueWriter valueWriter;
+
+    NestedJsonWriter(boolean complexMapKeySerialization, List<TypeAdapter<Object>> keyAdapters,
+                     ValueWriter valueWriter) {
+        this.complexMapKeySerialization = complexMapKeySerialization;
+        this.keyAdapters = keyAdapters;
+        this.valueWriter = valueWriter;
+    }
+
+    /**
+     * Writes the given (non-empty) index, with at least one dimension, as nested json objects.
+     */
+    void write(JsonWriter out, NestedIndex index) throws IOException {
+        writeLevel(out, index, 0, index.size(), 0);
+    }
+
+    /**
+     * Writes the given (non-empty) index, with at least two dimensions, as nested json objects. The sub-maps of each
+     * top level key are rendered concurrently on the given pool, each into its own buffer. The buffers are then
+     * written in the same order as they would be written sequentially, as soon as they are available. The json is the
+     * same as by {@link #write(JsonWriter, NestedIndex)}, as long as the writer is not indenting (pretty printing).
+     *
+     * @param out         the writer to write to. Leniency, html safety and the serialization of nulls are
+     *                    taken over for the buffers. As the buffers are written as raw json values, this must
+     *                    be a streaming writer (e.g. not the one used by {@link com.google.gson.Gson#toJsonTree}).
+     * @param index       the index to write
+     * @param pool        the pool on which to render the sub-maps
+     * @param parallelism the amount of tasks to aim for
+     */
+    void writeParallel(JsonWriter out, NestedIndex index, ForkJoinPool pool, int parallelism) throws IOException {
+        int to = index.size();
+        List<Integer> groupStarts = new ArrayList<>();
+        for (int start = 0; start < to; start = index.groupEnd(start, to, 0)) {
+            groupStarts.add(start);
+        }
+        groupStarts.add(to);
+
+        /* Consecutive groups are batched into tasks of roughly the same amount of entries */
+        long entriesPerTask = Math.max(1, to / Math.max(1, parallelism));
+        List<ForkJoinTask<String[]>> tasks = new ArrayList<>();
+        int firstGroup = 0;
+        while (firstGroup < groupStarts.size() - 1) {
+            int endGroup = firstGroup + 1;
+            while (endGroup < groupStarts.size() - 1
+                    && groupStarts.get(endGroup) - groupStarts.get(firstGroup) < entriesPerTask) {
+                endGroup++;
+            }
+            int taskFirstGroup = firstGroup;
+            int taskEndGroup = endGroup;
+            tasks.add(pool.submit(() -> render(out, index, groupStarts, taskFirstGroup, taskEndGroup)));
+            firstGroup = endGroup;
+        }
+
+        Iterator<ForkJoinTask<String[]>> taskIterator = tasks.iterator();
+        String[][] current = new String[1][];
+        int[] offset = new int[1];
+        writeMap(out, index, 0, to, 0, (o, group, start, end) -> {
+            if (current[0] == null || group - offset[0] >= current[0].length) {
+                offset[0] = current[0] == null ? 0 : offset[0] + current[0].length;
+                current[0] = ParallelTasks.join(taskIterator.next());
+            }
+            o.jsonValue(current[0][group - offset[0]]);
+        });
+    }
+
+    private String[] render(JsonWriter out, NestedIndex index, List<Integer> groupStarts, int firstGroup, int endGroup)
+            throws IOException {
+        String[] chunks = new String[endGroup - firstGroup];
+        for (int g = firstGroup; g < endGroup; g++) {
+            StringWriter buffer = new StringWriter();
+            JsonWriter chunkOut = new JsonWriter(buffer);
+            chunkOut.setLenient(out.isLenient());
+            chunkOut.setHtmlSafe(out.isHtmlSafe());
+            chunkOut.setSerializeNulls(out.getSerializeNulls());
+            writeLevel(chunkOut, index, groupStarts.get(g), groupStarts.get(g + 1), 1);
+            chunkOut.flush();
+            chunks[g - firstGroup] = buffer.toString();
+        }
+        return chunks;
+    }
+
+    /**
+     * Writes the given (non-empty) index, with at least one dimension, as nested json objects. The names are looked up
+     * per dimension in the given maps, instead of being derived from the coordinates. Complex map key serialization
+     * does not apply.
+     */
+    void writeRenamed(JsonWriter out, NestedIndex index, List<? extends Map<Object, String>> names)
+            throws IOException {
+        writeRenamedLevel(out, index, 0, index.size(), 0, names);
+    }
+
+    private void writeRenamedLevel(JsonWriter out, NestedIndex index, int from, int to, int depth,
+                                   List<? extends Map<Object, String>> names) throws IOException {
+        if (depth == index.dimensionCount()) {
+            valueWriter.write(out, index.value(from));
+            return;
+        }
+        Map<Object, String> levelNames = names.get(depth);
+        out.beginObject();
+        for (int start = from; start < to; ) {
+            int end = index.groupEnd(start, to, depth);
+            out.name(levelNames.get(index.coordinate(start, depth)));
+            writeRenamedLevel(out, index, start, end, depth + 1, names);
+            start = end;
+        }
+        out.endObject();
+    }
+
+    /**
+     * Creates a writer for the given (non-empty) index with at least one dimension, which writes one entry at a time.
+     * Like this, the writing can be interrupted after any entry, e.g. to hand out the written bytes. The json is the
+     * same as by {@link #write(JsonWriter, NestedIndex)}. Only the json objects form is supported, so this must not
+     * be used with complex map key serialization.
+     *
+     * @param enveloped {@code true} if the start of an envelope is already written, which is then closed after the
+     *                  last entry
+     */
+    Incremental incremental(JsonWriter out, NestedIndex index, boolean enveloped) {
+        if (complexMapKeySerialization) {
+            throw new IllegalStateException("Incremental writing is not supported for complex map keys.");
+        }
+        return new Incremental(out, index, enveloped);
+    }
+
+    /**
+     * Writes the entries of an index one by one, opening and closing the nested objects as the coordinates change.
+     */
+    final class Incremental {
+
+        private final JsonWriter out;
+        private final NestedIndex index;
+        private final boolean enveloped;
+        private int next = 0;
+
+        private Incremental(JsonWriter out, NestedIndex index, boolean enveloped) {
+            this.out = out;
+            this.index = index;
+            this.enveloped = enveloped;
+        }
+
+        /**
+         * Writes the next entry, and the closing of all the objects (including the envelope) after the last one.
+         *
+         * @return {@code true} if there are more entries to write, {@code false} if the json is complete
+         */
+        boolean writeNext() throws IOException {
+            int dimensionCount = index.dimensionCount();
+            int depth = 0;
+            if (next == 0) {
+                out.beginObject();
+            } else {
+                /* the first dimension in which this entry differs from the previous one */
+                while (Objects.equals(index.coordinate(next, depth), index.coordinate(next - 1, depth))) {
+                    depth++;
+                }
+                for (int d = dimensionCount - 1; d > depth; d--) {
+                    out.endObject();
+                }
+            }
+            for (int d = depth; d < dimensionCount; d++) {
+                out.name(String.valueOf(index.coordinate(next, d)));
+                if (d < dimensionCount - 1) {
+                    out.beginObject();
+                }
+            }
+            valueWriter.write(out, index.value(next));
+
+            next++;
+            if (next < index.size()) {
+                return true;
+            }
+            for (int d = 0; d < dimensionCount; d++) {
+                out.endObject();
+            }
+            if (enveloped) {
+                out.endObject();
+            }
+            return false;
+        }
+    }
+
+    void writeLevel(JsonWriter out, NestedIndex index, int from, int to, int depth) throws IOException {
+        if (depth == index.dimensionCount()) {
+            valueWriter.write(out, index.value(from));
+            return;
+        }
+        writeMap(out, index, from, to, depth, (o, group, start, end) -> writeLevel(o, index, start, end, depth + 1));
+    }
+
+    private void writeMap(JsonWriter out, NestedIndex index, int from, int to, int depth, GroupWriter groupWriter)
+            throws IOException {
+        if (!complexMapKeySerialization) {
+            out.beginObject();
+            int group = 0;
+            for (int start = from; start < to; group++) {
+                int end = index.groupEnd(start, to, depth);
+                out.name(String.valueOf(index.coordinate(start, depth)));
+                groupWriter.write(out, group, start, end);
+                start = end;
+            }
+            out.endObject();
+            return;
+        }
+
+        /* Same as in the gson map adapter: all the keys have to be known to decide on the form */
+        TypeAdapter<Object> keyAdapter = keyAdapters.get(depth);
+        List<JsonElement> keys = new ArrayList<>();
+        boolean hasComplexKeys = false;
+        for (int start = from; start < to; start = index.groupEnd(start, to, depth)) {
+            JsonElement key = keyAdapter.toJsonTree(index.coordinate(start, depth));
+            keys.add(key);
+            hasComplexKeys |= key.isJsonArray() || key.isJsonObject();
+        }
+
+        if (hasComplexKeys) {
+            out.beginArray();
+            int start = from;
+            for (int group = 0; group < keys.size(); group++) {
+                int end = index.groupEnd(start, to, depth);
+                out.beginArray(); // entry array
+                Streams.write(keys.get(group), out);
+                groupWriter.write(out, group, start, end);
+                out.endArray();
+                start = end;
+            }
+            out.endArray();
+        } else {
+            out.beginObject();
+            int start = from;
+            for (int group = 0; group < keys.size(); group++) {
+                int end = index.groupEnd(start, to, depth);
+                out.name(keyToString(keys.get(group)));
+                groupWriter.write(out, group, start, end);
+                start = end;
+            }
+            out.endObject();
+        }
+    }
+
+    /**
+     * Writes the value for one key of a map.
+     */
+    @FunctionalInterface
+    private interface GroupWriter {
+        void write(JsonWriter out, int group, int from, int to) throws IOException;
+    }
+
+    private static String keyToString(JsonElement keyElement) {
+        if (keyElement.isJsonPrimitive()) {
+            JsonPrimitive primitive = keyElement.getAsJsonPrimitive();
+            if (primitive.isNumber()) {
+                return String.valueOf(primitive.getAsNumber());
+            } else if (primitive.isBoolean()) {
+                return Boolean.toString(primitive.getAsBoolean());
+            } else if (primitive.isString()) {
+                return primitive.getAsString();
+            } else {
+                throw new AssertionError();
+            }
+        } else if (keyElement.isJsonNull()) {
+            return "null";
+        } else {
+            throw new AssertionError();
+        }
+    }
+
+}
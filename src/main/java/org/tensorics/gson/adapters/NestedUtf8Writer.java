@@ -0,0 +1,100 @@
+package org.tensorics.gson.adapters;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes the content of a {@link NestedIndex} as nested json objects directly as UTF-8 bytes. The json names (i.e. the
+ * coordinates, including quotes, escaping and the colon) are encoded once and then cached as bytes, so that
+ * coordinates repeated under many parent keys (or in many tensors) are not encoded again. Within one write, the names
+ * are looked up in a plain hash map, so that the shared cache is only consulted once per distinct coordinate. The
+ * values are written by the {@link ValueWriter}: boxed primitives directly as bytes, all others by their gson adapters
+ * through a (lenient) json writer on the same {@link Utf8BufferWriter}. Their json depends on these adapters (which
+ * might be custom ones), so they are not cached. Numeric coordinates however are cached as names, as all others.
+ * <p>
+ * The produced json is the same as the one of the {@link NestedJsonWriter}, as long as complex map key serialization
+ * and pretty printing are disabled.
+ */
+final class NestedUtf8Writer {
+
+    /**
+     * The maximum amount of names to keep encoded. The least recently used ones are evicted first.
+     */
+    private static final int MAX_CACHED_NAMES = 4 * 1024;
+
+    private final ValueWriter valueWriter;
+    private final boolean htmlSafe;
+    /* Bounded, and the names are released under memory pressure: the adapter might live as long as the application */
+    private final Cache<Object, byte[]> encodedNames = CacheBuilder.newBuilder()//
+            .maximumSize(MAX_CACHED_NAMES)//
+            .softValues()//
+            .build();
+
+    NestedUtf8Writer(ValueWriter valueWriter, boolean htmlSafe) {
+        this.valueWriter = valueWriter;
+        this.htmlSafe = htmlSafe;
+    }
+
+    /**
+     * Writes the given (non-empty) index with at least one dimension.
+     *
+     * @param out      the writer for the structure of the nested objects
+     * @param valueOut a lenient json writer on the same output, for writing the values
+     * @param index    the index to write
+     */
+    void write(Utf8BufferWriter out, JsonWriter valueOut, NestedIndex index) throws IOException {
+        writeLevel(out, valueOut, index, 0, index.size(), 0, new HashMap<>());
+    }
+
+    private void writeLevel(Utf8BufferWriter out, JsonWriter valueOut, NestedIndex index, int from, int to, int depth,
+                            Map<Object, byte[]> writeNames) throws IOException {
+        if (depth == index.dimensionCount()) {
+            valueWriter.write(out, valueOut, index.value(from));
+            return;
+        }
+        out.writeByte('{');
+        for (int start = from; start < to; ) {
+            if (start != from) {
+                out.writeByte(',');
+            }
+            int end = index.groupEnd(start, to, depth);
+            out.writeBytes(encodedName(index.coordinate(start, depth), writeNames));
+            writeLevel(out, valueOut, index, start, end, depth + 1, writeNames);
+            start = end;
+        }
+        out.writeByte('}');
+    }
+
+    /**
+     * @param writeNames the names already looked up within the current write
+     */
+    private byte[] encodedName(Object coordinate, Map<Object, byte[]> writeNames) throws IOException {
+        byte[] encoded = writeNames.get(coordinate);
+        if (encoded != null) {
+            return encoded;
+        }
+        encoded = encodedNames.getIfPresent(coordinate);
+        if (encoded != null) {
+            writeNames.put(coordinate, encoded);
+            return encoded;
+        }
+        /* Same as the gson map adapter, for keys which are json primitives */
+        StringWriter name = new StringWriter();
+        JsonWriter nameWriter = new JsonWriter(name);
+        nameWriter.setHtmlSafe(htmlSafe);
+        nameWriter.value(String.valueOf(coordinate));
+        name.write(':');
+        encoded = name.toString().getBytes(StandardCharsets.UTF_8);
+        encodedNames.put(coordinate, encoded);
+        writeNames.put(coordinate, encoded);
+        return encoded;
+    }
+
+}
@@ -0,0 +1,276 @@
+package org.tensorics.gson.adapters;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.internal.JsonReaderInternalAccess;
+import com.google.gson.internal.bind.JsonTreeReader;
+import com.google.gson.internal.bind.TypeAdapters;
+import com.google.gson.stream.JsonReader;
+import org.tensorics.core.tensor.Position;
+import org.tensorics.core.tensor.TensorBuilder;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Predicate;
+
+/**
+ * Reads tensors in nested layout, by first scanning the top level entries and then reading the sub-maps concurrently.
+ * From a json reader, each sub-map is buffered as a json tree, so the tokenizing still happens on the calling thread
+ * and only the conversion of the coordinates and values is concurrent. Sub-maps which were only skipped (e.g. byte
+ * ranges of a file found by the {@link TopLevelIndex}) are also parsed concurrently. The entries of each task are
+ * collected separately and finally put into the builder in the order of the document.
+ * <p>
+ * The buffers are sized by the size hint of the document, if there is one. Otherwise, the amount of entries of each
+ * task is estimated by the amount of entries of the first top level sub-map (if it is buffered as a json tree).
+ *
+ * @param <V> the type of the values of the tensor
+ */
+final class ParallelNestedReader<V> {
+
+    /**
+     * The json of a top level sub-map, which is parsed by the task reading it.
+     */
+    interface SubMap {
+
+        /**
+         * @return a new reader, positioned at the start of the sub-map
+         */
+        JsonReader open() throws IOException;
+    }
+
+    private static final double UNKNOWN_ENTRIES_PER_SUB_MAP = -1;
+
+    private final List<? extends TypeAdapter<?>> keyAdapters;
+    private final TypeAdapter<V> valueAdapter;
+    private final CoordinateDictionary dictionary;
+
+    /**
+     * @param keyAdapters  the key adapters for all the dimensions
+     * @param valueAdapter the adapter for the values
+     * @param dictionary   the dictionary for interning the coordinates, or {@code null} if they shall not be interned
+     */
+    ParallelNestedReader(List<? extends TypeAdapter<?>> keyAdapters, TypeAdapter<V> valueAdapter,
+                         CoordinateDictionary dictionary) {
+        if (keyAdapters.isEmpty()) {
+            throw new IllegalArgumentException("Scalars cannot be read in parallel.");
+        }
+        this.keyAdapters = keyAdapters;
+        this.valueAdapter = valueAdapter;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Reads the remainder of a top level json object, of which the caller already consumed the beginning and the first
+     * name.
+     *
+     * @param firstName the first name of the object, or {@code null} if the object has no entries
+     * @param hint      the size hint of the document, or {@code null} if there is none
+     */
+    void readObjectRemainder(JsonReader in, String firstName, TensorBuilder<V> builder, ForkJoinPool pool,
+                             int minTopLevelEntries, Predicate<Object>[] conditions, SizeHint hint)
+            throws IOException {
+        TypeAdapter<?> keyAdapter = keyAdapters.get(0);
+        /* Same as for nested maps: for json objects, a later key replaces an earlier one */
+        Map<Object, JsonElement> subMaps = newSubMaps(hint);
+        CoordinateDictionary readDictionary = dictionary == null ? null : dictionary.forRead(hint);
+        if (firstName != null) {
+            Object firstKey = readDictionary == null ? keyAdapter.fromJsonTree(new JsonPrimitive(firstName))
+                    : readDictionary.coordinateFor(0, firstName, keyAdapter);
+            putOrSkip(subMaps, firstKey, in, conditions);
+            while (in.hasNext()) {
+                Object key;
+                if (readDictionary == null) {
+                    JsonReaderInternalAccess.INSTANCE.promoteNameToValue(in);
+                    key = keyAdapter.read(in);
+                } else {
+                    key = readDictionary.coordinateFor(0, in.nextName(), keyAdapter);
+                }
+                putOrSkip(subMaps, key, in, conditions);
+            }
+        }
+        in.endObject();
+        readTrees(subMaps, builder, pool, minTopLevelEntries, conditions, hint);
+    }
+
+    /**
+     * Reads a top level array of entry arrays (the form used for complex map keys).
+     *
+     * @param hint the size hint of the document, or {@code null} if there is none
+     */
+    void readEntryArrays(JsonReader in, TensorBuilder<V> builder, ForkJoinPool pool, int minTopLevelEntries,
+                         Predicate<Object>[] conditions, SizeHint hint) throws IOException {
+        TypeAdapter<?> keyAdapter = keyAdapters.get(0);
+        Map<Object, JsonElement> subMaps = newSubMaps(hint);
+        Set<Object> seenKeys = hint == null || hint.coordinates(0) < 0 ? Sets.newHashSet()
+                : Sets.newHashSetWithExpectedSize(hint.coordinates(0));
+        in.beginArray();
+        while (in.hasNext()) {
+            in.beginArray(); // entry array
+            Object key = keyAdapter.read(in);
+            if (!seenKeys.add(key)) {
+                throw new JsonSyntaxException("duplicate key: " + key);
+            }
+            putOrSkip(subMaps, key, in, conditions);
+            in.endArray();
+        }
+        in.endArray();
+        readTrees(subMaps, builder, pool, minTopLevelEntries, conditions, hint);
+    }
+
+    private static Map<Object, JsonElement> newSubMaps(SizeHint hint) {
+        return hint == null || hint.coordinates(0) < 0 ? Maps.newLinkedHashMap()
+                : Maps.newLinkedHashMapWithExpectedSize(hint.coordinates(0));
+    }
+
+    /**
+     * Buffers the value of the given top level key, if it matches the filter. Otherwise, the value is skipped.
+     */
+    private static void putOrSkip(Map<Object, JsonElement> subMaps, Object key, JsonReader in,
+                                  Predicate<Object>[] conditions) throws IOException {
+        if (CoordinateFilter.accepts(conditions, 0, key)) {
+            subMaps.put(key, TypeAdapters.JSON_ELEMENT.read(in));
+        } else {
+            subMaps.remove(key); // a later key replaces an earlier one, also if it is filtered out
+            in.skipValue();
+        }
+    }
+
+    /**
+     * Reads the given top level sub-maps, which were skipped without being parsed, so that also the parsing happens
+     * concurrently.
+     *
+     * @param subMaps the sub-maps by their top level coordinate, in the order of the document. The ones not matching
+     *                the filter are not read at all.
+     */
+    void readSubMaps(Map<Object, SubMap> subMaps, TensorBuilder<V> builder, ForkJoinPool pool, int minTopLevelEntries,
+                     Predicate<Object>[] conditions) throws IOException {
+        List<Map.Entry<Object, SubMap>> entries = new ArrayList<>(subMaps.size());
+        for (Map.Entry<Object, SubMap> subMap : subMaps.entrySet()) {
+            if (CoordinateFilter.accepts(conditions, 0, subMap.getKey())) {
+                entries.add(subMap);
+            }
+        }
+        read(entries, builder, pool, minTopLevelEntries, conditions, null, UNKNOWN_ENTRIES_PER_SUB_MAP);
+    }
+
+    private void readTrees(Map<Object, JsonElement> subMaps, TensorBuilder<V> builder, ForkJoinPool pool,
+                           int minTopLevelEntries, Predicate<Object>[] conditions, SizeHint hint) throws IOException {
+        if (subMaps.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Object, SubMap>> entries = new ArrayList<>(subMaps.size());
+        for (Map.Entry<Object, JsonElement> subMap : subMaps.entrySet()) {
+            JsonElement tree = subMap.getValue();
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(subMap.getKey(), () -> new JsonTreeReader(tree)));
+        }
+        double entriesPerSubMap = hint != null && hint.entries() >= 0 ? (double) hint.entries() / entries.size()
+                : countEntries(subMaps.values().iterator().next(), keyAdapters.size() - 1);
+        read(entries, builder, pool, minTopLevelEntries, conditions, hint, entriesPerSubMap);
+    }
+
+    /**
+     * @param entriesPerSubMap the expected amount of entries per sub-map, or {@link #UNKNOWN_ENTRIES_PER_SUB_MAP}
+     */
+    private void read(List<Map.Entry<Object, SubMap>> entries, TensorBuilder<V> builder, ForkJoinPool pool,
+                      int minTopLevelEntries, Predicate<Object>[] conditions, SizeHint hint, double entriesPerSubMap)
+            throws IOException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        if (entries.size() < minTopLevelEntries) {
+            new Chunk(entries, conditions, hint, entriesPerSubMap).putInto(builder);
+            return;
+        }
+
+        int taskCount = Math.max(1, Math.min(entries.size(), pool.getParallelism() * 4));
+        List<ForkJoinTask<Chunk>> tasks = new ArrayList<>(taskCount);
+        for (int t = 0; t < taskCount; t++) {
+            List<Map.Entry<Object, SubMap>> taskEntries = entries.subList(entries.size() * t / taskCount,
+                    entries.size() * (t + 1) / taskCount);
+            tasks.add(pool.submit(() -> new Chunk(taskEntries, conditions, hint, entriesPerSubMap)));
+        }
+        for (ForkJoinTask<Chunk> task : tasks) {
+            ParallelTasks.join(task).putInto(builder);
+        }
+    }
+
+    /**
+     * Counts the entries of a buffered sub-map, without converting any key or value.
+     *
+     * @param levels the amount of nested levels of the given element
+     */
+    private static int countEntries(JsonElement element, int levels) {
+        if (levels == 0) {
+            return 1;
+        }
+        int count = 0;
+        if (element.isJsonObject()) {
+            for (Map.Entry<String, JsonElement> child : element.getAsJsonObject().entrySet()) {
+                count += countEntries(child.getValue(), levels - 1);
+            }
+        } else if (element.isJsonArray()) {
+            for (JsonElement entryArray : element.getAsJsonArray()) {
+                JsonArray entry = entryArray.isJsonArray() ? entryArray.getAsJsonArray() : null;
+                count += entry == null || entry.size() != 2 ? 0 : countEntries(entry.get(1), levels - 1);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The entries read from some of the sub-maps.
+     */
+    private final class Chunk {
+
+        private final List<Position> positions;
+        private final List<V> values;
+
+        /**
+         * @param entriesPerSubMap the expected amount of entries per sub-map, or
+         *                         {@link #UNKNOWN_ENTRIES_PER_SUB_MAP}
+         */
+        private Chunk(List<Map.Entry<Object, SubMap>> subMaps, Predicate<Object>[] conditions, SizeHint hint,
+                      double entriesPerSubMap) throws IOException {
+            if (entriesPerSubMap < 0) {
+                this.positions = new ArrayList<>();
+                this.values = new ArrayList<>();
+            } else {
+                int expectedEntries = (int) Math.min(SizeHint.MAX_EXPECTED_SIZE, entriesPerSubMap * subMaps.size());
+                this.positions = new ArrayList<>(expectedEntries);
+                this.values = new ArrayList<>(expectedEntries);
+            }
+            /* Unless the dictionary is shared (and therefore thread safe), each task uses its own one */
+            CoordinateDictionary chunkDictionary = dictionary == null ? null : dictionary.forRead(hint);
+            for (Map.Entry<Object, SubMap> subMap : subMaps) {
+                NestedEntryReader<V> reader = new NestedEntryReader<>(subMap.getValue().open(), keyAdapters,
+                        valueAdapter, subMap.getKey());
+                if (chunkDictionary != null) {
+                    reader.internCoordinates(chunkDictionary);
+                }
+                reader.filter(conditions);
+                while (reader.next()) {
+                    positions.add(reader.position());
+                    values.add(reader.value());
+                }
+            }
+        }
+
+        private void putInto(TensorBuilder<V> builder) {
+            for (int i = 0; i < positions.size(); i++) {
+                builder.put(positions.get(i), values.get(i));
+            }
+        }
+    }
+
+}
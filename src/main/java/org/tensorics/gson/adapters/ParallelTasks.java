@@ -0,0 +1,40 @@
+package org.tensorics.gson.adapters;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Utilities for the tasks used for parallel serialization and deserialization.
+ */
+final class ParallelTasks {
+
+    private ParallelTasks() {
+        throw new UnsupportedOperationException("Only static methods");
+    }
+
+    /**
+     * Waits for the result of the given task. Exceptions thrown by the task are rethrown as they are (if possible),
+     * instead of being wrapped.
+     */
+    static <T> T join(ForkJoinTask<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a parallel task.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+}
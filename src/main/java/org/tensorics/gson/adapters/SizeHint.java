@@ -0,0 +1,112 @@
+package org.tensorics.gson.adapters;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The expected size of a serialized tensor: the amount of entries and the amount of distinct coordinates per dimension
+ * (in the order of nesting). It is written into the envelope, so that a reader can size its structures up front:
+ * <pre>
+ * {"@size":{"entries":4,"coordinates":[2,2]},"@tensor":{"A":{"1":0.11,"2":0.12},"B":{"1":0.21,"2":0.22}}}
+ * </pre>
+ * A hint is only an estimation: readers must cope with documents containing more (or less) entries than hinted. Unknown
+ * values are {@code -1}. Instances are immutable.
+ */
+final class SizeHint {
+
+    /**
+     * The upper bound of the sizes read from a document. As the hint is not trusted, bigger values are reduced to
+     * this, so that a wrong hint cannot make a reader allocate huge structures up front.
+     */
+    static final int MAX_EXPECTED_SIZE = 1 << 20;
+
+    private static final String ENTRIES = "entries";
+    private static final String COORDINATES = "coordinates";
+
+    private final int entries;
+    private final int[] coordinates;
+
+    private SizeHint(int entries, int[] coordinates) {
+        this.entries = entries;
+        this.coordinates = coordinates;
+    }
+
+    /**
+     * Derives the hint from the groups of the given index, which is built for writing anyway, so that the coordinates
+     * do not have to be collected once more. The amounts of entries and of top level coordinates are exact; on the
+     * deeper levels, the biggest amount of coordinates within one parent group is used, which is exact for dense
+     * tensors and a lower bound for sparse ones.
+     *
+     * @param index the index of the tensor to write
+     * @return the size of the indexed entries
+     */
+    static SizeHint of(NestedIndex index) {
+        int[] coordinates = new int[index.dimensionCount()];
+        for (int d = 0; d < coordinates.length; d++) {
+            coordinates[d] = index.maxGroupCount(d);
+        }
+        return new SizeHint(index.size(), coordinates);
+    }
+
+    /**
+     * @return the expected amount of entries, or {@code -1} if unknown
+     */
+    int entries() {
+        return entries;
+    }
+
+    /**
+     * @return the expected amount of distinct coordinates of the given dimension, or {@code -1} if unknown
+     */
+    int coordinates(int dimension) {
+        return dimension < coordinates.length ? coordinates[dimension] : -1;
+    }
+
+    void write(JsonWriter out) throws IOException {
+        out.beginObject();
+        out.name(ENTRIES).value(entries);
+        out.name(COORDINATES);
+        out.beginArray();
+        for (int count : coordinates) {
+            out.value(count);
+        }
+        out.endArray();
+        out.endObject();
+    }
+
+    /**
+     * Reads a hint as written by {@link #write(JsonWriter)}. Unknown names are skipped and missing values are treated
+     * as unknown, so that the hint can be extended later on. Negative values are treated as unknown as well, values
+     * bigger than {@link #MAX_EXPECTED_SIZE} are reduced to it.
+     */
+    static SizeHint read(JsonReader in) throws IOException {
+        int entries = -1;
+        List<Integer> coordinates = new ArrayList<>();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (ENTRIES.equals(name)) {
+                entries = bounded(in.nextInt());
+            } else if (COORDINATES.equals(name)) {
+                in.beginArray();
+                while (in.hasNext()) {
+                    coordinates.add(bounded(in.nextInt()));
+                }
+                in.endArray();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return new SizeHint(entries, coordinates.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private static int bounded(int size) {
+        return Math.max(-1, Math.min(size, MAX_EXPECTED_SIZE));
+    }
+
+}
@@ -0,0 +1,114 @@
+package org.tensorics.gson.adapters;
+
+/**
+ * The statistics of one serialization or deserialization of a tensorbacked object, as reported to a
+ * {@link TensorbackedAdapterListener}. The durations are wall clock times of the phases of the operation:
+ * <ul>
+ * <li>for writing: the grouping of the entries into the nested structure ({@link #indexNanos()}) and the writing
+ * of the json ({@link #jsonNanos()})</li>
+ * <li>for reading: the parsing of the json, including putting the entries into a tensor builder
+ * ({@link #jsonNanos()}), and the building of the tensor and the tensorbacked object ({@link #buildNanos()})</li>
+ * </ul>
+ * Phases which do not apply to an operation have a duration of 0.
+ */
+public final class TensorbackedAdapterEvent {
+
+    /**
+     * The kind of operation, which was performed.
+     */
+    public enum Operation {
+        WRITE,
+        READ
+    }
+
+    private final Operation operation;
+    private final Class<?> tensorbackedClass;
+    private final int entryCount;
+    private final int dimensionCount;
+    private final long indexNanos;
+    private final long jsonNanos;
+    private final long buildNanos;
+    private final long encodedSize;
+
+    private TensorbackedAdapterEvent(Operation operation, Class<?> tensorbackedClass, int entryCount,
+                                     int dimensionCount, long indexNanos, long jsonNanos, long buildNanos,
+                                     long encodedSize) {
+        this.operation = operation;
+        this.tensorbackedClass = tensorbackedClass;
+        this.entryCount = entryCount;
+        this.dimensionCount = dimensionCount;
+        this.indexNanos = indexNanos;
+        this.jsonNanos = jsonNanos;
+        this.buildNanos = buildNanos;
+        this.encodedSize = encodedSize;
+    }
+
+    static TensorbackedAdapterEvent write(Class<?> tensorbackedClass, int entryCount, int dimensionCount,
+                                          long indexNanos, long jsonNanos, long encodedSize) {
+        return new TensorbackedAdapterEvent(Operation.WRITE, tensorbackedClass, entryCount, dimensionCount,
+                indexNanos, jsonNanos, 0L, encodedSize);
+    }
+
+    static TensorbackedAdapterEvent read(Class<?> tensorbackedClass, int entryCount, int dimensionCount,
+                                         long jsonNanos, long buildNanos) {
+        return new TensorbackedAdapterEvent(Operation.READ, tensorbackedClass, entryCount, dimensionCount, 0L,
+                jsonNanos, buildNanos, -1L);
+    }
+
+    public Operation operation() {
+        return operation;
+    }
+
+    public Class<?> tensorbackedClass() {
+        return tensorbackedClass;
+    }
+
+    /**
+     * @return the amount of entries written or read
+     */
+    public int entryCount() {
+        return entryCount;
+    }
+
+    /**
+     * @return the amount of dimensions, which is the nesting depth of the json in nested layout
+     */
+    public int dimensionCount() {
+        return dimensionCount;
+    }
+
+    public long indexNanos() {
+        return indexNanos;
+    }
+
+    public long jsonNanos() {
+        return jsonNanos;
+    }
+
+    public long buildNanos() {
+        return buildNanos;
+    }
+
+    /**
+     * @return the size of the written json in bytes, or -1 if it is not known. The size is only known when writing
+     * through a {@link TensorbackedByteWriter}.
+     */
+    public long encodedSize() {
+        return encodedSize;
+    }
+
+    @Override
+    public String toString() {
+        return "TensorbackedAdapterEvent{" +
+                "operation=" + operation +
+                ", tensorbackedClass=" + tensorbackedClass.getName() +
+                ", entryCount=" + entryCount +
+                ", dimensionCount=" + dimensionCount +
+                ", indexNanos=" + indexNanos +
+                ", jsonNanos=" + jsonNanos +
+                ", buildNanos=" + buildNanos +
+                ", encodedSize=" + encodedSize +
+                '}';
+    }
+
+}
@@ -0,0 +1,22 @@
+package org.tensorics.gson.adapters;
+
+/**
+ * Receives statistics about each serialization and deserialization of a tensorbacked object, e.g. for exporting them
+ * to a metrics library. A listener can be registered on a factory by
+ * {@link TensorbackedGsonAdapterFactory.Builder#withListener(TensorbackedAdapterListener)}.
+ * <p>
+ * The listener is called synchronously on the thread which reads or writes, after the operation succeeded, so it
+ * should return quickly and must be thread safe. Exceptions thrown by the listener are propagated to the caller of
+ * gson.
+ */
+@FunctionalInterface
+public interface TensorbackedAdapterListener {
+
+    /**
+     * Called after a tensorbacked object was written or read.
+     *
+     * @param event the statistics of the operation
+     */
+    void onEvent(TensorbackedAdapterEvent event);
+
+}
@@ -0,0 +1,182 @@
+package org.tensorics.gson.adapters;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.tensorics.core.tensorbacked.Tensorbacked;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads a sequence of tensorbacked objects of the same class, as written by a {@link TensorbackedBatchWriter}. The
+ * elements are parsed one by one, only when the next one is requested, so that arbitrarily long sequences can be
+ * consumed in constant memory and at the pace of the consumer.
+ * <p>
+ * Example:
+ * <pre>
+ * try (TensorbackedBatchReader&lt;Double, MyTensorbacked&gt; batch = TensorbackedBatchReader.open(gson,
+ *         MyTensorbacked.class, reader, BatchFormat.NDJSON, true)) {
+ *     batch.forEachRemaining(this::process);
+ * }
+ * </pre>
+ * Dictionary elements are only detected if a shared dictionary is expected (as a coordinate could be named like the
+ * field of a dictionary element otherwise). Besides that, the elements can be in any layout understood by the
+ * {@link TensorbackedGsonAdapter}. Errors while reading are thrown as unchecked gson exceptions
+ * ({@link JsonIOException} for io problems). Instances are not thread safe.
+ *
+ * @param <V>  the type of the values of the tensorbacked
+ * @param <TB> the type of the tensorbacked
+ */
+public final class TensorbackedBatchReader<V, TB extends Tensorbacked<V>> implements Iterator<TB>, Closeable {
+
+    private final TensorbackedGsonAdapter<V, TB> adapter;
+    private final JsonReader in;
+    private final BatchFormat format;
+    private final BatchDictionary dictionary;
+
+    private boolean started = false;
+    private boolean finished = false;
+    private TB next;
+
+    private TensorbackedBatchReader(TensorbackedGsonAdapter<V, TB> adapter, JsonReader in, BatchFormat format,
+                                    BatchDictionary dictionary) {
+        this.adapter = adapter;
+        this.in = in;
+        this.format = format;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Starts reading a batch from the given reader. The adapter registered in the given gson for the tensorbacked
+     * class is used, if it is a {@link TensorbackedGsonAdapter}. Otherwise, a new adapter is created.
+     *
+     * @param gson              the gson instance to use
+     * @param tensorbackedClass the class of the tensorbacked objects to read
+     * @param reader            the reader to read from
+     * @param format            the framing of the elements
+     * @param sharedDictionary  {@code true} if the batch was written with a shared dictionary (see
+     *                          {@link TensorbackedBatchWriter#open(Gson, Class, Writer, BatchFormat, boolean)})
+     * @return a new batch reader, which has to be closed after usage
+     */
+    @SuppressWarnings("unchecked")
+    public static <V, TB extends Tensorbacked<V>> TensorbackedBatchReader<V, TB> open(Gson gson,
+                                                                                    Class<TB> tensorbackedClass,
+                                                                                    Reader reader,
+                                                                                    BatchFormat format,
+                                                                                    boolean sharedDictionary) {
+        requireNonNull(gson, "gson must not be null.");
+        requireNonNull(tensorbackedClass, "tensorbackedClass must not be null.");
+        requireNonNull(reader, "reader must not be null.");
+        requireNonNull(format, "format must not be null.");
+        TypeAdapter<TB> registered = gson.getAdapter(tensorbackedClass);
+        TensorbackedGsonAdapter<V, TB> adapter = registered instanceof TensorbackedGsonAdapter ?
+                (TensorbackedGsonAdapter<V, TB>) registered : new TensorbackedGsonAdapter<>(gson, tensorbackedClass);
+        JsonReader in = gson.newJsonReader(reader);
+        in.setLenient(true); /* as gson does it while deserializing; also allows several top level values */
+        BatchDictionary dictionary = sharedDictionary && !adapter.dimensions().isEmpty() ?
+                new BatchDictionary(adapter.dimensions(), adapter.keyAdapters()) : null;
+        return new TensorbackedBatchReader<>(adapter, in, format, dictionary);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            try {
+                next = readNext();
+            } catch (IOException e) {
+                throw new JsonIOException(e);
+            }
+            finished = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public TB next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        TB result = next;
+        next = null;
+        return result;
+    }
+
+    /**
+     * @return a sequential stream of the remaining tensorbacked objects, which reads the json lazily
+     */
+    public Stream<TB> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private TB readNext() throws IOException {
+        while (hasMoreElements()) {
+            JsonToken peek = in.peek();
+            if (peek == JsonToken.NULL) {
+                in.nextNull(); // an empty tensorbacked
+                return adapter.build(EntryCursor.empty());
+            }
+            if (peek != JsonToken.BEGIN_OBJECT || adapter.dimensions().isEmpty()) {
+                return adapter.read(in);
+            }
+            in.beginObject();
+            String firstName = in.hasNext() ? in.nextName() : null;
+            if (dictionary != null && BatchDictionary.DICTIONARY.equals(firstName)) {
+                dictionary.readAfterName(in);
+                continue;
+            }
+            if (dictionary != null && dictionary.isUsed()) {
+                return adapter.build(adapter.renamedCursorAfterFirstName(in, firstName,
+                        dictionary.ordinalAdapters()));
+            }
+            return adapter.readAfterFirstName(in, firstName);
+        }
+        return null;
+    }
+
+    private boolean hasMoreElements() throws IOException {
+        if (format == BatchFormat.NDJSON) {
+            if (!started) {
+                started = true;
+                try {
+                    in.peek();
+                } catch (EOFException e) {
+                    return false; // an empty document (same as gson treats it)
+                }
+            }
+            return in.peek() != JsonToken.END_DOCUMENT;
+        }
+        if (!started) {
+            started = true;
+            in.beginArray();
+        }
+        if (in.hasNext()) {
+            return true;
+        }
+        in.endArray();
+        return false;
+    }
+
+    /**
+     * Closes the underlying reader.
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+}
@@ -0,0 +1,160 @@
+package org.tensorics.gson.adapters;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import org.tensorics.core.tensorbacked.Tensorbacked;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Writes a sequence of tensorbacked objects of the same class to one stream, either as newline delimited json or as
+ * one json array (see {@link BatchFormat}). The adapter and the json writer are resolved only once for the whole
+ * sequence.
+ * <p>
+ * Optionally, the coordinates can be written only once for the whole batch: each distinct coordinate is then
+ * announced once in a dictionary element and the tensorbacked objects are written in nested layout, with the numbers
+ * of the coordinates as names. This considerably reduces the size of sequences, in which the same coordinates occur
+ * again and again (e.g. snapshots of the same quantities over time). Example:
+ * <pre>
+ * try (TensorbackedBatchWriter&lt;Double, MyTensorbacked&gt; batch = TensorbackedBatchWriter.open(gson,
+ *         MyTensorbacked.class, writer, BatchFormat.NDJSON, true)) {
+ *     for (MyTensorbacked snapshot : snapshots) {
+ *         batch.write(snapshot);
+ *     }
+ * }
+ * </pre>
+ * The batch can be read by a {@link TensorbackedBatchReader}. Instances are not thread safe.
+ *
+ * @param <V>  the type of the values of the tensorbacked
+ * @param <TB> the type of the tensorbacked
+ */
+public final class TensorbackedBatchWriter<V, TB extends Tensorbacked<V>> implements Closeable, Flushable {
+
+    private final TensorbackedGsonAdapter<V, TB> adapter;
+    private final Writer writer;
+    private final JsonWriter out;
+    private final BatchFormat format;
+    private final BatchDictionary dictionary;
+    private boolean closed = false;
+
+    private TensorbackedBatchWriter(TensorbackedGsonAdapter<V, TB> adapter, Writer writer, JsonWriter out,
+                                    BatchFormat format, BatchDictionary dictionary) {
+        this.adapter = adapter;
+        this.writer = writer;
+        this.out = out;
+        this.format = format;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Starts a batch on the given writer. The adapter registered in the given gson for the tensorbacked class is used,
+     * if it is a {@link TensorbackedGsonAdapter}. Otherwise, a new adapter is created.
+     *
+     * @param gson              the gson instance to use
+     * @param tensorbackedClass the class of the tensorbacked objects to write
+     * @param writer            the writer to write to
+     * @param format            the framing of the elements
+     * @param sharedDictionary  if {@code true}, the coordinates are written once for the whole batch (this does not
+     *                          apply to scalars). The elements are then always written in plain nested layout, so
+     *                          this cannot be combined with the columnar layout or the envelope (context types or
+     *                          size hints) of the factory.
+     * @return a new batch writer, which has to be closed to complete the batch
+     * @throws IllegalArgumentException if a shared dictionary is requested, but the adapter of the tensorbacked class
+     *                                  writes columnar layout or the envelope
+     */
+    @SuppressWarnings("unchecked")
+    public static <V, TB extends Tensorbacked<V>> TensorbackedBatchWriter<V, TB> open(Gson gson,
+                                                                                    Class<TB> tensorbackedClass,
+                                                                                    Writer writer, BatchFormat format,
+                                                                                    boolean sharedDictionary)
+            throws IOException {
+        requireNonNull(gson, "gson must not be null.");
+        requireNonNull(tensorbackedClass, "tensorbackedClass must not be null.");
+        requireNonNull(writer, "writer must not be null.");
+        requireNonNull(format, "format must not be null.");
+        TypeAdapter<TB> registered = gson.getAdapter(tensorbackedClass);
+        TensorbackedGsonAdapter<V, TB> adapter = registered instanceof TensorbackedGsonAdapter ?
+                (TensorbackedGsonAdapter<V, TB>) registered : new TensorbackedGsonAdapter<>(gson, tensorbackedClass);
+        boolean dictionaryApplies = sharedDictionary && !adapter.dimensions().isEmpty();
+        if (dictionaryApplies && !adapter.writesPlainNested()) {
+            throw new IllegalArgumentException("A shared dictionary can only be used for the nested layout without "
+                    + "context types and size hints, but the adapter of " + tensorbackedClass.getName()
+                    + " writes the columnar layout or the envelope.");
+        }
+
+        JsonWriter out = gson.newJsonWriter(writer);
+        out.setLenient(true); /* as gson does it while serializing; also allows several top level values */
+        if (format == BatchFormat.NDJSON) {
+            out.setIndent("");
+        } else {
+            out.beginArray();
+        }
+        BatchDictionary dictionary = dictionaryApplies ?
+                new BatchDictionary(adapter.dimensions(), adapter.keyAdapters()) : null;
+        return new TensorbackedBatchWriter<>(adapter, writer, out, format, dictionary);
+    }
+
+    /**
+     * Appends the given tensorbacked to the batch. If a shared dictionary is used, a dictionary element is written
+     * before, if the tensorbacked contains new coordinates.
+     *
+     * @param value the tensorbacked to write
+     */
+    public void write(TB value) throws IOException {
+        requireNonNull(value, "value must not be null.");
+        if (closed) {
+            throw new IllegalStateException("The batch is already closed.");
+        }
+        if (dictionary == null) {
+            adapter.write(out, value);
+            endElement();
+            return;
+        }
+        List<List<Object>> added = dictionary.add(value.tensor().asMap().keySet());
+        if (added != null) {
+            dictionary.write(out, added);
+            endElement();
+        }
+        adapter.writeRenamed(out, value, dictionary.names());
+        endElement();
+    }
+
+    private void endElement() throws IOException {
+        if (format == BatchFormat.NDJSON) {
+            out.flush();
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * Flushes the written elements to the underlying writer.
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Completes the batch (closing the json array, if applicable) and closes the underlying writer.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (format == BatchFormat.JSON_ARRAY) {
+            out.endArray();
+        }
+        out.flush();
+        writer.close(); // closing the json writer would fail for an empty NDJSON batch
+    }
+
+}
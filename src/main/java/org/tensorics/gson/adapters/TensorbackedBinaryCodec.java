@@ -0,0 +1,468 @@
+package org.tensorics.gson.adapters;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import org.tensorics.core.lang.Tensorics;
+import org.tensorics.core.tensor.Position;
+import org.tensorics.core.tensor.TensorBuilder;
+import org.tensorics.core.tensorbacked.Tensorbacked;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A compact binary encoding of tensorbacked objects, as an alternative to json for big numeric tensors. The same
+ * dimension metadata is used as by the {@link TensorbackedGsonAdapter}, so the same tensorbacked classes can be
+ * transferred in either format. Coordinates and non-numeric values are encoded with the adapters of the given gson
+ * instance, so custom adapters are respected.
+ * <p>
+ * The format is:
+ * <pre>
+ * magic ("TBB"), version (1 byte), flags (1 byte, bit 0: deflate compressed body)
+ * body:
+ *   dimension count (varint)
+ *   per dimension: coordinate count (varint), per coordinate: length (varint) + utf-8 json of the coordinate
+ *   entry count (varint)
+ *   value encoding (1 byte: double, long, int or json)
+ *   per entry: the index of the coordinate within the dictionary of each dimension (varint)
+ *   per entry: the value (raw IEEE-754/two's complement big endian, or length (varint) + utf-8 json)
+ * </pre>
+ * The sizes read from the data are not trusted: structures are only presized up to a bound and grow as the data is
+ * actually read, so that corrupt or malicious data cannot make the decoder allocate huge arrays up front.
+ * <p>
+ * Instances are immutable and thread safe.
+ *
+ * @param <V>  the type of the values of the tensorbacked
+ * @param <TB> the type of the tensorbacked
+ */
+public final class TensorbackedBinaryCodec<V, TB extends Tensorbacked<V>> {
+
+    private static final byte[] MAGIC = {'T', 'B', 'B'};
+    private static final int VERSION = 1;
+    private static final int FLAG_DEFLATE = 1;
+
+    private static final int VALUES_DOUBLE = 0;
+    private static final int VALUES_LONG = 1;
+    private static final int VALUES_INT = 2;
+    private static final int VALUES_JSON = 3;
+
+    /**
+     * The maximum amount of bytes of a string, which is read into one array allocated up front. Longer strings are
+     * read in chunks of this size.
+     */
+    private static final int MAX_PREALLOCATED_BYTES = 8192;
+
+    private final TensorbackedDescriptor<V, TB> descriptor;
+    private final List<TypeAdapter<Object>> keyAdapters;
+    private final TypeAdapter<V> valueAdapter;
+    private final int valueEncoding;
+    private final boolean compressed;
+
+    private TensorbackedBinaryCodec(TensorbackedDescriptor<V, TB> descriptor, List<TypeAdapter<Object>> keyAdapters,
+                                    TypeAdapter<V> valueAdapter, boolean compressed) {
+        this.descriptor = descriptor;
+        this.keyAdapters = keyAdapters;
+        this.valueAdapter = valueAdapter;
+        this.valueEncoding = valueEncodingFor(descriptor.valueType());
+        this.compressed = compressed;
+    }
+
+    /**
+     * Creates a codec for the given tensorbacked class, without compression. The metadata of the class is taken from
+     * the adapter registered in the given gson, if it is a {@link TensorbackedGsonAdapter} (so that types registered
+     * on its factory, or generated at compile time, are respected). Otherwise, it is determined by reflection.
+     *
+     * @param gson              the gson instance, whose adapters are used for the coordinates and non-numeric values
+     * @param tensorbackedClass the class of the tensorbacked objects to encode and decode
+     * @return a new codec
+     */
+    @SuppressWarnings("unchecked")
+    public static <V, TB extends Tensorbacked<V>> TensorbackedBinaryCodec<V, TB> of(Gson gson,
+                                                                                   Class<TB> tensorbackedClass) {
+        requireNonNull(gson, "gson must not be null.");
+        requireNonNull(tensorbackedClass, "tensorbackedClass must not be null.");
+        TypeAdapter<TB> registered = gson.getAdapter(tensorbackedClass);
+        TensorbackedDescriptor<V, TB> descriptor = registered instanceof TensorbackedGsonAdapter ?
+                ((TensorbackedGsonAdapter<V, TB>) registered).descriptor() : TensorbackedDescriptor.of(tensorbackedClass);
+        List<TypeAdapter<Object>> keyAdapters = new ArrayList<>();
+        for (Class<?> dimension : descriptor.dimensions()) {
+            keyAdapters.add((TypeAdapter<Object>) gson.getAdapter(TypeToken.get(dimension)));
+        }
+        TypeAdapter<V> valueAdapter = gson.getAdapter(TypeToken.get(descriptor.valueType()));
+        return new TensorbackedBinaryCodec<>(descriptor, keyAdapters, valueAdapter, false);
+    }
+
+    /**
+     * Returns a codec, which compresses the body of the encoded tensors with deflate. This usually pays off for
+     * sparse tensors and for values with few distinct bit patterns. Decoding detects compressed input automatically,
+     * independent of this setting.
+     *
+     * @param compressed whether to compress on encoding
+     * @return a codec with the given setting
+     */
+    public TensorbackedBinaryCodec<V, TB> withCompression(boolean compressed) {
+        return new TensorbackedBinaryCodec<>(descriptor, keyAdapters, valueAdapter, compressed);
+    }
+
+    /**
+     * Encodes the given tensorbacked into a new buffer.
+     *
+     * @param value the tensorbacked to encode
+     * @return a buffer, positioned at the start of the encoded data
+     */
+    public ByteBuffer encode(TB value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            encode(value, out);
+        } catch (IOException e) {
+            throw new JsonIOException(e); // cannot happen for an in-memory stream
+        }
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    /**
+     * Encodes the given tensorbacked to the given stream. The stream is flushed, but not closed.
+     *
+     * @param value the tensorbacked to encode
+     * @param out   the stream to write to
+     */
+    public void encode(TB value, OutputStream out) throws IOException {
+        requireNonNull(value, "value must not be null.");
+        requireNonNull(out, "out must not be null.");
+        out.write(MAGIC);
+        out.write(VERSION);
+        out.write(compressed ? FLAG_DEFLATE : 0);
+        if (compressed) {
+            Deflater deflater = new Deflater();
+            try {
+                DeflaterOutputStream deflaterOut = new DeflaterOutputStream(out, deflater, 8192);
+                writeBody(deflaterOut, value);
+                deflaterOut.finish();
+            } finally {
+                deflater.end();
+            }
+        } else {
+            writeBody(out, value);
+        }
+        out.flush();
+    }
+
+    private void writeBody(OutputStream stream, TB value) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 8192));
+        List<Class<?>> dimensions = descriptor.dimensions();
+        int dimensionCount = dimensions.size();
+        List<Map<Object, Integer>> dictionaries = new ArrayList<>(dimensionCount);
+        for (int d = 0; d < dimensionCount; d++) {
+            dictionaries.add(new LinkedHashMap<>());
+        }
+
+        Map<Position, V> entries = value.tensor().asMap();
+        int[] ordinals = new int[entries.size() * dimensionCount];
+        List<V> values = new ArrayList<>(entries.size());
+        int i = 0;
+        for (Map.Entry<Position, V> entry : entries.entrySet()) {
+            for (int d = 0; d < dimensionCount; d++) {
+                Map<Object, Integer> dictionary = dictionaries.get(d);
+                Object coordinate = entry.getKey().coordinateFor(dimensions.get(d));
+                Integer ordinal = dictionary.get(coordinate);
+                if (ordinal == null) {
+                    ordinal = dictionary.size();
+                    dictionary.put(coordinate, ordinal);
+                }
+                ordinals[i * dimensionCount + d] = ordinal;
+            }
+            values.add(entry.getValue());
+            i++;
+        }
+
+        writeVarint(out, dimensionCount);
+        for (int d = 0; d < dimensionCount; d++) {
+            TypeAdapter<Object> keyAdapter = keyAdapters.get(d);
+            writeVarint(out, dictionaries.get(d).size());
+            for (Object coordinate : dictionaries.get(d).keySet()) {
+                writeUtf8(out, keyAdapter.toJson(coordinate));
+            }
+        }
+        writeVarint(out, values.size());
+        out.writeByte(valueEncoding);
+        for (int ordinal : ordinals) {
+            writeVarint(out, ordinal);
+        }
+        for (V v : values) {
+            writeValue(out, v);
+        }
+        out.flush();
+    }
+
+    private void writeValue(DataOutput out, V value) throws IOException {
+        switch (valueEncoding) {
+            case VALUES_DOUBLE:
+                out.writeDouble((Double) value);
+                break;
+            case VALUES_LONG:
+                out.writeLong((Long) value);
+                break;
+            case VALUES_INT:
+                out.writeInt((Integer) value);
+                break;
+            default:
+                writeUtf8(out, valueAdapter.toJson(value));
+        }
+    }
+
+    /**
+     * Decodes a tensorbacked from the given buffer, starting at its current position. After decoding, the buffer is
+     * positioned after the encoded data (if it was not compressed).
+     *
+     * @param buffer the buffer to read from
+     * @return the decoded tensorbacked
+     * @throws JsonSyntaxException if the data is not a valid encoding of this tensorbacked class
+     */
+    public TB decode(ByteBuffer buffer) {
+        requireNonNull(buffer, "buffer must not be null.");
+        try {
+            return decode(new ByteBufferInputStream(buffer));
+        } catch (EOFException e) {
+            throw new JsonSyntaxException("Unexpected end of the encoded data", e);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+    }
+
+    /**
+     * Decodes a tensorbacked from the given stream. The data is read in small pieces (e.g. single bytes for the
+     * indices), so a stream which is neither buffered nor in memory (a {@link BufferedInputStream} or a
+     * {@link ByteArrayInputStream}) is wrapped into a buffered one, which might read it further than the end of the
+     * encoded data. From buffered or in memory streams, exactly the encoded bytes are consumed for uncompressed data, so
+     * several tensorbacked objects can follow each other. Compressed data is always read in blocks, so the stream might
+     * be read further than the end of the encoded data.
+     *
+     * @param in the stream to read from. It is not closed.
+     * @return the decoded tensorbacked
+     * @throws JsonSyntaxException if the data is not a valid encoding of this tensorbacked class
+     */
+    public TB decode(InputStream in) throws IOException {
+        requireNonNull(in, "in must not be null.");
+        InputStream source = isBuffered(in) ? in : new BufferedInputStream(in);
+        DataInputStream header = new DataInputStream(source);
+        byte[] magic = new byte[MAGIC.length];
+        header.readFully(magic);
+        for (int b = 0; b < MAGIC.length; b++) {
+            if (magic[b] != MAGIC[b]) {
+                throw new JsonSyntaxException("Not an encoded tensorbacked (wrong magic bytes).");
+            }
+        }
+        int version = header.readUnsignedByte();
+        if (version != VERSION) {
+            throw new JsonSyntaxException("Unsupported version " + version + " of encoded tensorbacked.");
+        }
+        int flags = header.readUnsignedByte();
+        if ((flags & FLAG_DEFLATE) != 0) {
+            Inflater inflater = new Inflater();
+            try {
+                /* The inflater stream decompresses on each read, so single bytes are taken from a buffer */
+                return readBody(new DataInputStream(new BufferedInputStream(new InflaterInputStream(source,
+                        inflater))));
+            } finally {
+                inflater.end();
+            }
+        }
+        return readBody(header);
+    }
+
+    private static boolean isBuffered(InputStream in) {
+        return in instanceof BufferedInputStream || in instanceof ByteArrayInputStream
+                || in instanceof ByteBufferInputStream;
+    }
+
+    private TB readBody(DataInput in) throws IOException {
+        List<Class<?>> dimensions = descriptor.dimensions();
+        int dimensionCount = readVarint(in);
+        if (dimensionCount != dimensions.size()) {
+            throw new JsonSyntaxException("Expected " + dimensions.size() + " dimensions, but the data has "
+                    + dimensionCount + ".");
+        }
+        List<List<Object>> dictionaries = new ArrayList<>(dimensionCount);
+        for (int d = 0; d < dimensionCount; d++) {
+            TypeAdapter<Object> keyAdapter = keyAdapters.get(d);
+            int coordinateCount = readVarint(in);
+            List<Object> dictionary = new ArrayList<>(bounded(coordinateCount));
+            for (int c = 0; c < coordinateCount; c++) {
+                dictionary.add(keyAdapter.fromJson(readUtf8(in)));
+            }
+            dictionaries.add(dictionary);
+        }
+
+        int entryCount = readVarint(in);
+        int encoding = in.readUnsignedByte();
+        if (encoding != valueEncoding) {
+            throw new JsonSyntaxException("Value encoding " + encoding + " does not match the value type "
+                    + descriptor.valueType() + ".");
+        }
+
+        List<Position> positions = new ArrayList<>(bounded(entryCount));
+        Object[] coordinates = new Object[dimensionCount];
+        for (int e = 0; e < entryCount; e++) {
+            for (int d = 0; d < dimensionCount; d++) {
+                List<Object> dictionary = dictionaries.get(d);
+                int ordinal = readVarint(in);
+                if (ordinal >= dictionary.size()) {
+                    throw new JsonSyntaxException("Coordinate index " + ordinal + " out of range for dimension "
+                            + dimensions.get(d) + ".");
+                }
+                coordinates[d] = dictionary.get(ordinal);
+            }
+            positions.add(Position.of(coordinates));
+        }
+
+        TensorBuilder<V> builder = Tensorics.builder(dimensions);
+        for (Position position : positions) {
+            builder.put(position, readValue(in));
+        }
+        return descriptor.createBackedBy(builder.build());
+    }
+
+    @SuppressWarnings("unchecked")
+    private V readValue(DataInput in) throws IOException {
+        switch (valueEncoding) {
+            case VALUES_DOUBLE:
+                return (V) Double.valueOf(in.readDouble());
+            case VALUES_LONG:
+                return (V) Long.valueOf(in.readLong());
+            case VALUES_INT:
+                return (V) Integer.valueOf(in.readInt());
+            default:
+                return valueAdapter.fromJson(readUtf8(in));
+        }
+    }
+
+    private static int valueEncodingFor(Class<?> valueType) {
+        if (Double.class.equals(valueType)) {
+            return VALUES_DOUBLE;
+        } else if (Long.class.equals(valueType)) {
+            return VALUES_LONG;
+        } else if (Integer.class.equals(valueType)) {
+            return VALUES_INT;
+        }
+        return VALUES_JSON;
+    }
+
+    private static void writeUtf8(DataOutput out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readUtf8(DataInput in) throws IOException {
+        int length = readVarint(in);
+        if (length <= MAX_PREALLOCATED_BYTES) {
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        /* The length is not trusted, so the bytes are only buffered as far as they are actually available */
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(MAX_PREALLOCATED_BYTES);
+        byte[] chunk = new byte[MAX_PREALLOCATED_BYTES];
+        for (int remaining = length; remaining > 0; ) {
+            int count = Math.min(remaining, chunk.length);
+            in.readFully(chunk, 0, count);
+            bytes.write(chunk, 0, count);
+            remaining -= count;
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the given size read from the data, reduced to the maximum size to allocate up front
+     */
+    private static int bounded(int size) {
+        return Math.min(size, SizeHint.MAX_EXPECTED_SIZE);
+    }
+
+    /**
+     * Writes a non-negative int with 7 bits per byte, the highest bit telling if more bytes follow.
+     */
+    static void writeVarint(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarint(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    break;
+                }
+                return value;
+            }
+        }
+        throw new JsonSyntaxException("Malformed varint in encoded tensorbacked.");
+    }
+
+    /**
+     * A minimal stream over the remaining bytes of a buffer, which advances the position of the buffer.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+}
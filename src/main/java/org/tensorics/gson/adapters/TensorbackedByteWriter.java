@@ -0,0 +1,247 @@
+package org.tensorics.gson.adapters;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import org.tensorics.core.tensorbacked.Tensorbacked;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Serializes tensorbacked objects to json, encoding it directly as UTF-8 into byte buffers, which are then written to a
+ * channel or directly into a memory mapped file. Compared to {@code gson.toJson(...)}, this avoids the intermediate
+ * strings and the copying into byte arrays. For the nested layout, the encoded json names are cached as bytes and
+ * reused for all the tensors written by this writer.
+ * <p>
+ * The json is the same as the one written by gson (with the same gson instance). With pretty printing, the tensorbacked
+ * objects are written through the json writer of gson as usual, without the fast paths (and parallel writes). Instances are thread safe; the
+ * buffers for writing to channels are taken from a {@link ByteBufferPool}, so that they are reused between the
+ * serializations.
+ *
+ * @param <V>  the type of the values of the tensorbacked
+ * @param <TB> the type of the tensorbacked
+ */
+public final class TensorbackedByteWriter<V, TB extends Tensorbacked<V>> {
+
+    /**
+     * The size of the regions of a file, which are mapped at once.
+     */
+    private static final int MAPPED_REGION_SIZE = 4 * 1024 * 1024;
+
+    private final Gson gson;
+    private final TypeAdapter<TB> adapter;
+    private final ByteBufferPool pool;
+    private final boolean compact;
+
+    private TensorbackedByteWriter(Gson gson, TypeAdapter<TB> adapter, ByteBufferPool pool) {
+        this.gson = gson;
+        this.adapter = adapter;
+        this.pool = pool;
+        this.compact = createsCompactWriters(gson);
+    }
+
+    /**
+     * Creates a writer with its own default buffer pool.
+     *
+     * @see #of(Gson, Class, ByteBufferPool)
+     */
+    public static <V, TB extends Tensorbacked<V>> TensorbackedByteWriter<V, TB> of(Gson gson,
+                                                                                 Class<TB> tensorbackedClass) {
+        return of(gson, tensorbackedClass, ByteBufferPool.createDefault());
+    }
+
+    /**
+     * Creates a writer for the given tensorbacked class, which uses the adapter registered in the given gson.
+     *
+     * @param gson              the gson instance to use
+     * @param tensorbackedClass the class of the tensorbacked objects to write
+     * @param pool              the pool from which to take the buffers for writing to channels
+     * @return a new writer
+     */
+    public static <V, TB extends Tensorbacked<V>> TensorbackedByteWriter<V, TB> of(Gson gson,
+                                                                                 Class<TB> tensorbackedClass,
+                                                                                 ByteBufferPool pool) {
+        requireNonNull(gson, "gson must not be null.");
+        requireNonNull(tensorbackedClass, "tensorbackedClass must not be null.");
+        requireNonNull(pool, "pool must not be null.");
+        return new TensorbackedByteWriter<>(gson, gson.getAdapter(tensorbackedClass), pool);
+    }
+
+    /**
+     * @return {@code true} if the json writers created by the given gson do not indent, i.e. pretty printing is not
+     * enabled. Only then, the fast paths of the {@link TensorbackedGsonAdapter} can be used for the writers, which
+     * are created the same way for writing the tensorbacked objects.
+     */
+    private static boolean createsCompactWriters(Gson gson) {
+        StringWriter probe = new StringWriter();
+        try {
+            JsonWriter out = gson.newJsonWriter(probe);
+            out.beginArray();
+            out.value(0);
+            out.endArray();
+            out.flush();
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+        return probe.toString().equals("[0]");
+    }
+
+    /**
+     * Writes the given tensorbacked as json to the given channel. The channel is not closed. If the serialization
+     * fails, the partial json of the current buffer is not written (the buffers, which were full before, are already
+     * written however).
+     *
+     * @param value   the tensorbacked to write
+     * @param channel the channel to write to, which has to be in blocking mode. For non-blocking io, see
+     *                {@link TensorbackedChunkEncoder}.
+     * @throws IllegalBlockingModeException if the channel is in non-blocking mode
+     */
+    public void write(TB value, WritableByteChannel channel) throws IOException {
+        requireNonNull(channel, "channel must not be null.");
+        /* Writing a full buffer would otherwise spin, as long as the channel accepts no bytes */
+        if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+            throw new IllegalBlockingModeException();
+        }
+        write(value, new ChannelSink(channel), pool.acquire());
+    }
+
+    /**
+     * Writes the given tensorbacked as json into the given file, starting at the given position. The bytes are
+     * encoded directly into mapped regions of the file. If the file was extended for mapping, it is truncated to the
+     * end of the written json afterwards (or to the given position, if the writing fails). The mapped regions are only
+     * released when they are garbage collected, so on platforms which do not allow to truncate a file while regions of
+     * it are mapped (e.g. Windows), the truncation might fail.
+     *
+     * @param value    the tensorbacked to write
+     * @param file     the file to write to, which has to be opened for reading and writing
+     * @param position the position in the file, at which the json shall start
+     * @return the amount of bytes written
+     */
+    public long write(TB value, FileChannel file, long position) throws IOException {
+        requireNonNull(file, "file must not be null.");
+        MappedFileSink sink = new MappedFileSink(file, position);
+        write(value, sink, sink.map());
+        return sink.position - position;
+    }
+
+    private void write(TB value, Utf8BufferWriter.Sink sink, ByteBuffer initialBuffer) throws IOException {
+        Utf8BufferWriter bytesOut = new Utf8BufferWriter(sink, initialBuffer);
+        boolean complete = false;
+        try {
+            requireNonNull(value, "value must not be null.");
+            JsonWriter out = gson.newJsonWriter(bytesOut);
+            out.setLenient(true); /* as gson does it while serializing; also allows writing the values one by one */
+            if (adapter instanceof TensorbackedGsonAdapter) {
+                ((TensorbackedGsonAdapter<V, TB>) adapter).write(out, bytesOut, compact, value);
+            } else {
+                adapter.write(out, value);
+            }
+            complete = true;
+        } finally {
+            /* After an error, the partial json in the current buffer is discarded instead of written */
+            if (complete) {
+                bytesOut.close();
+            } else {
+                bytesOut.abort();
+            }
+        }
+    }
+
+    /**
+     * Writes the full buffers to a channel and reuses the same buffer for the whole document.
+     */
+    private final class ChannelSink implements Utf8BufferWriter.Sink {
+
+        private final WritableByteChannel channel;
+
+        private ChannelSink(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public ByteBuffer drain(ByteBuffer buffer) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+            return buffer;
+        }
+
+        @Override
+        public void finish(ByteBuffer buffer) throws IOException {
+            try {
+                drain(buffer);
+            } finally {
+                pool.release(buffer);
+            }
+        }
+
+        @Override
+        public void abort(ByteBuffer buffer) {
+            buffer.clear();
+            pool.release(buffer);
+        }
+    }
+
+    /**
+     * Maps consecutive regions of a file, into which the bytes are encoded directly. The regions are unmapped when
+     * they are garbage collected, as there is no public api to unmap them explicitly.
+     */
+    private static final class MappedFileSink implements Utf8BufferWriter.Sink {
+
+        private final FileChannel file;
+        private final long initialSize;
+        private final long startPosition;
+        private long position;
+
+        private MappedFileSink(FileChannel file, long position) throws IOException {
+            this.file = file;
+            this.initialSize = file.size();
+            this.startPosition = position;
+            this.position = position;
+        }
+
+        private MappedByteBuffer map() throws IOException {
+            return file.map(FileChannel.MapMode.READ_WRITE, position, MAPPED_REGION_SIZE);
+        }
+
+        @Override
+        public ByteBuffer drain(ByteBuffer buffer) throws IOException {
+            position += buffer.position();
+            return map();
+        }
+
+        @Override
+        public void finish(ByteBuffer buffer) throws IOException {
+            position += buffer.position();
+            truncateTo(position);
+        }
+
+        /**
+         * Only removes the extension of the file: the bytes written into the existing part of the file cannot be
+         * restored.
+         */
+        @Override
+        public void abort(ByteBuffer buffer) throws IOException {
+            truncateTo(startPosition);
+        }
+
+        private void truncateTo(long end) throws IOException {
+            if (file.size() > Math.max(initialSize, end)) {
+                file.truncate(Math.max(initialSize, end));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+package org.tensorics.gson.adapters;
+
+/**
+ * A snapshot of the statistics of the cache, in which a {@link TensorbackedGsonAdapterFactory} keeps the metadata of
+ * the tensorbacked classes (see {@link TensorbackedGsonAdapterFactory#cacheStats()}). Instances are immutable.
+ */
+public final class TensorbackedCacheStats {
+
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long size;
+
+    TensorbackedCacheStats(long hitCount, long missCount, long evictionCount, long size) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.size = size;
+    }
+
+    /**
+     * @return the amount of lookups, which found the metadata in the cache
+     */
+    public long hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the amount of lookups, for which the metadata had to be determined (by reflection, if it was not
+     * registered)
+     */
+    public long missCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the amount of entries, which were removed automatically: because the cache was full, or because they
+     * were not used by any adapter anymore and were garbage collected
+     */
+    public long evictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return the approximate amount of entries currently in the cache
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return the ratio of hits to all lookups, or {@code 1.0} if there was no lookup yet
+     */
+    public double hitRate() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 1.0 : (double) hitCount / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "TensorbackedCacheStats{hitCount=" + hitCount + ", missCount=" + missCount + ", evictionCount="
+                + evictionCount + ", size=" + size + '}';
+    }
+
+}
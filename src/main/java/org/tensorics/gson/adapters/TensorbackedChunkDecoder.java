@@ -0,0 +1,248 @@
+package org.tensorics.gson.adapters;
+
+import com.google.gson.Gson;
+import org.tensorics.core.tensorbacked.Tensorbacked;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.LongConsumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Decodes a tensorbacked object from UTF-8 json, which arrives in chunks of bytes (e.g. from non-blocking io). The
+ * chunks are handed over by {@link #onNext(ByteBuffer)}, which never blocks, and the result is provided as a
+ * {@link CompletableFuture}. The methods are named as the ones of a reactive subscriber, so that the decoder can
+ * directly back one (e.g. a {@code Flow.Subscriber}).
+ * <p>
+ * The decoder buffers at most the given capacity of chunks, which are not parsed yet. Initially, up to this amount of
+ * chunks may be handed over; afterwards, the decoder signals its demand for one more chunk to the given callback
+ * each time it starts parsing a chunk (as {@code Flow.Subscription.request(long)} does). Handing over more chunks than
+ * requested fails the result (and {@link #onNext(ByteBuffer)} throws).
+ * <p>
+ * Example:
+ * <pre>
+ * public void onSubscribe(Flow.Subscription subscription) {
+ *     decoder = TensorbackedChunkDecoder.start(gson, MyTensorbacked.class, executor, 16, subscription::request);
+ *     decoder.result().thenAccept(this::process);
+ *     subscription.request(16);
+ * }
+ *
+ * public void onNext(ByteBuffer chunk) {
+ *     decoder.onNext(chunk);
+ * }
+ * ...
+ * </pre>
+ * The json is parsed by the adapter registered in gson, while the chunks arrive. As gson parses only from blocking
+ * readers, the parsing runs on the given executor and <b>blocks one of its threads for the whole lifetime of each
+ * document</b>: while waiting for the next chunk, the thread is parked, until the document is complete (or failed or
+ * cancelled). So a bounded executor can decode at most as many documents concurrently as it has threads; further
+ * documents wait in its queue without signalling any demand, and a slow upstream can starve all the other tasks of the
+ * executor. Use an unbounded executor (e.g. {@code Executors.newCachedThreadPool()}) or, on Java 21 and later, one
+ * thread per document on virtual threads ({@code Executors.newVirtualThreadPerTaskExecutor()}), but not the common
+ * fork join pool or the event loop. The demand is also signalled from the parsing thread.
+ *
+ * @param <V>  the type of the values of the tensorbacked
+ * @param <TB> the type of the tensorbacked
+ */
+public final class TensorbackedChunkDecoder<V, TB extends Tensorbacked<V>> {
+
+    /**
+     * Marks the end of the chunks. It is compared by identity.
+     */
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final int capacity;
+    /* One more than the capacity, so that the end always fits */
+    private final BlockingQueue<ByteBuffer> chunks;
+    private final LongConsumer demand;
+    private final CompletableFuture<TB> result = new CompletableFuture<>();
+    private volatile Throwable upstreamError;
+    private volatile boolean ended = false;
+
+    private TensorbackedChunkDecoder(int capacity, LongConsumer demand) {
+        this.capacity = capacity;
+        this.chunks = new ArrayBlockingQueue<>(capacity + 1);
+        this.demand = demand;
+        /* unblock the parsing, if the result is cancelled (or completed otherwise) by the user */
+        result.whenComplete((value, error) -> chunks.offer(END));
+    }
+
+    /**
+     * Creates a decoder and starts parsing on the given executor, waiting for the first chunk.
+     *
+     * @param gson              the gson instance to use
+     * @param tensorbackedClass the class of the tensorbacked to decode
+     * @param executor          the executor, on which to parse. One of its threads is blocked until the document is
+     *                          complete, so it should be unbounded (or use virtual threads)
+     * @param capacity          the maximum amount of chunks, which are handed over but not parsed yet
+     * @param demand            called with the amount of further chunks, which may be handed over
+     * @return a new decoder
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public static <V, TB extends Tensorbacked<V>> TensorbackedChunkDecoder<V, TB> start(Gson gson,
+                                                                                       Class<TB> tensorbackedClass,
+                                                                                       Executor executor,
+                                                                                       int capacity,
+                                                                                       LongConsumer demand) {
+        requireNonNull(gson, "gson must not be null.");
+        requireNonNull(tensorbackedClass, "tensorbackedClass must not be null.");
+        requireNonNull(executor, "executor must not be null.");
+        requireNonNull(demand, "demand must not be null.");
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive, but was " + capacity + ".");
+        }
+        TensorbackedChunkDecoder<V, TB> decoder = new TensorbackedChunkDecoder<>(capacity, demand);
+        executor.execute(() -> {
+            try {
+                decoder.result.complete(gson.fromJson(decoder.new ChunkReader(), tensorbackedClass));
+            } catch (Throwable e) {
+                decoder.result.completeExceptionally(decoder.upstreamError != null ? decoder.upstreamError : e);
+            }
+        });
+        return decoder;
+    }
+
+    /**
+     * Hands over the next chunk of the json. The chunk is read from its position to its limit, asynchronously, so it
+     * must not be modified afterwards. Chunks arriving after the result is complete are ignored. As the reactive
+     * signals, the calls of this method (and of {@link #onError(Throwable)} and {@link #onComplete()}) must not be
+     * concurrent.
+     *
+     * @param chunk the next bytes of the json
+     * @throws IllegalStateException if the chunks are already complete, or if more chunks are handed over than were
+     *                               requested (the result then fails as well)
+     */
+    public void onNext(ByteBuffer chunk) {
+        requireNonNull(chunk, "chunk must not be null.");
+        if (ended) {
+            throw new IllegalStateException("The chunks are already complete.");
+        }
+        if (result.isDone() || !chunk.hasRemaining()) {
+            return;
+        }
+        if (chunks.size() >= capacity || !chunks.offer(chunk)) {
+            IllegalStateException error = new IllegalStateException(
+                    "More chunks were handed over than requested (capacity " + capacity + ").");
+            result.completeExceptionally(error);
+            throw error;
+        }
+    }
+
+    /**
+     * Signals that the json could not be received completely. The result completes exceptionally with the given
+     * error.
+     *
+     * @param error the reason of the failure
+     */
+    public void onError(Throwable error) {
+        requireNonNull(error, "error must not be null.");
+        upstreamError = error;
+        ended = true;
+        result.completeExceptionally(error);
+    }
+
+    /**
+     * Signals that all the chunks were handed over. The result completes as soon as they are parsed.
+     */
+    public void onComplete() {
+        if (!ended) {
+            ended = true;
+            chunks.offer(END);
+        }
+    }
+
+    /**
+     * @return the future of the decoded tensorbacked. It completes exceptionally, if the json is invalid or if
+     * {@link #onError(Throwable)} is called. Cancelling it stops the parsing.
+     */
+    public CompletableFuture<TB> result() {
+        return result;
+    }
+
+    /**
+     * Decodes the chunks as UTF-8, waiting for each chunk to arrive. Characters split between chunks are decoded
+     * after joining the remaining bytes with the next chunk.
+     */
+    private final class ChunkReader extends Reader {
+
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()//
+                .onMalformedInput(CodingErrorAction.REPLACE)//
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        private ByteBuffer current = END;
+        private boolean last = false;
+        private boolean flushed = false;
+
+        @Override
+        public int read(char[] chars, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            CharBuffer out = CharBuffer.wrap(chars, offset, length);
+            while (true) {
+                CoderResult coderResult = decoder.decode(current, out, last);
+                if (coderResult.isError()) {
+                    coderResult.throwException();
+                }
+                if (out.position() > offset) {
+                    return out.position() - offset;
+                }
+                if (!last) {
+                    ByteBuffer chunk = take();
+                    if (chunk == END) {
+                        last = true;
+                    } else if (current.hasRemaining()) {
+                        /* the remaining bytes are the start of a character, which continues in this chunk */
+                        current = ByteBuffer.allocate(current.remaining() + chunk.remaining()).put(current).put(chunk);
+                        current.flip();
+                    } else {
+                        current = chunk;
+                    }
+                } else if (!flushed) {
+                    flushed = true;
+                    decoder.flush(out);
+                    if (out.position() > offset) {
+                        return out.position() - offset;
+                    }
+                } else {
+                    return -1;
+                }
+            }
+        }
+
+        private ByteBuffer take() throws IOException {
+            ByteBuffer chunk;
+            try {
+                chunk = chunks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the next chunk.");
+            }
+            if (result.isDone()) {
+                throw new IOException("Decoding was aborted.");
+            }
+            if (chunk != END) {
+                demand.accept(1);
+            }
+            return chunk;
+        }
+
+        @Override
+        public void close() {
+            /* the chunks are owned by the caller */
+        }
+    }
+
+}
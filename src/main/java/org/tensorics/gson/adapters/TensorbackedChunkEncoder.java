@@ -0,0 +1,175 @@
+package org.tensorics.gson.adapters;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import org.tensorics.core.tensorbacked.Tensorbacked;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Encodes a tensorbacked object as UTF-8 json in chunks of bytes, which are produced only on demand: each call to
+ * {@link Iterator#next()} of the returned iterator writes just as many entries as needed to fill the next chunk. Like
+ * this, a big tensorbacked can be sent over non-blocking io without blocking the calling (event loop) thread for the
+ * whole document and without buffering the whole document. Demand of a reactive subscriber (e.g. a
+ * {@code Flow.Subscription.request(n)}) maps directly to {@code n} calls of {@code next()}.
+ * <p>
+ * Example:
+ * <pre>
+ * Iterator&lt;ByteBuffer&gt; chunks = TensorbackedChunkEncoder.of(gson, MyTensorbacked.class, 64 * 1024).encode(value);
+ * while (chunks.hasNext()) {
+ *     channel.write(chunks.next());
+ * }
+ * </pre>
+ * The json is the same as written by gson, including the envelope (context and size hint), which is written before the
+ * first entry. Only the nested layout without complex map key serialization can be written incrementally, so the
+ * encoder cannot be created for the columnar layout or a gson with complex map key serialization (which would require
+ * to buffer the whole document). Scalars and empty tensors are written at once, as they consist of one value only.
+ * Instances are immutable and thread safe, the returned iterators are not.
+ *
+ * @param <V>  the type of the values of the tensorbacked
+ * @param <TB> the type of the tensorbacked
+ */
+public final class TensorbackedChunkEncoder<V, TB extends Tensorbacked<V>> {
+
+    private final Gson gson;
+    private final TensorbackedGsonAdapter<V, TB> adapter;
+    private final int chunkSize;
+
+    private TensorbackedChunkEncoder(Gson gson, TensorbackedGsonAdapter<V, TB> adapter, int chunkSize) {
+        this.gson = gson;
+        this.adapter = adapter;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Creates an encoder for the given tensorbacked class, using the adapter registered in the given gson.
+     *
+     * @param gson              the gson instance to use
+     * @param tensorbackedClass the class of the tensorbacked objects to encode
+     * @param chunkSize         the maximum size of the produced chunks in bytes, at least 4. Chunks are only
+     *                          smaller, if the next character does not fit anymore, and at the end of the json.
+     * @return a new encoder
+     * @throws IllegalArgumentException if the adapter registered for the class is not a
+     *                                  {@link TensorbackedGsonAdapter}, or if it writes the columnar layout or
+     *                                  complex map keys, so that the json cannot be written incrementally
+     */
+    @SuppressWarnings("unchecked")
+    public static <V, TB extends Tensorbacked<V>> TensorbackedChunkEncoder<V, TB> of(Gson gson,
+                                                                                    Class<TB> tensorbackedClass,
+                                                                                    int chunkSize) {
+        requireNonNull(gson, "gson must not be null.");
+        requireNonNull(tensorbackedClass, "tensorbackedClass must not be null.");
+        if (chunkSize < 4) {
+            throw new IllegalArgumentException("chunkSize must be at least 4, but was " + chunkSize + ".");
+        }
+        TypeAdapter<TB> adapter = gson.getAdapter(tensorbackedClass);
+        if (!(adapter instanceof TensorbackedGsonAdapter)) {
+            throw new IllegalArgumentException("The adapter registered for " + tensorbackedClass.getName()
+                    + " is not a TensorbackedGsonAdapter, but " + adapter.getClass().getName() + ".");
+        }
+        TensorbackedGsonAdapter<V, TB> tensorbackedAdapter = (TensorbackedGsonAdapter<V, TB>) adapter;
+        if (!tensorbackedAdapter.writesIncrementally()) {
+            throw new IllegalArgumentException("The json of " + tensorbackedClass.getName() + " cannot be written "
+                    + "incrementally: chunks are only supported for the nested layout without complex map key "
+                    + "serialization.");
+        }
+        return new TensorbackedChunkEncoder<>(gson, tensorbackedAdapter, chunkSize);
+    }
+
+    /**
+     * Starts encoding the given tensorbacked. Nothing is written before the first chunk is requested.
+     *
+     * @param value the tensorbacked to encode
+     * @return an iterator over the chunks, each of which is a new buffer positioned at its start. Errors while
+     * writing are thrown as {@link JsonIOException}.
+     */
+    public Iterator<ByteBuffer> encode(TB value) {
+        requireNonNull(value, "value must not be null.");
+        return new Chunks(value);
+    }
+
+    private final class Chunks implements Iterator<ByteBuffer>, Utf8BufferWriter.Sink {
+
+        private final TB value;
+        private final Queue<ByteBuffer> ready = new ArrayDeque<>();
+        private Utf8BufferWriter bytesOut;
+        private JsonWriter out;
+        private NestedJsonWriter.Incremental incremental;
+        private boolean finished = false;
+
+        private Chunks(TB value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (ready.isEmpty() && !finished) {
+                try {
+                    produce();
+                } catch (IOException e) {
+                    finished = true;
+                    throw new JsonIOException(e);
+                }
+            }
+            return !ready.isEmpty();
+        }
+
+        @Override
+        public ByteBuffer next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return ready.poll();
+        }
+
+        /**
+         * Writes until at least one chunk is ready or the document is complete.
+         */
+        private void produce() throws IOException {
+            if (out == null) {
+                bytesOut = new Utf8BufferWriter(this, ByteBuffer.allocate(chunkSize));
+                out = gson.newJsonWriter(bytesOut);
+                out.setLenient(true); /* as gson does it while serializing */
+                incremental = adapter.incrementalWriter(out, value);
+                if (incremental == null) {
+                    /* a scalar or an empty tensor: a single value */
+                    adapter.write(out, value);
+                    bytesOut.close();
+                    return;
+                }
+            }
+            while (ready.isEmpty()) {
+                if (!incremental.writeNext()) {
+                    bytesOut.close();
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public ByteBuffer drain(ByteBuffer buffer) {
+            buffer.flip();
+            ready.add(buffer);
+            return ByteBuffer.allocate(chunkSize);
+        }
+
+        @Override
+        public void finish(ByteBuffer buffer) {
+            finished = true;
+            if (buffer.position() > 0) {
+                buffer.flip();
+                ready.add(buffer);
+            }
+        }
+    }
+
+}
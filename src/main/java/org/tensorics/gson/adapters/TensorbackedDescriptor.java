@@ -0,0 +1,69 @@
+package org.tensorics.gson.adapters;
+
+import com.google.common.collect.ImmutableList;
+import org.tensorics.core.tensor.Tensor;
+import org.tensorics.core.tensorbacked.Tensorbacked;
+import org.tensorics.core.tensorbacked.TensorbackedInternals;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The (gson independent) metadata of a tensorbacked class, which is required for serialization and deserialization.
+ * As determining these values requires reflection, instances are intended to be created once per class and cached.
+ * Alternatively, they can be created from a {@link TensorbackedType}, without any reflection.
+ *
+ * @param <V>  the type of the values of the tensorbacked
+ * @param <TB> the type of the tensorbacked
+ */
+final class TensorbackedDescriptor<V, TB extends Tensorbacked<V>> {
+
+    private final Class<TB> tensorbackedClass;
+    private final List<Class<?>> dimensions;
+    private final Class<V> valueType;
+    private final Function<Tensor<V>, TB> constructor;
+
+    private TensorbackedDescriptor(Class<TB> tensorbackedClass, List<Class<?>> dimensions, Class<V> valueType,
+                                   Function<Tensor<V>, TB> constructor) {
+        this.tensorbackedClass = requireNonNull(tensorbackedClass, "tensorbackedClass must not be null.");
+        this.dimensions = ImmutableList.copyOf(dimensions);
+        this.valueType = valueType;
+        this.constructor = constructor;
+    }
+
+    static <V, TB extends Tensorbacked<V>> TensorbackedDescriptor<V, TB> of(Class<TB> tensorbackedClass) {
+        return new TensorbackedDescriptor<>(tensorbackedClass,
+                TensorbackedInternals.dimensionListFrom(tensorbackedClass),
+                TensorbackedInternals.valueTypeFrom(tensorbackedClass), null);
+    }
+
+    static <V, TB extends Tensorbacked<V>> TensorbackedDescriptor<V, TB> of(TensorbackedType<V, TB> type) {
+        return new TensorbackedDescriptor<>(type.tensorbackedClass(), type.dimensions(), type.valueType(),
+                type.constructor());
+    }
+
+    Class<TB> tensorbackedClass() {
+        return tensorbackedClass;
+    }
+
+    /**
+     * @return the dimensions of the tensorbacked class, in the order in which they are nested in json
+     */
+    List<Class<?>> dimensions() {
+        return dimensions;
+    }
+
+    Class<V> valueType() {
+        return valueType;
+    }
+
+    TB createBackedBy(Tensor<V> tensor) {
+        if (constructor != null) {
+            return constructor.apply(tensor);
+        }
+        return TensorbackedInternals.createBackedByTensor(tensorbackedClass, tensor);
+    }
+
+}
@@ -0,0 +1,173 @@
+package org.tensorics.gson.adapters;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.tensorics.core.tensor.Position;
+import org.tensorics.core.tensorbacked.Tensorbacked;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Creates and applies patches between two versions of a tensorbacked object, so that only the changed entries have to
+ * be transferred. A patch is written in the same nested layout as the tensorbacked itself (see
+ * {@link org.tensorics.gson.util.Nestmaps#nestmap(org.tensorics.core.tensor.Tensor, java.util.List)}), but contains
+ * only the added and changed entries, together with the removed entries, which have {@code null} as value. E.g. for
+ * a change of the value at (A, 1), a new entry at (A, 3) and the removal of (B, 2):
+ * <pre>
+ * {"A":{"1":0.15,"3":0.13},"B":{"2":null}}
+ * </pre>
+ * For scalars, the patch is simply the new value (or null, if the new tensorbacked is empty). As any json could be a
+ * value, the patch of two equal scalars is empty (no json at all). The context of the
+ * tensors is not part of the patch; the applied patch keeps the context of the previous version.
+ * <p>
+ * Instances are immutable and thread safe.
+ *
+ * @param <V>  the type of the values of the tensorbacked
+ * @param <TB> the type of the tensorbacked
+ */
+public final class TensorbackedDiff<V, TB extends Tensorbacked<V>> {
+
+    private final Gson gson;
+    private final TensorbackedGsonAdapter<V, TB> adapter;
+
+    private TensorbackedDiff(Gson gson, TensorbackedGsonAdapter<V, TB> adapter) {
+        this.gson = gson;
+        this.adapter = adapter;
+    }
+
+    /**
+     * Creates a diff for the given tensorbacked class. The adapter registered in the given gson for the class is used,
+     * if it is a {@link TensorbackedGsonAdapter}. Otherwise, a new adapter is created.
+     *
+     * @param gson              the gson instance to use
+     * @param tensorbackedClass the class of the tensorbacked objects to compare
+     * @return a new diff
+     */
+    @SuppressWarnings("unchecked")
+    public static <V, TB extends Tensorbacked<V>> TensorbackedDiff<V, TB> of(Gson gson, Class<TB> tensorbackedClass) {
+        requireNonNull(gson, "gson must not be null.");
+        requireNonNull(tensorbackedClass, "tensorbackedClass must not be null.");
+        TypeAdapter<TB> registered = gson.getAdapter(tensorbackedClass);
+        TensorbackedGsonAdapter<V, TB> adapter = registered instanceof TensorbackedGsonAdapter ?
+                (TensorbackedGsonAdapter<V, TB>) registered : new TensorbackedGsonAdapter<>(gson, tensorbackedClass);
+        return new TensorbackedDiff<>(gson, adapter);
+    }
+
+    /**
+     * @param previous the previous version of the tensorbacked
+     * @param current  the current version of the tensorbacked
+     * @return the patch, which transforms the previous into the current version, as json
+     */
+    public String diff(TB previous, TB current) {
+        StringWriter string = new StringWriter();
+        try {
+            writeDiff(gson.newJsonWriter(string), previous, current);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+        return string.toString();
+    }
+
+    /**
+     * Writes the patch, which transforms the previous into the current version, to the given writer. The nulls of
+     * removed entries are always written, independent of the setting of the writer. For two equal scalars, nothing is
+     * written.
+     *
+     * @param out      the writer to write to
+     * @param previous the previous version of the tensorbacked
+     * @param current  the current version of the tensorbacked
+     */
+    public void writeDiff(JsonWriter out, TB previous, TB current) throws IOException {
+        requireNonNull(out, "out must not be null.");
+        requireNonNull(previous, "previous must not be null.");
+        requireNonNull(current, "current must not be null.");
+        Map<Position, V> previousEntries = previous.tensor().asMap();
+        Map<Position, V> currentEntries = current.tensor().asMap();
+
+        Map<Position, V> changes = new LinkedHashMap<>();
+        for (Map.Entry<Position, V> entry : currentEntries.entrySet()) {
+            if (!Objects.equals(previousEntries.get(entry.getKey()), entry.getValue())) {
+                changes.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (Position position : previousEntries.keySet()) {
+            if (!currentEntries.containsKey(position)) {
+                changes.put(position, null); // the removal marker
+            }
+        }
+        if (changes.isEmpty() && adapter.dimensions().isEmpty()) {
+            return; // neither a value nor null can express an unchanged scalar
+        }
+
+        boolean serializeNulls = out.getSerializeNulls();
+        out.setSerializeNulls(true);
+        try {
+            adapter.writeNested(out, changes);
+        } finally {
+            out.setSerializeNulls(serializeNulls);
+        }
+    }
+
+    /**
+     * @param previous the previous version of the tensorbacked
+     * @param patch    the patch as created by {@link #diff(Tensorbacked, Tensorbacked)}
+     * @return the current version of the tensorbacked
+     */
+    public TB apply(TB previous, String patch) {
+        requireNonNull(patch, "patch must not be null.");
+        try {
+            return apply(previous, gson.newJsonReader(new StringReader(patch)));
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+    }
+
+    /**
+     * Reads a patch from the given reader and applies it to the given previous version. For scalars, an empty document
+     * is the patch of two equal versions.
+     *
+     * @param previous the previous version of the tensorbacked
+     * @param in       the reader, positioned at the start of the patch
+     * @return the current version of the tensorbacked
+     */
+    public TB apply(TB previous, JsonReader in) throws IOException {
+        requireNonNull(previous, "previous must not be null.");
+        requireNonNull(in, "in must not be null.");
+        if (adapter.dimensions().isEmpty() && isEmptyDocument(in)) {
+            return previous;
+        }
+        Map<Position, V> entries = new LinkedHashMap<>(previous.tensor().asMap());
+        EntryCursor<V> cursor = adapter.cursor(in);
+        while (cursor.next()) {
+            Position position = cursor.position();
+            V value = cursor.value();
+            if (value == null) {
+                entries.remove(position);
+            } else {
+                entries.put(position, value);
+            }
+        }
+        return adapter.build(entries, previous.tensor().context());
+    }
+
+    private static boolean isEmptyDocument(JsonReader in) throws IOException {
+        try {
+            return in.peek() == JsonToken.END_DOCUMENT;
+        } catch (EOFException e) {
+            return true; // an empty document (same as gson treats it)
+        }
+    }
+
+}
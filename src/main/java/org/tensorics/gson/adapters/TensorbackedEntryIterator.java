@@ -0,0 +1,127 @@
+package org.tensorics.gson.adapters;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import org.tensorics.core.tensor.Position;
+import org.tensorics.core.tensorbacked.Tensorbacked;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Iterates over the entries of a serialized tensorbacked object while they are parsed, without ever materializing the
+ * whole tensor. This allows to filter, aggregate or forward huge tensors in constant memory. All the json layouts,
+ * which can be read by the {@link TensorbackedGsonAdapter}, are supported.
+ * <p>
+ * Example:
+ * <pre>
+ * try (JsonReader in = new JsonReader(reader)) {
+ *     TensorbackedEntryIterator&lt;Double&gt; entries = TensorbackedEntryIterator.of(gson, MyTensorbacked.class, in);
+ *     double sum = entries.stream().mapToDouble(Map.Entry::getValue).sum();
+ * }
+ * </pre>
+ * Errors while reading are thrown as unchecked gson exceptions ({@link JsonIOException} for io problems). The
+ * iterator does not close the underlying reader.
+ * <p>
+ * The entries are returned as they appear in the json. If a top level key is repeated in a json object, its entries
+ * are returned again, so a position can occur more than once (when reading the whole tensor, the later ones win).
+ *
+ * @param <V> the type of the values of the tensorbacked
+ */
+public final class TensorbackedEntryIterator<V> implements Iterator<Map.Entry<Position, V>> {
+
+    private final EntryCursor<V> cursor;
+    private boolean advanced = false;
+    private boolean hasNext;
+
+    private TensorbackedEntryIterator(EntryCursor<V> cursor) {
+        this.cursor = requireNonNull(cursor, "cursor must not be null.");
+    }
+
+    /**
+     * Creates an iterator over the tensorbacked, which starts at the current position of the given reader. The
+     * adapter registered in the given gson for the tensorbacked class is used, if it is a
+     * {@link TensorbackedGsonAdapter} (so that its options and cached metadata are reused). Otherwise, a new
+     * adapter is created.
+     *
+     * @param gson              the gson instance to use for the key and value adapters
+     * @param tensorbackedClass the class of the serialized tensorbacked
+     * @param in                the reader, positioned at the start of the serialized tensorbacked
+     * @return a new iterator over the entries
+     */
+    @SuppressWarnings("unchecked")
+    public static <V, TB extends Tensorbacked<V>> TensorbackedEntryIterator<V> of(Gson gson, Class<TB> tensorbackedClass,
+                                                                                 JsonReader in) throws IOException {
+        requireNonNull(in, "in must not be null.");
+        TypeAdapter<TB> adapter = gson.getAdapter(tensorbackedClass);
+        TensorbackedGsonAdapter<V, TB> tensorbackedAdapter = adapter instanceof TensorbackedGsonAdapter ?
+                (TensorbackedGsonAdapter<V, TB>) adapter : new TensorbackedGsonAdapter<>(gson, tensorbackedClass);
+        return new TensorbackedEntryIterator<>(tensorbackedAdapter.cursor(in));
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!advanced) {
+            try {
+                hasNext = cursor.next();
+            } catch (IOException e) {
+                throw new JsonIOException(e);
+            }
+            advanced = true;
+        }
+        return hasNext;
+    }
+
+    @Override
+    public Map.Entry<Position, V> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        advanced = false;
+        return new AbstractMap.SimpleImmutableEntry<>(cursor.position(), cursor.value());
+    }
+
+    /**
+     * Pushes all the remaining entries to the given callback, as they are parsed. This avoids the creation of the
+     * entry objects.
+     *
+     * @param consumer the callback to receive the position and value of each entry
+     */
+    public void forEachEntry(BiConsumer<? super Position, ? super V> consumer) {
+        requireNonNull(consumer, "consumer must not be null.");
+        if (advanced && hasNext) {
+            consumer.accept(cursor.position(), cursor.value());
+        }
+        try {
+            while (cursor.next()) {
+                consumer.accept(cursor.position(), cursor.value());
+            }
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+        advanced = true;
+        hasNext = false;
+    }
+
+    /**
+     * @return a sequential stream of the remaining entries, which reads the json lazily. Its positions are not
+     * necessarily distinct (see above).
+     */
+    public Stream<Map.Entry<Position, V>> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+}
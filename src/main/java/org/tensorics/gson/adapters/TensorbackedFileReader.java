@@ -0,0 +1,177 @@
+package org.tensorics.gson.adapters;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import org.tensorics.core.tensorbacked.Tensorbacked;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads tensorbacked objects from json files by memory mapping them, instead of copying all the bytes through a
+ * {@code FileReader}. The whole file can be read (in any layout understood by the {@link TensorbackedGsonAdapter}).
+ * Additionally, for files in nested layout, an index of the top level coordinates can be built, so that the entries of
+ * a single top level coordinate can be read without parsing the rest of the file.
+ * <p>
+ * Example:
+ * <pre>
+ * try (TensorbackedFileReader&lt;Double, MyTensorbacked&gt; reader = TensorbackedFileReader.open(gson, MyTensorbacked.class, path)) {
+ *     MyTensorbacked slice = reader.readSlice("someKey");
+ * }
+ * </pre>
+ * Instances are not thread safe.
+ *
+ * @param <V>  the type of the values of the tensorbacked
+ * @param <TB> the type of the tensorbacked
+ */
+public final class TensorbackedFileReader<V, TB extends Tensorbacked<V>> implements Closeable {
+
+    private final Gson gson;
+    private final Class<TB> tensorbackedClass;
+    private final TensorbackedGsonAdapter<V, TB> adapter;
+    private final FileChannel file;
+    private Map<Object, TopLevelIndex.Entry> index;
+
+    private TensorbackedFileReader(Gson gson, Class<TB> tensorbackedClass, TensorbackedGsonAdapter<V, TB> adapter,
+                                   FileChannel file) {
+        this.gson = gson;
+        this.tensorbackedClass = tensorbackedClass;
+        this.adapter = adapter;
+        this.file = file;
+    }
+
+    /**
+     * Opens the given file for reading. The adapter registered in the given gson for the tensorbacked class is used, if
+     * it is a {@link TensorbackedGsonAdapter}. Otherwise, a new adapter is created.
+     *
+     * @param gson              the gson instance to use
+     * @param tensorbackedClass the class of the serialized tensorbacked
+     * @param path              the path of the json file
+     * @return a new reader, which has to be closed after usage
+     */
+    @SuppressWarnings("unchecked")
+    public static <V, TB extends Tensorbacked<V>> TensorbackedFileReader<V, TB> open(Gson gson,
+                                                                                   Class<TB> tensorbackedClass,
+                                                                                   Path path) throws IOException {
+        requireNonNull(gson, "gson must not be null.");
+        requireNonNull(tensorbackedClass, "tensorbackedClass must not be null.");
+        requireNonNull(path, "path must not be null.");
+        TypeAdapter<TB> registered = gson.getAdapter(tensorbackedClass);
+        TensorbackedGsonAdapter<V, TB> adapter = registered instanceof TensorbackedGsonAdapter ?
+                (TensorbackedGsonAdapter<V, TB>) registered : new TensorbackedGsonAdapter<>(gson, tensorbackedClass);
+        return new TensorbackedFileReader<>(gson, tensorbackedClass, adapter,
+                FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    /**
+     * Reads the whole file, exactly as {@code gson.fromJson(reader, tensorbackedClass)} would do. If parallel reads
+     * are enabled on the factory and the file is in nested layout, the file is first scanned for the byte ranges of
+     * the top level sub-maps (as for {@link #topLevelCoordinates()}), without parsing them. The sub-maps are then
+     * parsed concurrently, each from its own range of the file.
+     *
+     * @return the tensorbacked contained in the file
+     */
+    public TB read() throws IOException {
+        if (adapter.isParallelRead()) {
+            Map<Object, TopLevelIndex.Entry> nestedIndex = nestedIndex();
+            if (nestedIndex != null) {
+                Map<Object, ParallelNestedReader.SubMap> subMaps = new LinkedHashMap<>();
+                for (Map.Entry<Object, TopLevelIndex.Entry> entry : nestedIndex.entrySet()) {
+                    TopLevelIndex.Entry range = entry.getValue();
+                    subMaps.put(entry.getKey(), () -> newJsonReader(range));
+                }
+                return adapter.readSubMaps(subMaps);
+            }
+        }
+        return gson.fromJson(new MappedUtf8Reader(file, 0, file.size()), tensorbackedClass);
+    }
+
+    /**
+     * @return the index of the top level entries, or {@code null} if the file cannot be indexed (e.g. as it is not in
+     * nested layout or not valid json), so that it has to be parsed as a whole (which produces the usual errors)
+     */
+    private Map<Object, TopLevelIndex.Entry> nestedIndex() throws IOException {
+        try {
+            return index();
+        } catch (JsonSyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the coordinates of the first dimension, which are contained in the file. On the first call (of this
+     * method or of {@link #readSlice(Object)}), the file is scanned for the positions of the top level entries, without
+     * parsing the values.
+     *
+     * @return the top level coordinates, in the order of the file
+     * @throws JsonSyntaxException if the file is not a tensorbacked in nested layout (e.g. columnar, or with the
+     *                             envelope of the context)
+     */
+    public Set<Object> topLevelCoordinates() throws IOException {
+        return Collections.unmodifiableSet(index().keySet());
+    }
+
+    /**
+     * Reads the entries of one top level coordinate only. Only the range of the file, which contains these entries, is
+     * parsed.
+     *
+     * @param topLevelCoordinate the coordinate of the first dimension, for which to read the entries
+     * @return a tensorbacked containing only the entries of the given top level coordinate. If the coordinate is not
+     * contained in the file, the tensorbacked is empty.
+     * @throws JsonSyntaxException if the file is not a tensorbacked in nested layout (e.g. columnar, or with the
+     *                             envelope of the context)
+     */
+    public TB readSlice(Object topLevelCoordinate) throws IOException {
+        requireNonNull(topLevelCoordinate, "topLevelCoordinate must not be null.");
+        TopLevelIndex.Entry entry = index().get(topLevelCoordinate);
+        if (entry == null) {
+            return adapter.build(EntryCursor.empty());
+        }
+        return adapter.build(adapter.subMapCursor(newJsonReader(entry), topLevelCoordinate));
+    }
+
+    private JsonReader newJsonReader(TopLevelIndex.Entry entry) throws IOException {
+        JsonReader in = gson.newJsonReader(new MappedUtf8Reader(file, entry.valueStart(), entry.valueEnd()));
+        in.setLenient(true); /* as gson does it while deserializing */
+        return in;
+    }
+
+    private Map<Object, TopLevelIndex.Entry> index() throws IOException {
+        if (index == null) {
+            List<TopLevelIndex.Entry> entries = TopLevelIndex.scan(file, 0, file.size());
+            if (!entries.isEmpty() && entries.get(0).keyIsName()
+                    && adapter.isStartedByReservedName(entries.get(0).key())) {
+                throw new JsonSyntaxException("The file is not in nested layout (it starts with \""
+                        + entries.get(0).key() + "\"), so its top level coordinates cannot be indexed.");
+            }
+            Map<Object, TopLevelIndex.Entry> newIndex = new LinkedHashMap<>();
+            for (TopLevelIndex.Entry entry : entries) {
+                Object coordinate = adapter.topLevelCoordinate(entry.key(), entry.keyIsName());
+                /* Same as on parsing: for json objects, a later key replaces an earlier one */
+                if (newIndex.put(coordinate, entry) != null && !entry.keyIsName()) {
+                    throw new JsonSyntaxException("duplicate key: " + coordinate);
+                }
+            }
+            index = newIndex;
+        }
+        return index;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+}
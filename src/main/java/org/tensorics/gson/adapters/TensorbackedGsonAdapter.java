@@ -1,114 +1,666 @@
 package org.tensorics.gson.adapters;
 
-import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
 import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.TypeAdapter;
 import com.google.gson.TypeAdapterFactory;
-import com.google.gson.internal.JsonReaderInternalAccess;
+import com.google.gson.internal.bind.JsonTreeReader;
+import com.google.gson.internal.bind.TypeAdapters;
 import com.google.gson.reflect.TypeToken;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
 import org.tensorics.core.lang.Tensorics;
 import org.tensorics.core.tensor.Position;
-import org.tensorics.core.tensor.Tensor;
+import org.tensorics.core.tensor.TensorBuilder;
 import org.tensorics.core.tensorbacked.Tensorbacked;
-import org.tensorics.core.tensorbacked.TensorbackedInternals;
-import org.tensorics.gson.util.Nestmaps;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.lang.reflect.Modifier;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonMap;
 import static java.util.Objects.requireNonNull;
-import static org.tensorics.core.tensorbacked.TensorbackedInternals.valueTypeFrom;
 
 public class TensorbackedGsonAdapter<V, TB extends Tensorbacked<V>> extends TypeAdapter<TB> {
 
     public static final TypeAdapterFactory FACTORY = new TensorbackedGsonAdapterFactory();
 
-    private final Gson context;
-    private final Class<TB> tensorbackedClass;
+    /**
+     * For parallel writing, more tasks than threads are created, so that differently sized sub-maps are balanced.
+     */
+    private static final int TASKS_PER_THREAD = 4;
 
-    private final TypeAdapter<V> valueAdapter;
+    /*
+     * Everything which is needed for reading and writing is resolved only once per adapter. This is done on first
+     * usage, so that creating an adapter for an invalid tensorbacked class does not fail immediately (the same as gson
+     * does it for other types).
+     */
+    private final Supplier<Bindings<V, TB>> bindings;
+
+    private final AdapterOptions options;
 
     public TensorbackedGsonAdapter(Gson context, Class<TB> tensorbackedClass) {
-        this.context = context;
-        this.tensorbackedClass = requireNonNull(tensorbackedClass, "tensorbackedClass must not be null.");
+        this(context, tensorbackedClass, () -> TensorbackedDescriptor.of(tensorbackedClass), AdapterOptions.DEFAULT);
+    }
 
-        this.valueAdapter = adapterFor(valueTypeFrom(tensorbackedClass));
+    TensorbackedGsonAdapter(Gson context, Class<TB> tensorbackedClass,
+                            Supplier<TensorbackedDescriptor<V, TB>> descriptorSupplier, AdapterOptions options) {
+        requireNonNull(context, "context must not be null.");
+        requireNonNull(tensorbackedClass, "tensorbackedClass must not be null.");
+        this.options = requireNonNull(options, "options must not be null.");
+        this.bindings = Suppliers.memoize(() -> new Bindings<>(context, descriptorSupplier.get(), options));
     }
 
     @Override
     public void write(JsonWriter out, TB value) throws IOException {
-        /*XXX: The context of the tensor will currently NOT be serialized! */
+        write(out, null, false, value);
+    }
+
+    /**
+     * Writes the given value to a json writer created by this library, which writes to the given UTF-8 writer. If the
+     * json writer is known not to indent (there is no way to find out for the writers given by gson), the json can
+     * be rendered apart from it: big tensors are then written in parallel (if enabled) and otherwise the structure of
+     * the nested layout is written directly as bytes (with cached names), only the values being written through the
+     * json writer. If neither applies, this is the same as {@link #write(JsonWriter, Tensorbacked)}.
+     *
+     * @param out      a lenient json writer, which writes to {@code bytesOut} without buffering
+     * @param bytesOut the UTF-8 writer, on which {@code out} writes, or {@code null} if there is none
+     * @param compact  {@code true} if {@code out} is known not to indent, which requires {@code bytesOut}
+     * @param value    the tensorbacked to write
+     */
+    void write(JsonWriter out, Utf8BufferWriter bytesOut, boolean compact, TB value) throws IOException {
+        Bindings<V, TB> b = bindings.get();
+        TensorbackedAdapterListener listener = options.listener();
+        long startNanos = listener == null ? 0L : System.nanoTime();
+        long startBytes = listener == null || bytesOut == null ? 0L : bytesOut.bytesWritten();
+
+        /* The context and the size hint are only written, if they are enabled on the factory */
+        boolean envelope = b.envelope.appliesTo(value.tensor());
+        boolean columnar = options.layout() == JsonLayout.COLUMNAR && !b.descriptor.dimensions().isEmpty();
+        /* The size hint is derived from the index, so that is built up front (unless columnar might not need it) */
+        NestedIndex index = columnar && !(envelope && b.envelope.hasSizeHint(value.tensor())) ? null
+                : NestedIndex.of(value.tensor(), b.descriptor.dimensions());
+        long indexedNanos = listener == null || index == null ? startNanos : System.nanoTime();
+        if (envelope) {
+            b.envelope.writeStart(out, value.tensor(), index);
+        }
+
+        int entryCount;
+        if (columnar && b.columnar.write(out, value.tensor())) {
+            entryCount = value.tensor().asMap().size();
+        } else {
+            if (index == null) {
+                index = NestedIndex.of(value.tensor(), b.descriptor.dimensions());
+                indexedNanos = listener == null ? 0L : System.nanoTime();
+            }
+            if (index.dimensionCount() == 0 || index.size() == 0) {
+                /* This is the special case of a scalar (or an empty tensor, which is written as null) */
+                b.valueAdapter.write(out, index.size() == 0 ? null : (V) index.value(0));
+            } else if (compact && index.dimensionCount() > 1
+                    && index.size() >= options.parallelWriteThreshold() && options.parallelWritePool().isPresent()) {
+                ForkJoinPool pool = options.parallelWritePool().get();
+                b.writer.writeParallel(out, index, pool, pool.getParallelism() * TASKS_PER_THREAD);
+            } else if (compact && !envelope && options.layout() == JsonLayout.NESTED
+                    && !b.complexMapKeySerialization) {
+                b.utf8Writer.write(bytesOut, out, index);
+            } else {
+                b.writer.write(out, index);
+            }
+            entryCount = index.size();
+        }
+
+        if (envelope) {
+            out.endObject();
+        }
+        if (listener != null) {
+            notifyWrite(listener, b, entryCount, startNanos, indexedNanos, bytesOut, startBytes);
+        }
+    }
+
+    private void notifyWrite(TensorbackedAdapterListener listener, Bindings<V, TB> b, int entryCount,
+                             long startNanos, long indexedNanos, Utf8BufferWriter bytesOut, long startBytes) {
+        long encodedSize = bytesOut == null ? -1L : bytesOut.bytesWritten() - startBytes;
+        listener.onEvent(TensorbackedAdapterEvent.write(b.descriptor.tensorbackedClass(), entryCount,
+                b.descriptor.dimensions().size(), indexedNanos - startNanos, System.nanoTime() - indexedNanos,
+                encodedSize));
+    }
 
-        List<Class<?>> dimensions = TensorbackedInternals.dimensionListFrom(tensorbackedClass);
-        Object nested = Nestmaps.nestmap(value.tensor(), dimensions);
-        if (nested instanceof Map) {
-            TypeAdapter<Map<?, ?>> adapter = context.getAdapter(new TypeToken<Map<?, ?>>() {
-            });
-            adapter.write(out, (Map<?, ?>) nested);
-        } else { /* This is the special case of a scalar */
-            valueAdapter.write(out, (V) nested);
+    /**
+     * Writes the given entries in the nested layout, independent of the layout configured for this adapter. The values
+     * may be {@code null}; they are then written as json null values (if the writer serializes nulls). A scalar is
+     * written as its single value, or as null if there is no entry.
+     */
+    void writeNested(JsonWriter out, Map<Position, ?> entries) throws IOException {
+        Bindings<V, TB> b = bindings.get();
+        if (b.descriptor.dimensions().isEmpty()) {
+            b.valueAdapter.write(out, entries.isEmpty() ? null : (V) entries.values().iterator().next());
+            return;
         }
+        b.writer.write(out, NestedIndex.of(entries, b.descriptor.dimensions()));
+    }
+
+    /**
+     * Writes the given value in the nested layout, independent of the layout configured for this adapter, with the
+     * json names looked up per dimension in the given maps instead of being derived from the coordinates. The value
+     * must not be a scalar and the maps must contain all of its coordinates.
+     */
+    void writeRenamed(JsonWriter out, TB value, List<? extends Map<Object, String>> names) throws IOException {
+        Bindings<V, TB> b = bindings.get();
+        NestedIndex index = NestedIndex.of(value.tensor(), b.descriptor.dimensions());
+        if (index.size() == 0) {
+            out.nullValue();
+            return;
+        }
+        b.writer.writeRenamed(out, index, names);
+    }
+
+    /**
+     * @return {@code true} if non-empty, non-scalar values can be written one entry at a time with the configuration
+     * of this adapter and the gson instance, i.e. in nested layout and without complex map key serialization
+     */
+    boolean writesIncrementally() {
+        return options.layout() == JsonLayout.NESTED && !bindings.get().complexMapKeySerialization;
+    }
+
+    /**
+     * Prepares writing the given value one entry at a time, if this is possible (see {@link #writesIncrementally()})
+     * and the value is neither empty nor a scalar. If the value is written in an envelope, the start of the envelope is
+     * written right away. The json is the same as written by {@link #write(JsonWriter, Tensorbacked)}.
+     *
+     * @return the incremental writer, or {@code null} if the value has to be written at once
+     */
+    NestedJsonWriter.Incremental incrementalWriter(JsonWriter out, TB value) throws IOException {
+        Bindings<V, TB> b = bindings.get();
+        if (!writesIncrementally() || b.descriptor.dimensions().isEmpty()) {
+            return null;
+        }
+        NestedIndex index = NestedIndex.of(value.tensor(), b.descriptor.dimensions());
+        if (index.size() == 0) {
+            return null;
+        }
+        boolean envelope = b.envelope.appliesTo(value.tensor());
+        if (envelope) {
+            b.envelope.writeStart(out, value.tensor(), index);
+        }
+        return b.writer.incremental(out, index, envelope);
+    }
+
+    /**
+     * @return {@code true} if the values are written in plain nested layout, i.e. neither in columnar layout nor with
+     * the envelope (context or size hint)
+     */
+    boolean writesPlainNested() {
+        return options.layout() == JsonLayout.NESTED && !bindings.get().envelope.isEnabled();
+    }
+
+    /**
+     * @return the metadata of the tensorbacked class, as resolved by the factory of this adapter
+     */
+    TensorbackedDescriptor<V, TB> descriptor() {
+        return bindings.get().descriptor;
+    }
+
+    /**
+     * @return the dimensions of the tensorbacked class, in the order of nesting
+     */
+    List<Class<?>> dimensions() {
+        return bindings.get().descriptor.dimensions();
+    }
+
+    /**
+     * @return the gson adapters for the coordinates, one per dimension
+     */
+    List<TypeAdapter<?>> keyAdapters() {
+        return bindings.get().keyAdapters;
     }
 
     @Override
     public TB read(JsonReader in) throws IOException {
-        List<Class<?>> dimensions = TensorbackedInternals.dimensionListFrom(tensorbackedClass);
-        Object object = recursiveRead(in, dimensions);
-        Tensor<V> unnested = Nestmaps.unnestmap(object, dimensions);
-        return TensorbackedInternals.createBackedByTensor(tensorbackedClass, unnested);
+        return read(in, bindings.get().conditions);
+    }
+
+    /**
+     * Reads only the entries of a tensorbacked, which match the given filter (in addition to the filter configured on
+     * the factory, if any). Sub-maps and values, which do not match the filter, are skipped without being
+     * materialized.
+     *
+     * @param in     the reader, positioned at the start of the serialized tensorbacked
+     * @param filter the filter for the coordinates of the entries to read
+     * @return a tensorbacked containing only the matching entries
+     */
+    public TB read(JsonReader in, CoordinateFilter filter) throws IOException {
+        requireNonNull(filter, "filter must not be null.");
+        return read(in, options.readFilter().and(filter).forDimensions(bindings.get().descriptor.dimensions()));
     }
 
-    @VisibleForTesting
-    Object recursiveRead(JsonReader in, List<Class<?>> dimensions) throws IOException {
-        if (dimensions.isEmpty()) {
-            /* This is the special case of a scalar and the final value */
-            return valueAdapter.read(in);
+    private TB read(JsonReader in, Predicate<Object>[] conditions) throws IOException {
+        Bindings<V, TB> b = bindings.get();
+        TensorbackedAdapterListener listener = options.listener();
+        long startNanos = listener == null ? 0L : System.nanoTime();
+
+        TensorBuilder<V> builder = Tensorics.builder(b.descriptor.dimensions());
+        TopLevelDuplicates<V> duplicates = new TopLevelDuplicates<>();
+        if (!b.descriptor.dimensions().isEmpty() && in.peek() == JsonToken.BEGIN_OBJECT) {
+            /* The layout (and the envelope) can only be detected by the first name of the object */
+            in.beginObject();
+            readAfterFirstName(in, in.hasNext() ? in.nextName() : null, builder, duplicates, conditions);
         } else {
-            Class<?> thisDim = dimensions.get(0);
-            List<Class<?>> remainingDims = dimensions.subList(1, dimensions.size());
-            return readMap(in, thisDim, remainingDims);
-        }
-    }
-
-    private <T> Map<T, Object> readMap(JsonReader in, Class<T> keyDim, List<Class<?>> remainingDimensions) throws IOException {
-        TypeAdapter<T> dimAdapter = adapterFor(keyDim);
-        Map<T, Object> map = new HashMap<>();
-        JsonToken peek = in.peek();
-        if (peek == JsonToken.BEGIN_ARRAY) {
-            in.beginArray();
-            while (in.hasNext()) {
-                in.beginArray(); // entry array
-                T key = dimAdapter.read(in);
-                Object value = recursiveRead(in, remainingDimensions);
-                Object replaced = map.put(key, value);
-                if (replaced != null) {
-                    throw new JsonSyntaxException("duplicate key: " + key);
-                }
-                in.endArray();
+            readWithoutName(in, builder, duplicates, conditions, null);
+        }
+        long parsedNanos = listener == null ? 0L : System.nanoTime();
+        TB result = b.descriptor.createBackedBy(duplicates.build(builder, b.descriptor.dimensions()));
+
+        if (listener != null) {
+            notifyRead(listener, b, result, startNanos, parsedNanos);
+        }
+        return result;
+    }
+
+    private static void notifyRead(TensorbackedAdapterListener listener, Bindings<?, ?> b, Tensorbacked<?> result,
+                                   long startNanos, long parsedNanos) {
+        long builtNanos = System.nanoTime();
+        listener.onEvent(TensorbackedAdapterEvent.read(b.descriptor.tensorbackedClass(),
+                result.tensor().asMap().size(), b.descriptor.dimensions().size(), parsedNanos - startNanos,
+                builtNanos - parsedNanos));
+    }
+
+    /**
+     * Reads a tensorbacked in nested layout from its top level sub-maps, which were skipped without being parsed. The
+     * sub-maps are parsed concurrently on the pool for parallel reads, which must be enabled (see
+     * {@link #isParallelRead()}).
+     *
+     * @param subMaps the sub-maps by their top level coordinate, in the order of the document (a repeated top level
+     *                key has to replace the earlier one already)
+     * @return a tensorbacked containing the entries of the sub-maps, which match the filter of the factory
+     */
+    TB readSubMaps(Map<Object, ParallelNestedReader.SubMap> subMaps) throws IOException {
+        Bindings<V, TB> b = bindings.get();
+        TensorbackedAdapterListener listener = options.listener();
+        long startNanos = listener == null ? 0L : System.nanoTime();
+
+        TensorBuilder<V> builder = Tensorics.builder(b.descriptor.dimensions());
+        b.parallelReader.readSubMaps(subMaps, builder, options.parallelReadPool().get(),
+                options.parallelReadThreshold(), b.conditions);
+        long parsedNanos = listener == null ? 0L : System.nanoTime();
+        TB result = b.descriptor.createBackedBy(builder.build());
+
+        if (listener != null) {
+            notifyRead(listener, b, result, startNanos, parsedNanos);
+        }
+        return result;
+    }
+
+    /**
+     * Reads a non-scalar tensorbacked, of which the caller already consumed the beginning of the top level object and
+     * the first name (e.g. to look for other reserved names).
+     *
+     * @param firstName the first name of the top level object, or {@code null} if the object has no entries
+     */
+    TB readAfterFirstName(JsonReader in, String firstName) throws IOException {
+        Bindings<V, TB> b = bindings.get();
+        TensorBuilder<V> builder = Tensorics.builder(b.descriptor.dimensions());
+        TopLevelDuplicates<V> duplicates = new TopLevelDuplicates<>();
+        readAfterFirstName(in, firstName, builder, duplicates, b.conditions);
+        return b.descriptor.createBackedBy(duplicates.build(builder, b.descriptor.dimensions()));
+    }
+
+    private void readAfterFirstName(JsonReader in, String firstName, TensorBuilder<V> builder,
+                                    TopLevelDuplicates<V> duplicates, Predicate<Object>[] conditions)
+            throws IOException {
+        Bindings<V, TB> b = bindings.get();
+        if (b.envelope.isStartedBy(firstName)) {
+            SizeHint envelopeHint = b.envelope.readAfterFirstName(in, firstName, builder);
+            if (in.peek() == JsonToken.BEGIN_OBJECT) {
+                in.beginObject();
+                /* The content itself is never an envelope, so its first name might be a reserved one */
+                readContentAfterFirstName(in, in.hasNext() ? in.nextName() : null, builder, duplicates, conditions,
+                        envelopeHint);
+            } else {
+                readWithoutName(in, builder, duplicates, conditions, envelopeHint);
             }
-            in.endArray();
+            in.endObject();
+        } else {
+            readContentAfterFirstName(in, firstName, builder, duplicates, conditions, null);
+        }
+    }
+
+    /**
+     * @param hint the size hint of the envelope, or {@code null} if there is none
+     */
+    private void readContentAfterFirstName(JsonReader in, String firstName, TensorBuilder<V> builder,
+                                           TopLevelDuplicates<V> duplicates, Predicate<Object>[] conditions,
+                                           SizeHint hint) throws IOException {
+        Bindings<V, TB> b = bindings.get();
+        if (isParallelRead() && !isColumnarStartedBy(firstName)) {
+            b.parallelReader.readObjectRemainder(in, firstName, builder, options.parallelReadPool().get(),
+                    options.parallelReadThreshold(), conditions, hint);
         } else {
+            putAll(cursorAfterFirstName(in, firstName, conditions, hint), builder, duplicates);
+        }
+    }
+
+    /**
+     * Reads a tensorbacked, which does not start with a json object (or is a scalar).
+     */
+    private void readWithoutName(JsonReader in, TensorBuilder<V> builder, TopLevelDuplicates<V> duplicates,
+                                 Predicate<Object>[] conditions, SizeHint hint) throws IOException {
+        Bindings<V, TB> b = bindings.get();
+        if (isScalarWithEnvelope(in)) {
+            putAll(nestedReader(scalarContent(in, builder), conditions, null), builder, duplicates);
+            return;
+        } else if (isParallelRead() && in.peek() == JsonToken.BEGIN_ARRAY) {
+            b.parallelReader.readEntryArrays(in, builder, options.parallelReadPool().get(),
+                    options.parallelReadThreshold(), conditions, hint);
+            return;
+        }
+        /* scalars and entry arrays, or not a valid document, but let the reader produce the usual errors */
+        putAll(nestedReader(in, conditions, hint), builder, duplicates);
+    }
+
+    /**
+     * The columnar layout is only detected if it is configured, so that other adapters read a coordinate named like
+     * the first field of the columnar layout as usual.
+     */
+    private boolean isColumnarStartedBy(String firstName) {
+        return options.layout() == JsonLayout.COLUMNAR && ColumnarJson.COORDINATES.equals(firstName);
+    }
+
+    private boolean isScalarWithEnvelope(JsonReader in) throws IOException {
+        Bindings<V, TB> b = bindings.get();
+        return b.descriptor.dimensions().isEmpty() && b.envelope.isContextEnabled()
+                && in.peek() == JsonToken.BEGIN_OBJECT;
+    }
+
+    /**
+     * Reads a scalar, which might be in an envelope, into a tree. The context (if any) is set on the given builder.
+     *
+     * @return a reader, positioned at the value of the scalar
+     */
+    private JsonReader scalarContent(JsonReader in, TensorBuilder<?> builder) throws IOException {
+        /* The value of a scalar might be an object itself, so the envelope can only be detected on the tree */
+        JsonObject tree = TypeAdapters.JSON_ELEMENT.read(in).getAsJsonObject();
+        JsonReader treeIn = new JsonTreeReader(tree);
+        if (tree.size() == 2 && tree.has(EnvelopeJson.CONTEXT) && tree.has(EnvelopeJson.TENSOR)) {
+            treeIn.beginObject();
+            bindings.get().envelope.readAfterFirstName(treeIn, treeIn.nextName(), builder);
+        }
+        return treeIn;
+    }
+
+    /**
+     * @return {@code true} if tensorbacked objects of this adapter are read in parallel
+     */
+    boolean isParallelRead() {
+        return options.parallelReadPool().isPresent() && bindings.get().descriptor.dimensions().size() > 1;
+    }
+
+    /**
+     * Consumes all the entries of the given cursor and creates a tensorbacked of them.
+     */
+    TB build(EntryCursor<V> cursor) throws IOException {
+        Bindings<V, TB> b = bindings.get();
+        TensorBuilder<V> builder = Tensorics.builder(b.descriptor.dimensions());
+        TopLevelDuplicates<V> duplicates = new TopLevelDuplicates<>();
+        putAll(cursor, builder, duplicates);
+        return b.descriptor.createBackedBy(duplicates.build(builder, b.descriptor.dimensions()));
+    }
+
+    /**
+     * Puts all the entries of the given cursor into the builder. If it reads nested json objects, repeated top level
+     * keys replace the earlier ones, when the tensor is built by the given duplicates.
+     */
+    private static <V> void putAll(EntryCursor<V> cursor, TensorBuilder<V> builder,
+                                   TopLevelDuplicates<V> duplicates) throws IOException {
+        if (!(cursor instanceof NestedEntryReader)) {
+            while (cursor.next()) {
+                builder.put(cursor.position(), cursor.value());
+            }
+            return;
+        }
+        ((NestedEntryReader<V>) cursor).reportTopLevelKeys(duplicates);
+        while (cursor.next()) {
+            duplicates.put(builder, cursor.position(), cursor.value());
+        }
+    }
+
+    /**
+     * Creates a tensorbacked of the given entries and context.
+     */
+    TB build(Map<Position, V> entries, Position context) {
+        Bindings<V, TB> b = bindings.get();
+        TensorBuilder<V> builder = Tensorics.builder(b.descriptor.dimensions());
+        builder.context(context);
+        for (Map.Entry<Position, V> entry : entries.entrySet()) {
+            builder.put(entry.getKey(), entry.getValue());
+        }
+        return b.descriptor.createBackedBy(builder.build());
+    }
+
+    /**
+     * Creates a cursor over the entries of the tensor, which starts at the current position of the given reader. The
+     * layout of the json is detected automatically. Only the entries matching the filter of the factory are returned.
+     * If the tensor is in an envelope, only its content is iterated (the context is not part of the entries).
+     */
+    EntryCursor<V> cursor(JsonReader in) throws IOException {
+        return cursor(in, bindings.get().conditions);
+    }
+
+    private EntryCursor<V> cursor(JsonReader in, Predicate<Object>[] conditions) throws IOException {
+        Bindings<V, TB> b = bindings.get();
+        if (isScalarWithEnvelope(in)) {
+            return nestedReader(scalarContent(in, Tensorics.builder(b.descriptor.dimensions())), conditions, null);
+        }
+        if (b.descriptor.dimensions().isEmpty() || in.peek() != JsonToken.BEGIN_OBJECT) {
+            return nestedReader(in, conditions, null);
+        }
+        /* The layout (and the envelope) can only be detected by the first name of the object */
+        in.beginObject();
+        String firstName = in.hasNext() ? in.nextName() : null;
+        if (!b.envelope.isStartedBy(firstName)) {
+            return cursorAfterFirstName(in, firstName, conditions, null);
+        }
+        SizeHint hint = b.envelope.readAfterFirstName(in, firstName, Tensorics.builder(b.descriptor.dimensions()));
+        EntryCursor<V> content;
+        if (in.peek() == JsonToken.BEGIN_OBJECT) {
             in.beginObject();
-            while (in.hasNext()) {
-                JsonReaderInternalAccess.INSTANCE.promoteNameToValue(in);
-                T key = dimAdapter.read(in);
-                Object value = recursiveRead(in, remainingDimensions);
-                map.put(key, value);
+            content = cursorAfterFirstName(in, in.hasNext() ? in.nextName() : null, conditions, hint);
+        } else {
+            content = nestedReader(in, conditions, hint);
+        }
+        return closingEnvelope(content, in);
+    }
+
+    /**
+     * @return a cursor over the entries of the given content cursor, which consumes the end of the enclosing envelope
+     * after the last entry
+     */
+    private static <V> EntryCursor<V> closingEnvelope(EntryCursor<V> content, JsonReader in) {
+        return new EntryCursor<V>() {
+            private boolean closed = false;
+
+            @Override
+            public boolean next() throws IOException {
+                if (content.next()) {
+                    return true;
+                }
+                if (!closed) {
+                    closed = true;
+                    in.endObject();
+                }
+                return false;
             }
-            in.endObject();
+
+            @Override
+            public Position position() {
+                return content.position();
+            }
+
+            @Override
+            public V value() {
+                return content.value();
+            }
+        };
+    }
+
+    private EntryCursor<V> cursorAfterFirstName(JsonReader in, String firstName, Predicate<Object>[] conditions,
+                                                SizeHint hint) throws IOException {
+        if (isColumnarStartedBy(firstName)) {
+            return bindings.get().columnar.cursorAfterCoordinatesName(in, conditions);
+        }
+        NestedEntryReader<V> reader = nestedReader(in, conditions, hint);
+        reader.resumeInTopLevelObject(firstName);
+        return reader;
+    }
+
+    private NestedEntryReader<V> nestedReader(JsonReader in, Predicate<Object>[] conditions, SizeHint hint) {
+        Bindings<V, TB> b = bindings.get();
+        NestedEntryReader<V> reader = new NestedEntryReader<>(in, b.keyAdapters, b.valueAdapter);
+        if (b.dictionary != null) {
+            reader.internCoordinates(b.dictionary.forRead(hint));
+        }
+        reader.filter(conditions);
+        return reader;
+    }
+
+    /**
+     * Creates a cursor over the entries of a non-scalar tensor in nested layout, of which the caller already consumed
+     * the beginning of the top level object and the first name. The json names are converted to coordinates by the
+     * given adapters (one per dimension) instead of the key adapters of gson.
+     */
+    EntryCursor<V> renamedCursorAfterFirstName(JsonReader in, String firstName,
+                                               List<? extends TypeAdapter<?>> nameAdapters) {
+        Bindings<V, TB> b = bindings.get();
+        NestedEntryReader<V> reader = new NestedEntryReader<>(in, nameAdapters, b.valueAdapter);
+        reader.filter(b.conditions);
+        reader.resumeInTopLevelObject(firstName);
+        return reader;
+    }
+
+    /**
+     * @return {@code true} if a json object starting with the given name is not in plain nested layout for this
+     * adapter, but an envelope or in columnar layout (as far as these are enabled)
+     */
+    boolean isStartedByReservedName(String firstName) {
+        return bindings.get().envelope.isStartedBy(firstName) || isColumnarStartedBy(firstName);
+    }
+
+    /**
+     * Converts a top level key of the nested layout into the coordinate of the first dimension.
+     *
+     * @param key       the json name of the key, or the json of the key (if it is the first element of an entry
+     *                  array)
+     * @param keyIsName {@code true} if the key is a json name
+     */
+    Object topLevelCoordinate(String key, boolean keyIsName) {
+        Bindings<V, TB> b = bindings.get();
+        if (b.descriptor.dimensions().isEmpty()) {
+            throw new IllegalStateException("A scalar has no top level coordinates.");
         }
-        return map;
+        TypeAdapter<?> keyAdapter = b.keyAdapters.get(0);
+        try {
+            return keyIsName ? keyAdapter.fromJsonTree(new JsonPrimitive(key)) : keyAdapter.fromJson(key);
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * Creates a cursor over the entries of one top level sub-map in nested layout, which starts at the current position
+     * of the given reader. The top level coordinate itself is not checked against the filter of the factory.
+     */
+    EntryCursor<V> subMapCursor(JsonReader in, Object topLevelCoordinate) {
+        Bindings<V, TB> b = bindings.get();
+        NestedEntryReader<V> reader = new NestedEntryReader<>(in, b.keyAdapters, b.valueAdapter, topLevelCoordinate);
+        if (b.dictionary != null) {
+            reader.internCoordinates(b.dictionary.forRead(null));
+        }
+        reader.filter(b.conditions);
+        return reader;
     }
 
+    /**
+     * The descriptor of the tensorbacked class, together with all the gson adapters resolved for it.
+     */
+    private static final class Bindings<V, TB extends Tensorbacked<V>> {
+
+        private final TensorbackedDescriptor<V, TB> descriptor;
+        private final TypeAdapter<V> valueAdapter;
+        private final List<TypeAdapter<?>> keyAdapters;
+        private final NestedJsonWriter writer;
+        private final NestedUtf8Writer utf8Writer;
+        private final boolean complexMapKeySerialization;
+        private final ColumnarJson columnar;
+        private final EnvelopeJson envelope;
+        private final CoordinateDictionary dictionary;
+        private final Predicate<Object>[] conditions;
+        private final ParallelNestedReader<V> parallelReader;
+
+        private Bindings(Gson context, TensorbackedDescriptor<V, TB> descriptor, AdapterOptions options) {
+            this.descriptor = descriptor;
+            this.valueAdapter = adapterFor(context, descriptor.valueType());
+
+            ImmutableList.Builder<TypeAdapter<?>> keyAdapterBuilder = ImmutableList.builder();
+            ImmutableList.Builder<TypeAdapter<Object>> runtimeKeyAdapterBuilder = ImmutableList.builder();
+            for (Class<?> dimension : descriptor.dimensions()) {
+                keyAdapterBuilder.add(adapterFor(context, dimension));
+                runtimeKeyAdapterBuilder.add(runtimeAdapterFor(context, dimension));
+            }
+            this.keyAdapters = keyAdapterBuilder.build();
+            TypeAdapter<Object> runtimeValueAdapter = runtimeAdapterFor(context, descriptor.valueType());
+            this.complexMapKeySerialization = complexMapKeySerializationOf(context);
+            ValueWriter valueWriter = ValueWriter.of(descriptor.valueType(), runtimeValueAdapter);
+            this.writer = new NestedJsonWriter(complexMapKeySerialization, runtimeKeyAdapterBuilder.build(),
+                    valueWriter);
+            this.utf8Writer = new NestedUtf8Writer(valueWriter, context.htmlSafe());
+            this.columnar = new ColumnarJson(descriptor.dimensions(), keyAdapters, valueAdapter,
+                    ValueWriter.of(descriptor.valueType(), valueAdapter));
+            this.envelope = new EnvelopeJson(context, options.contextTypes(), descriptor.dimensions(),
+                    options.sizeHints());
+            this.dictionary = keyAdapters.isEmpty() || options.maxInternedCoordinatesPerDimension() == 0 ? null
+                    : CoordinateDictionary.create(keyAdapters.size(), options.maxInternedCoordinatesPerDimension(),
+                    options.sharedCoordinateDictionary());
+            this.conditions = options.readFilter().forDimensions(descriptor.dimensions());
+            this.parallelReader = keyAdapters.isEmpty() ? null
+                    : new ParallelNestedReader<>(keyAdapters, valueAdapter, dictionary);
+        }
+
+    }
 
-    private <T> TypeAdapter<T> adapterFor(Class<T> valueType) {
+    private static <T> TypeAdapter<T> adapterFor(Gson context, Class<T> valueType) {
         return context.getAdapter(TypeToken.get(valueType));
     }
 
+    /**
+     * Within nested maps, gson resolves the adapters for keys and values by their runtime type. For final classes,
+     * this is always the adapter of the class itself, for all others we delegate to the object adapter, which does
+     * the runtime resolution, exactly as it is done within the map adapter.
+     */
+    @SuppressWarnings("unchecked")
+    private static TypeAdapter<Object> runtimeAdapterFor(Gson context, Class<?> type) {
+        if (Modifier.isFinal(type.getModifiers())) {
+            return (TypeAdapter<Object>) adapterFor(context, type);
+        }
+        return adapterFor(context, Object.class);
+    }
+
+    /**
+     * Gson does not expose, if complex map key serialization is enabled. Therefore, we find out by serializing a map
+     * with a key, which is a json array.
+     */
+    private static boolean complexMapKeySerializationOf(Gson context) {
+        TypeAdapter<Map<Object, Object>> mapAdapter = context.getAdapter(new TypeToken<Map<Object, Object>>() {
+        });
+        return mapAdapter.toJsonTree(singletonMap(emptyList(), 0)).isJsonArray();
+    }
+
 }
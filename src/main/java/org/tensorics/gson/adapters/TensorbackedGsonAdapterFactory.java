@@ -1,13 +1,78 @@
 package org.tensorics.gson.adapters;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.gson.Gson;
 import com.google.gson.TypeAdapter;
 import com.google.gson.TypeAdapterFactory;
 import com.google.gson.reflect.TypeToken;
 import org.tensorics.core.tensorbacked.Tensorbacked;
 
-class TensorbackedGsonAdapterFactory implements TypeAdapterFactory {
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
+import static java.util.Collections.emptyList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Creates the gson adapters for all tensorbacked types. A factory with default options is available as
+ * {@link TensorbackedGsonAdapter#FACTORY}. Factories with different options can be created through the
+ * {@link #builder()}, e.g.:
+ * <pre>
+ * Gson gson = new GsonBuilder()
+ *         .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()
+ *                 .withLayout(JsonLayout.COLUMNAR)
+ *                 .build())
+ *         .create();
+ * </pre>
+ */
+public class TensorbackedGsonAdapterFactory implements TypeAdapterFactory {
+
+    /**
+     * The default maximum amount of tensorbacked classes, of which the metadata is cached.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    /*
+     * Gson caches the created adapters itself (per gson instance), so this factory is only called once per type and
+     * gson instance. The (reflectively determined) descriptors however are independent of gson and therefore shared
+     * between all the gson instances using this factory. As a descriptor references its class, both keys and values
+     * are weak: a descriptor is kept as long as an adapter uses it, so that the cache itself never keeps the class
+     * loaders of (e.g. plugin) classes alive. As the cache is bounded, lookups of cached descriptors record their
+     * access for the eviction order, which now and then takes the lock of a segment of the cache. This is negligible, as
+     * it is only done once per type and gson instance.
+     */
+    private final LoadingCache<Class<?>, TensorbackedDescriptor<?, ?>> descriptors;
+    private final AdapterOptions options;
+    private final GeneratedTypes generatedTypes = new GeneratedTypes(
+            TensorbackedGsonAdapterFactory.class.getClassLoader());
+
+    TensorbackedGsonAdapterFactory() {
+        this(AdapterOptions.DEFAULT);
+    }
+
+    private TensorbackedGsonAdapterFactory(AdapterOptions options) {
+        this.options = requireNonNull(options, "options must not be null.");
+        this.descriptors = CacheBuilder.newBuilder()//
+                .weakKeys()//
+                .weakValues()//
+                .maximumSize(options.cacheSize())//
+                .recordStats()//
+                .build(CacheLoader.from(this::resolveDescriptor));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
 
     @Override
     public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
@@ -16,6 +81,256 @@ class TensorbackedGsonAdapterFactory implements TypeAdapterFactory {
             return null;
         }
         Class<? extends Tensorbacked<?>> tensorbackedClass = (Class<? extends Tensorbacked<?>>) rawType;
-        return new TensorbackedGsonAdapter(gson, tensorbackedClass);
+        return new TensorbackedGsonAdapter(gson, tensorbackedClass, () -> descriptorFor(tensorbackedClass), options);
+    }
+
+    /**
+     * @return a snapshot of the statistics of the cache of the tensorbacked metadata, which is shared by all the
+     * adapters created by this factory
+     */
+    public TensorbackedCacheStats cacheStats() {
+        CacheStats stats = descriptors.stats();
+        return new TensorbackedCacheStats(stats.hitCount(), stats.missCount(), stats.evictionCount(),
+                descriptors.size());
+    }
+
+    @VisibleForTesting
+    TensorbackedDescriptor<?, ?> descriptorFor(Class<? extends Tensorbacked<?>> tensorbackedClass) {
+        try {
+            return descriptors.getUnchecked(tensorbackedClass);
+        } catch (UncheckedExecutionException | ExecutionError e) {
+            /* Report invalid tensorbacked classes as if there was no cache */
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
+        }
+    }
+
+    /**
+     * Determines the descriptor of the given class: from the types registered on the builder, if it is one of them,
+     * then from the generated types, and only otherwise by reflection.
+     */
+    private TensorbackedDescriptor<?, ?> resolveDescriptor(Class<?> tensorbackedClass) {
+        TensorbackedType<?, ?> type = options.types().get(tensorbackedClass);
+        if (type == null) {
+            type = generatedTypes.typeOf(tensorbackedClass);
+        }
+        return type == null ? TensorbackedDescriptor.of((Class) tensorbackedClass)
+                : TensorbackedDescriptor.of((TensorbackedType) type);
+    }
+
+    public static class Builder {
+
+        JsonLayout layout = JsonLayout.NESTED;
+        ForkJoinPool parallelWritePool = null;
+        int parallelWriteThreshold = Integer.MAX_VALUE;
+        ForkJoinPool parallelReadPool = null;
+        int parallelReadThreshold = Integer.MAX_VALUE;
+        int maxInternedCoordinatesPerDimension = 0;
+        boolean sharedCoordinateDictionary = false;
+        CoordinateFilter readFilter = CoordinateFilter.all();
+        TensorbackedAdapterListener listener = null;
+        List<Class<?>> contextTypes = emptyList();
+        boolean sizeHints = false;
+        Map<Class<?>, TensorbackedType<?, ?>> types = new HashMap<>();
+        int cacheSize = DEFAULT_CACHE_SIZE;
+
+        private Builder() {
+            /* only instantiated through the static method */
+        }
+
+        /**
+         * Sets the json layout, in which non-scalar tensorbacked objects are written. The default is
+         * {@link JsonLayout#NESTED}. Deserialization always accepts the nested layout; the columnar one is only
+         * detected if it is set here, so that other adapters read a coordinate named {@code "@coordinates"} as usual.
+         *
+         * @param layout the layout to use for serialization
+         * @return this builder
+         */
+        public Builder withLayout(JsonLayout layout) {
+            this.layout = requireNonNull(layout, "layout must not be null.");
+            return this;
+        }
+
+        /**
+         * Enables the parallel serialization of big tensorbacked objects. The sub-maps of the top level coordinates are
+         * then rendered concurrently on the given pool and concatenated in the same order as they would be written
+         * sequentially, so the resulting json is the same. This applies only to the nested layout, to tensorbacked
+         * objects with at least two dimensions and to the json writers created by this library, which are known not
+         * to indent (i.e. when writing with a {@link TensorbackedByteWriter} of a gson without pretty printing). The
+         * writers given by gson (e.g. for {@code gson.toJson(...)}) might indent and are therefore always written
+         * sequentially. Parallel writing is disabled by default.
+         *
+         * @param pool       the pool on which to render the sub-maps, e.g. {@link ForkJoinPool#commonPool()}
+         * @param minEntries the minimum amount of entries of a tensor, from which on it is written in parallel
+         * @return this builder
+         */
+        public Builder withParallelWrites(ForkJoinPool pool, int minEntries) {
+            if (minEntries < 0) {
+                throw new IllegalArgumentException("minEntries must not be negative, but was " + minEntries + ".");
+            }
+            this.parallelWritePool = requireNonNull(pool, "pool must not be null.");
+            this.parallelWriteThreshold = minEntries;
+            return this;
+        }
+
+        /**
+         * Enables the parallel deserialization of tensorbacked objects in nested layout. The top level entries are then
+         * first scanned and the sub-maps are then read concurrently on the given pool. This applies only to
+         * tensorbacked objects with at least two dimensions. Parallel reading is disabled by default.
+         * <p>
+         * From a json reader, each sub-map is buffered as json tree while scanning, so the json is still tokenized on
+         * the calling thread and only the conversion of the coordinates and values is concurrent. This requires
+         * additional memory, in the order of the size of the json. {@link TensorbackedFileReader#read()} instead only
+         * skips the sub-maps on byte level and parses them concurrently from their ranges of the file.
+         *
+         * @param pool               the pool on which to read the sub-maps
+         * @param minTopLevelEntries the minimum amount of top level entries, from which on the sub-maps are read in
+         *                           parallel. Smaller objects are read on the calling thread.
+         * @return this builder
+         */
+        public Builder withParallelReads(ForkJoinPool pool, int minTopLevelEntries) {
+            if (minTopLevelEntries < 0) {
+                throw new IllegalArgumentException("minTopLevelEntries must not be negative, but was "
+                        + minTopLevelEntries + ".");
+            }
+            this.parallelReadPool = requireNonNull(pool, "pool must not be null.");
+            this.parallelReadThreshold = minTopLevelEntries;
+            return this;
+        }
+
+        /**
+         * Enables the interning of coordinates on deserialization of the nested layout: the json names of each
+         * dimension are mapped to canonical coordinate instances, so that each distinct key is converted only once and
+         * all the positions of the resulting tensors share the same coordinate instances. This reduces the parsing work
+         * and the retained memory of tensors with coordinates repeated under many parent keys. Interning is disabled
+         * by default.
+         *
+         * @param maxCoordinatesPerDimension the maximum amount of coordinates to keep per dimension. Further
+         *                                   coordinates are still read, but not interned.
+         * @param sharedAcrossReads          if {@code true}, one dictionary per tensorbacked class (and gson instance) is
+         *                                   kept for the lifetime of the adapter, so that also the coordinates of
+         *                                   different tensors are shared. Otherwise, each read starts with an empty
+         *                                   dictionary.
+         * @return this builder
+         */
+        public Builder withCoordinateInterning(int maxCoordinatesPerDimension, boolean sharedAcrossReads) {
+            if (maxCoordinatesPerDimension <= 0) {
+                throw new IllegalArgumentException("maxCoordinatesPerDimension must be positive, but was "
+                        + maxCoordinatesPerDimension + ".");
+            }
+            this.maxInternedCoordinatesPerDimension = maxCoordinatesPerDimension;
+            this.sharedCoordinateDictionary = sharedAcrossReads;
+            return this;
+        }
+
+        /**
+         * Restricts all the reads of the created adapters to the entries matching the given filter. Parts of the json,
+         * which do not match, are skipped without being materialized. This is useful for gson instances dedicated to
+         * consumers, which only ever need some slices of big tensorbacked objects. For filtering single reads, see
+         * {@link TensorbackedGsonAdapter#read(com.google.gson.stream.JsonReader, CoordinateFilter)}.
+         *
+         * @param filter the filter for the entries to read
+         * @return this builder
+         */
+        public Builder withReadFilter(CoordinateFilter filter) {
+            this.readFilter = requireNonNull(filter, "filter must not be null.");
+            return this;
+        }
+
+        /**
+         * Registers a listener, which is notified after each read and write of a tensorbacked object with statistics
+         * about it (entry count, amount of dimensions, encoded size and the duration of the phases). Without a listener
+         * (the default), no statistics are collected at all.
+         *
+         * @param listener the listener to notify
+         * @return this builder
+         */
+        public Builder withListener(TensorbackedAdapterListener listener) {
+            this.listener = requireNonNull(listener, "listener must not be null.");
+            return this;
+        }
+
+        /**
+         * Enables the serialization of the context of the tensors. As the types of the context coordinates are not
+         * defined by the tensorbacked classes, they have to be registered here. A non-empty context is then written in
+         * an envelope next to the content, e.g.:
+         * <pre>
+         * {"@context":{"org.example.Plane":"XY"},"@tensor":{"A":{"1":0.11}}}
+         * </pre>
+         * Context coordinates of other types are skipped, so that a context without coordinates of the registered types
+         * is not written at all. On deserialization, the context is restored (for the registered types). The context is
+         * not serialized by default.
+         * The envelope is only detected on deserialization, if context types are registered or size hints are enabled;
+         * otherwise, names like {@code "@context"} are read as coordinates. The partial reads of a
+         * {@link TensorbackedFileReader} do not support the envelope.
+         *
+         * @param types the types of the context coordinates. A coordinate is written under the name of the first
+         *              type, of which it is an instance.
+         * @return this builder
+         */
+        public Builder withContextTypes(Class<?>... types) {
+            requireNonNull(types, "types must not be null.");
+            for (Class<?> type : types) {
+                requireNonNull(type, "types must not contain null.");
+            }
+            this.contextTypes = Arrays.asList(types.clone());
+            return this;
+        }
+
+        /**
+         * Enables writing a size hint into the envelope of non-scalar tensorbacked objects: the amount of entries and
+         * of distinct coordinates per dimension, e.g.:
+         * <pre>
+         * {"@size":{"entries":4,"coordinates":[2,2]},"@tensor":{"A":{"1":0.11,"2":0.12},"B":{"1":0.21,"2":0.22}}}
+         * </pre>
+         * On deserialization, the hint is used to size the intermediate structures (coordinate dictionaries and the
+         * buffers of parallel reads) up front. Computing the hint costs an additional pass over the entries on
+         * serialization. The hint is not written by default. The envelope is only detected on deserialization, if size
+         * hints are enabled or context types are registered (see {@link #withContextTypes(Class[])}).
+         *
+         * @return this builder
+         */
+        public Builder withSizeHints() {
+            this.sizeHints = true;
+            return this;
+        }
+
+        /**
+         * Registers tensorbacked types, of which the metadata shall not be determined by reflection. Their adapters
+         * also create the instances through the given constructors (if any) instead of through tensorics. This takes
+         * precedence over the types generated by the {@link org.tensorics.gson.processor.TensorbackedTypeProcessor}.
+         *
+         * @param tensorbackedTypes the types to register. A later type replaces an earlier one of the same class.
+         * @return this builder
+         */
+        public Builder withTypes(TensorbackedType<?, ?>... tensorbackedTypes) {
+            requireNonNull(tensorbackedTypes, "tensorbackedTypes must not be null.");
+            for (TensorbackedType<?, ?> type : tensorbackedTypes) {
+                requireNonNull(type, "tensorbackedTypes must not contain null.");
+                this.types.put(type.tensorbackedClass(), type);
+            }
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of tensorbacked classes, of which the metadata (dimensions, value type) is cached by
+         * the factory. When the cache is full, the least recently used entries are evicted and determined again when
+         * needed. The default is {@value TensorbackedGsonAdapterFactory#DEFAULT_CACHE_SIZE}. Independent of this, the
+         * metadata of classes, which are not used by any adapter anymore, can be garbage collected.
+         *
+         * @param maximumSize the maximum amount of cached classes
+         * @return this builder
+         */
+        public Builder withCacheSize(int maximumSize) {
+            if (maximumSize < 0) {
+                throw new IllegalArgumentException("maximumSize must not be negative, but was " + maximumSize + ".");
+            }
+            this.cacheSize = maximumSize;
+            return this;
+        }
+
+        public TensorbackedGsonAdapterFactory build() {
+            return new TensorbackedGsonAdapterFactory(new AdapterOptions(this));
+        }
     }
 }
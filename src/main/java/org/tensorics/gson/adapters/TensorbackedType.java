@@ -0,0 +1,96 @@
+package org.tensorics.gson.adapters;
+
+import com.google.common.collect.ImmutableList;
+import org.tensorics.core.tensor.Tensor;
+import org.tensorics.core.tensorbacked.Tensorbacked;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The metadata of a tensorbacked class (its dimensions and value type) together with a way to instantiate it, given
+ * explicitly instead of being determined by reflection. Types can be registered on the factory with
+ * {@link TensorbackedGsonAdapterFactory.Builder#withTypes(TensorbackedType[])}, or generated at compile time by the
+ * {@link org.tensorics.gson.processor.TensorbackedTypeProcessor}. Instances are immutable.
+ * <p>
+ * Example:
+ * <pre>
+ * TensorbackedType.of(MyTensorbacked.class, Double.class, Arrays.asList(String.class, Integer.class), MyTensorbacked::new);
+ * </pre>
+ *
+ * @param <V>  the type of the values of the tensorbacked
+ * @param <TB> the type of the tensorbacked
+ */
+public final class TensorbackedType<V, TB extends Tensorbacked<V>> {
+
+    private final Class<TB> tensorbackedClass;
+    private final Class<V> valueType;
+    private final List<Class<?>> dimensions;
+    private final Function<Tensor<V>, TB> constructor;
+
+    private TensorbackedType(Class<TB> tensorbackedClass, Class<V> valueType, List<Class<?>> dimensions,
+                             Function<Tensor<V>, TB> constructor) {
+        this.tensorbackedClass = requireNonNull(tensorbackedClass, "tensorbackedClass must not be null.");
+        this.valueType = requireNonNull(valueType, "valueType must not be null.");
+        this.dimensions = ImmutableList.copyOf(requireNonNull(dimensions, "dimensions must not be null."));
+        this.constructor = constructor;
+    }
+
+    /**
+     * @param tensorbackedClass the tensorbacked class
+     * @param valueType         the type of the values of the tensorbacked
+     * @param dimensions        the dimensions of the tensorbacked, in the order in which they are nested in json
+     * @param constructor       creates an instance backed by the given tensor, e.g. the constructor of the class
+     * @return a new type
+     */
+    public static <V, TB extends Tensorbacked<V>> TensorbackedType<V, TB> of(Class<TB> tensorbackedClass,
+                                                                             Class<V> valueType,
+                                                                             List<Class<?>> dimensions,
+                                                                             Function<Tensor<V>, TB> constructor) {
+        return new TensorbackedType<>(tensorbackedClass, valueType, dimensions,
+                requireNonNull(constructor, "constructor must not be null."));
+    }
+
+    /**
+     * Same as {@link #of(Class, Class, List, Function)}, but for classes which cannot be instantiated directly (e.g.
+     * interfaces): instances are then created by tensorics (through a proxy).
+     *
+     * @param tensorbackedClass the tensorbacked class
+     * @param valueType         the type of the values of the tensorbacked
+     * @param dimensions        the dimensions of the tensorbacked, in the order in which they are nested in json
+     * @return a new type
+     */
+    public static <V, TB extends Tensorbacked<V>> TensorbackedType<V, TB> of(Class<TB> tensorbackedClass,
+                                                                             Class<V> valueType,
+                                                                             List<Class<?>> dimensions) {
+        return new TensorbackedType<>(tensorbackedClass, valueType, dimensions, null);
+    }
+
+    public Class<TB> tensorbackedClass() {
+        return tensorbackedClass;
+    }
+
+    public Class<V> valueType() {
+        return valueType;
+    }
+
+    public List<Class<?>> dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * @return the function creating instances, or {@code null} if tensorics shall create them
+     */
+    Function<Tensor<V>, TB> constructor() {
+        return constructor;
+    }
+
+    @Override
+    public String toString() {
+        return "TensorbackedType{" + tensorbackedClass.getName() + ", valueType=" + valueType.getName()
+                + ", dimensions=" + dimensions + '}';
+    }
+
+}
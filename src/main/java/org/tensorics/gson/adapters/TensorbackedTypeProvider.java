@@ -0,0 +1,18 @@
+package org.tensorics.gson.adapters;
+
+/**
+ * Provides a tensorbacked type, which was generated at compile time by the
+ * {@link org.tensorics.gson.processor.TensorbackedTypeProcessor}. The generated providers are registered as services
+ * ({@code META-INF/services/org.tensorics.gson.adapters.TensorbackedTypeProvider}) and picked up by all the
+ * {@link TensorbackedGsonAdapterFactory} instances. A provider is only instantiated when its tensorbacked class is
+ * first used; it is found by its name, which is the one generated by the processor (the name of the tensorbacked class,
+ * with '_' instead of '$', followed by {@code _TensorbackedType}). Providers which cannot be loaded are ignored.
+ */
+public interface TensorbackedTypeProvider {
+
+    /**
+     * @return the provided type
+     */
+    TensorbackedType<?, ?> type();
+
+}
@@ -0,0 +1,76 @@
+package org.tensorics.gson.adapters;
+
+import org.tensorics.core.lang.Tensorics;
+import org.tensorics.core.tensor.Position;
+import org.tensorics.core.tensor.Tensor;
+import org.tensorics.core.tensor.TensorBuilder;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lets a repeated top level key of a json object replace the earlier occurrences (as for a map read by gson, and as
+ * in the {@link ParallelNestedReader}), while a {@link NestedEntryReader} streams the entries into a tensor builder.
+ * As entries cannot be removed from the builder, the entries of a repeated key are collected aside and replace the
+ * earlier ones, when the tensor is built. Without repeated keys, this only costs a set of the top level keys.
+ *
+ * @param <V> the type of the values of the tensor
+ */
+final class TopLevelDuplicates<V> {
+
+    private final Set<Object> keys = new HashSet<>();
+    private final Map<Object, Map<Position, V>> replacements = new HashMap<>();
+    private Map<Position, V> current;
+
+    /**
+     * Called by the reader for each top level key of a json object, before its entries (also if it is filtered out or
+     * has no entries).
+     */
+    void onKey(Object key) {
+        if (keys.add(key)) {
+            current = null;
+        } else {
+            current = new LinkedHashMap<>();
+            replacements.put(key, current);
+        }
+    }
+
+    /**
+     * Puts the given entry of the current top level key into the builder, or aside, if the key is repeated.
+     */
+    void put(TensorBuilder<V> builder, Position position, V value) {
+        if (current == null) {
+            builder.put(position, value);
+        } else {
+            current.put(position, value);
+        }
+    }
+
+    /**
+     * Builds the tensor of the given builder, with the entries of the repeated keys replacing the earlier ones.
+     */
+    Tensor<V> build(TensorBuilder<V> builder, List<Class<?>> dimensions) {
+        Tensor<V> tensor = builder.build();
+        if (replacements.isEmpty()) {
+            return tensor;
+        }
+        TensorBuilder<V> replaced = Tensorics.builder(dimensions);
+        replaced.context(tensor.context());
+        for (Map.Entry<Position, V> entry : tensor.asMap().entrySet()) {
+            if (!replacements.containsKey(entry.getKey().coordinateFor(dimensions.get(0)))) {
+                replaced.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (Map<Position, V> entries : replacements.values()) {
+            for (Map.Entry<Position, V> entry : entries.entrySet()) {
+                replaced.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return replaced.build();
+    }
+
+}
@@ -0,0 +1,258 @@
+package org.tensorics.gson.adapters;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The byte ranges of the top level entries of a tensor in nested layout within a file. The file is scanned on byte
+ * level only (matching brackets and skipping strings), without parsing the values, so that single sub-maps can later
+ * be decoded without parsing the rest of the file. Both the json object and the array of entry arrays (as written for
+ * complex map keys) are supported.
+ */
+final class TopLevelIndex {
+
+    private static final long REGION_SIZE = 256L * 1024 * 1024;
+
+    /**
+     * One top level entry.
+     */
+    static final class Entry {
+
+        private final String key;
+        private final boolean keyIsName;
+        private final long valueStart;
+        private final long valueEnd;
+
+        private Entry(String key, boolean keyIsName, long valueStart, long valueEnd) {
+            this.key = key;
+            this.keyIsName = keyIsName;
+            this.valueStart = valueStart;
+            this.valueEnd = valueEnd;
+        }
+
+        /**
+         * @return the json name (if {@link #keyIsName()}) or the json of the key (within an entry array)
+         */
+        String key() {
+            return key;
+        }
+
+        boolean keyIsName() {
+            return keyIsName;
+        }
+
+        long valueStart() {
+            return valueStart;
+        }
+
+        long valueEnd() {
+            return valueEnd;
+        }
+    }
+
+    private final FileChannel file;
+    private final long end;
+    private long regionStart;
+    private ByteBuffer region;
+
+    private TopLevelIndex(FileChannel file, long start, long end) throws IOException {
+        this.file = file;
+        this.end = end;
+        map(start);
+    }
+
+    /**
+     * Scans the given range of the file, which must contain exactly one json object or array.
+     *
+     * @return the top level entries in the order of the file
+     */
+    static List<Entry> scan(FileChannel file, long start, long end) throws IOException {
+        return new TopLevelIndex(file, start, end).scan();
+    }
+
+    private List<Entry> scan() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        int first = nextNonWhitespace();
+        if (first == '{') {
+            int next = nextNonWhitespace();
+            while (next != '}') {
+                expect(next, '"');
+                long nameStart = position() - 1;
+                skipString();
+                String name = new JsonReader(new StringReader(slice(nameStart, position()))).nextString();
+                expect(nextNonWhitespace(), ':');
+                long valueStart = skipWhitespace();
+                skipValue();
+                entries.add(new Entry(name, true, valueStart, position()));
+                next = nextNonWhitespace();
+                if (next == ',') {
+                    next = nextNonWhitespace();
+                } else {
+                    expect(next, '}');
+                }
+            }
+        } else if (first == '[') {
+            int next = nextNonWhitespace();
+            while (next != ']') {
+                expect(next, '[');
+                long keyStart = skipWhitespace();
+                skipValue();
+                String key = slice(keyStart, position());
+                expect(nextNonWhitespace(), ',');
+                long valueStart = skipWhitespace();
+                skipValue();
+                entries.add(new Entry(key, false, valueStart, position()));
+                expect(nextNonWhitespace(), ']');
+                next = nextNonWhitespace();
+                if (next == ',') {
+                    next = nextNonWhitespace();
+                } else {
+                    expect(next, ']');
+                }
+            }
+        } else {
+            throw new JsonSyntaxException("Expected a json object or array to index, but found '" + (char) first
+                    + "' at byte " + (position() - 1));
+        }
+        skipWhitespace();
+        if (peek() != -1) {
+            throw new JsonSyntaxException("Expected the end of the json, but found '" + (char) peek() + "' at byte "
+                    + position());
+        }
+        return entries;
+    }
+
+    private void skipValue() throws IOException {
+        int first = peek();
+        if (first == '"') {
+            next();
+            skipString();
+            return;
+        }
+        if (first != '{' && first != '[') {
+            /* a literal or number: up to the next structural character or whitespace */
+            while (true) {
+                int b = peek();
+                if (b == -1 || b == ',' || b == '}' || b == ']' || isWhitespace(b)) {
+                    return;
+                }
+                next();
+            }
+        }
+        int depth = 0;
+        do {
+            int b = next();
+            if (b == '"') {
+                skipString();
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+            } else if (b == -1) {
+                throw new JsonSyntaxException("Unterminated json value at byte " + position());
+            }
+        } while (depth > 0);
+    }
+
+    /**
+     * Skips the rest of a string, of which the opening quote is already consumed.
+     */
+    private void skipString() throws IOException {
+        while (true) {
+            int b = next();
+            if (b == '"') {
+                return;
+            } else if (b == '\\') {
+                next();
+            } else if (b == -1) {
+                throw new JsonSyntaxException("Unterminated string at byte " + position());
+            }
+        }
+    }
+
+    /**
+     * @return the position of the next non-whitespace byte, which is not consumed
+     */
+    private long skipWhitespace() throws IOException {
+        while (isWhitespace(peek())) {
+            next();
+        }
+        return position();
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        skipWhitespace();
+        return next();
+    }
+
+    private void expect(int actual, char expected) {
+        if (actual != expected) {
+            throw new JsonSyntaxException("Expected '" + expected + "' but found "
+                    + (actual == -1 ? "end of input" : "'" + (char) actual + "'") + " at byte " + (position() - 1));
+        }
+    }
+
+    private static boolean isWhitespace(int b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    private String slice(long from, long to) throws IOException {
+        if (to - from > Integer.MAX_VALUE) {
+            throw new JsonSyntaxException("Key too long at byte " + from);
+        }
+        ByteBuffer bytes;
+        if (from >= regionStart) {
+            /* The range was just scanned, so it is usually within the current region */
+            bytes = region.duplicate();
+            bytes.limit((int) (to - regionStart));
+            bytes.position((int) (from - regionStart));
+        } else {
+            /* only if it crosses the border of two regions */
+            bytes = file.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        }
+        return StandardCharsets.UTF_8.decode(bytes).toString();
+    }
+
+    private long position() {
+        return regionStart + region.position();
+    }
+
+    private int peek() throws IOException {
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        return region.get(region.position()) & 0xFF;
+    }
+
+    private int next() throws IOException {
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        return region.get() & 0xFF;
+    }
+
+    private boolean ensureAvailable() throws IOException {
+        if (region.hasRemaining()) {
+            return true;
+        }
+        if (position() >= end) {
+            return false;
+        }
+        map(position());
+        return true;
+    }
+
+    private void map(long position) throws IOException {
+        regionStart = position;
+        region = file.map(FileChannel.MapMode.READ_ONLY, position, Math.min(REGION_SIZE, end - position));
+    }
+
+}
@@ -0,0 +1,190 @@
+package org.tensorics.gson.adapters;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+
+/**
+ * A writer, which encodes the characters directly as UTF-8 into a byte buffer, without intermediate strings or byte
+ * arrays. Whenever the buffer is full, it is handed to the {@link Sink}, which empties it (or provides another one).
+ * Already encoded bytes (e.g. cached json names) can be written directly by {@link #writeBytes(byte[])}.
+ */
+final class Utf8BufferWriter extends Writer {
+
+    /**
+     * The destination of the encoded bytes.
+     */
+    interface Sink {
+
+        /**
+         * Takes over the content of the given (full) buffer, which is in write mode, and returns a buffer (in write
+         * mode, with at least 4 bytes remaining) to continue writing to.
+         */
+        ByteBuffer drain(ByteBuffer buffer) throws IOException;
+
+        /**
+         * Takes over the remaining content of the given buffer. The buffer is not used by the writer anymore
+         * afterwards.
+         */
+        void finish(ByteBuffer buffer) throws IOException;
+
+        /**
+         * Discards the given buffer, as the writing failed. The buffer is not used by the writer anymore afterwards.
+         * By default, nothing is done.
+         */
+        default void abort(ByteBuffer buffer) throws IOException {
+            /* nothing to release */
+        }
+    }
+
+    private static final char REPLACEMENT = '?';
+
+    private final Sink sink;
+    private ByteBuffer buffer;
+    private char highSurrogate;
+    private boolean finished = false;
+    private long drainedBytes = 0;
+
+    Utf8BufferWriter(Sink sink, ByteBuffer initialBuffer) {
+        this.sink = sink;
+        this.buffer = initialBuffer;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        writeChar((char) c);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            writeChar(chars[i]);
+        }
+    }
+
+    @Override
+    public void write(String string, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            writeChar(string.charAt(i));
+        }
+    }
+
+    void writeByte(int b) throws IOException {
+        ensureRemaining(1);
+        buffer.put((byte) b);
+    }
+
+    void writeBytes(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            int count = Math.min(bytes.length - offset, buffer.remaining());
+            buffer.put(bytes, offset, count);
+            offset += count;
+        }
+    }
+
+    /**
+     * Writes the given string, which must only contain ASCII characters, without encoding it.
+     */
+    void writeAscii(String ascii) throws IOException {
+        for (int i = 0; i < ascii.length(); i++) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.put((byte) ascii.charAt(i));
+        }
+    }
+
+    private void writeChar(char c) throws IOException {
+        if (highSurrogate != 0) {
+            char high = highSurrogate;
+            highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(high, c);
+                ensureRemaining(4);
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+                return;
+            }
+            writeByte(REPLACEMENT); // unpaired surrogate, same as String.getBytes
+        }
+
+        if (c < 0x80) {
+            ensureRemaining(1);
+            buffer.put((byte) c);
+        } else if (c < 0x800) {
+            ensureRemaining(2);
+            buffer.put((byte) (0xC0 | (c >> 6)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            writeByte(REPLACEMENT);
+        } else {
+            ensureRemaining(3);
+            buffer.put((byte) (0xE0 | (c >> 12)));
+            buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        }
+    }
+
+    private void ensureRemaining(int count) throws IOException {
+        if (buffer.remaining() < count) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        drainedBytes += buffer.position();
+        buffer = sink.drain(buffer);
+    }
+
+    /**
+     * @return the amount of bytes encoded so far
+     */
+    long bytesWritten() {
+        return drainedBytes + buffer.position();
+    }
+
+    /**
+     * Does nothing, as the bytes are only handed to the sink when the buffer is full or on {@link #close()}.
+     */
+    @Override
+    public void flush() {
+        /* nothing to do */
+    }
+
+    /**
+     * Hands the remaining bytes to the sink. The sink itself (e.g. a channel) is not closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (highSurrogate != 0) {
+            highSurrogate = 0;
+            writeByte(REPLACEMENT);
+        }
+        sink.finish(buffer);
+    }
+
+    /**
+     * Discards the bytes, which were not handed to the sink yet (instead of {@link #close()}), e.g. after an error
+     * while writing. Bytes of buffers, which were already full, might have been taken over by the sink already.
+     */
+    void abort() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        sink.abort(buffer);
+    }
+
+}
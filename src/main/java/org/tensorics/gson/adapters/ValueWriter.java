@@ -0,0 +1,205 @@
+package org.tensorics.gson.adapters;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.internal.bind.TypeAdapters;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+/**
+ * Writes the values of a tensor. For the boxed primitive value types ({@link Double}, {@link Long}, {@link Integer}
+ * and {@link Boolean}), the leaves are written directly as json primitives: by {@link JsonWriter#value(double)} (and
+ * the like) or, on the UTF-8 path, as ASCII bytes, instead of being dispatched through the boxed gson adapter and the
+ * generic number handling of the json writer. All other values are written by their gson adapter.
+ * <p>
+ * The primitive path is only taken, if gson resolves the value type to its own built-in adapter (so custom adapters,
+ * the long serialization policy etc. are respected) and if this adapter writes the same json as the primitive path
+ * for a set of probe values. Even then, the values which the built-in adapters treat specially ({@code null} and the
+ * special floating point values) are written by the gson adapter.
+ */
+final class ValueWriter {
+
+    private enum Primitive {
+        DOUBLE,
+        LONG,
+        INTEGER,
+        BOOLEAN
+    }
+
+    /**
+     * The built-in adapter of gson for doubles, if special floating point values are not serialized. It is created
+     * per gson instance, so it can only be recognized by its class.
+     */
+    private static final Class<?> CHECKED_DOUBLE_ADAPTER_CLASS = new Gson().getAdapter(Double.class).getClass();
+
+    private final TypeAdapter<Object> adapter;
+    private final Primitive primitive;
+
+    private ValueWriter(TypeAdapter<Object> adapter, Primitive primitive) {
+        this.adapter = adapter;
+        this.primitive = primitive;
+    }
+
+    /**
+     * @param valueType the value type of the tensors
+     * @param adapter   the gson adapter for the values
+     */
+    @SuppressWarnings("unchecked")
+    static ValueWriter of(Class<?> valueType, TypeAdapter<?> adapter) {
+        TypeAdapter<Object> objectAdapter = (TypeAdapter<Object>) adapter;
+        Primitive primitive = builtInPrimitive(valueType, adapter);
+        if (primitive == null) {
+            return new ValueWriter(objectAdapter, null);
+        }
+        ValueWriter candidate = new ValueWriter(objectAdapter, primitive);
+        return candidate.writesAsAdapter() ? candidate : new ValueWriter(objectAdapter, null);
+    }
+
+    private static Primitive builtInPrimitive(Class<?> valueType, TypeAdapter<?> adapter) {
+        if (Double.class.equals(valueType)
+                && (adapter == TypeAdapters.DOUBLE || adapter.getClass() == CHECKED_DOUBLE_ADAPTER_CLASS)) {
+            return Primitive.DOUBLE;
+        }
+        if (Long.class.equals(valueType) && adapter == TypeAdapters.LONG) {
+            return Primitive.LONG;
+        }
+        if (Integer.class.equals(valueType) && adapter == TypeAdapters.INTEGER) {
+            return Primitive.INTEGER;
+        }
+        if (Boolean.class.equals(valueType) && adapter == TypeAdapters.BOOLEAN) {
+            return Primitive.BOOLEAN;
+        }
+        return null;
+    }
+
+    private boolean writesAsAdapter() {
+        List<?> probes = probes();
+        try {
+            for (Object probe : probes) {
+                StringWriter expected = new StringWriter();
+                adapter.write(new JsonWriter(expected), probe);
+                StringWriter actual = new StringWriter();
+                JsonWriter out = new JsonWriter(actual);
+                if (!writePrimitive(out, probe) || !actual.toString().equals(expected.toString())
+                        || !asciiOf(probe).equals(expected.toString())) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private List<?> probes() {
+        switch (primitive) {
+            case DOUBLE:
+                return ImmutableList.of(0.0, -1.5, 0.1, 42.0, 1.0E-300, -3.3E300);
+            case LONG:
+                return ImmutableList.of(0L, -1L, Long.MAX_VALUE, Long.MIN_VALUE);
+            case INTEGER:
+                return ImmutableList.of(0, -1, Integer.MAX_VALUE, Integer.MIN_VALUE);
+            default:
+                return ImmutableList.of(true, false);
+        }
+    }
+
+    /**
+     * @return {@code true} if the values are written as json primitives (at least the usual ones)
+     */
+    boolean isPrimitive() {
+        return primitive != null;
+    }
+
+    /**
+     * @return {@code true} if the given value is written as json null. On the primitive path (and for the string
+     * adapter of gson), this is only the case for {@code null}. For other adapters, the value is written to a json
+     * tree to find out.
+     */
+    boolean writesNull(Object value) {
+        if (value == null) {
+            return true;
+        }
+        if (primitive != null || (TypeAdapter<?>) adapter == TypeAdapters.STRING) {
+            return false;
+        }
+        return adapter.toJsonTree(value).isJsonNull();
+    }
+
+    /**
+     * Writes the given value.
+     */
+    void write(JsonWriter out, Object value) throws IOException {
+        if (!writePrimitive(out, value)) {
+            adapter.write(out, value);
+        }
+    }
+
+    /**
+     * Writes the given value on the UTF-8 path: the json primitives directly as bytes, all others through the given
+     * json writer, which writes to the same output.
+     *
+     * @param out      the output
+     * @param valueOut a lenient json writer on the same output
+     * @param value    the value to write
+     */
+    void write(Utf8BufferWriter out, JsonWriter valueOut, Object value) throws IOException {
+        String ascii = isPlain(value) ? asciiOf(value) : null;
+        if (ascii == null) {
+            adapter.write(valueOut, value);
+        } else {
+            out.writeAscii(ascii);
+        }
+    }
+
+    private boolean writePrimitive(JsonWriter out, Object value) throws IOException {
+        if (!isPlain(value)) {
+            return false;
+        }
+        switch (primitive) {
+            case DOUBLE:
+                out.value(((Double) value).doubleValue());
+                return true;
+            case LONG:
+                out.value(((Long) value).longValue());
+                return true;
+            case INTEGER:
+                out.value(((Integer) value).longValue());
+                return true;
+            default:
+                out.value(((Boolean) value).booleanValue());
+                return true;
+        }
+    }
+
+    /**
+     * @return {@code true} if the given value can be written on the primitive path
+     */
+    private boolean isPlain(Object value) {
+        if (primitive == null || value == null) {
+            return false;
+        }
+        return primitive != Primitive.DOUBLE || !(((Double) value).isNaN() || ((Double) value).isInfinite());
+    }
+
+    /**
+     * @return the json of a plain value, which is the same as the one of {@link JsonWriter}
+     */
+    private String asciiOf(Object value) {
+        switch (primitive) {
+            case DOUBLE:
+                return Double.toString((Double) value);
+            case LONG:
+                return Long.toString((Long) value);
+            case INTEGER:
+                return Integer.toString((Integer) value);
+            default:
+                return Boolean.toString((Boolean) value);
+        }
+    }
+
+}
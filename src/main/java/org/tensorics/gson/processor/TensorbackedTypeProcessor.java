@@ -0,0 +1,285 @@
+package org.tensorics.gson.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Generates a {@link org.tensorics.gson.adapters.TensorbackedTypeProvider} for each tensorbacked class compiled with
+ * this processor, so that the {@link org.tensorics.gson.adapters.TensorbackedGsonAdapterFactory} does not have to
+ * determine the dimensions and the value type by reflection at runtime. The processor is not registered as a service,
+ * so that it does not run for every compilation which has the library on its classpath. It has to be enabled
+ * explicitly, e.g. for gradle:
+ * <pre>
+ * annotationProcessor group: 'org.tensorics', name: 'tensorics-gson', version: '...'
+ * compileJava.options.compilerArgs += ['-processor', 'org.tensorics.gson.processor.TensorbackedTypeProcessor']
+ * </pre>
+ * (As {@code -processor} disables the discovery of processors, other processors of the compilation have to be listed
+ * there as well, separated by commas.)
+ * Types are generated for classes annotated with {@code @Dimensions} and for interfaces extending one of the
+ * dimension-typed tensorbacked interfaces ({@code Tensorbacked1d}, {@code Tensorbacked2d}, ...,
+ * {@code TensorbackedScalar}) with concrete type arguments. Concrete classes with an accessible constructor taking the
+ * tensor are instantiated through this constructor; all others (e.g. interfaces) are still instantiated by tensorics.
+ * Generic or private classes, as well as classes inheriting their dimensions, are skipped: they are handled by
+ * reflection at runtime, as without the processor.
+ * <p>
+ * The generated providers are registered in {@code META-INF/services/org.tensorics.gson.adapters.TensorbackedTypeProvider}
+ * of the compilation output.
+ */
+@SupportedAnnotationTypes("*")
+public class TensorbackedTypeProcessor extends AbstractProcessor {
+
+    private static final String TENSORBACKED = "org.tensorics.core.tensorbacked.Tensorbacked";
+    private static final String DIMENSIONS = "org.tensorics.core.tensorbacked.annotation.Dimensions";
+    private static final String TENSOR = "org.tensorics.core.tensor.Tensor";
+    private static final Pattern DIMTYPED = Pattern.compile(
+            "org\\.tensorics\\.core\\.tensorbacked\\.dimtyped\\.(Tensorbacked\\d+d|TensorbackedScalar)");
+    private static final String PROVIDER = "org.tensorics.gson.adapters.TensorbackedTypeProvider";
+    private static final String SUFFIX = "_TensorbackedType";
+
+    private final Set<String> providers = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            if (!providers.isEmpty()) {
+                writeServices();
+            }
+            return false;
+        }
+        TypeElement tensorbacked = processingEnv.getElementUtils().getTypeElement(TENSORBACKED);
+        if (tensorbacked == null) {
+            return false; // tensorics is not on the classpath of this compilation
+        }
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            processRecursively(type, tensorbacked);
+        }
+        /* The annotations are not claimed, so that other processors still see them */
+        return false;
+    }
+
+    private void processRecursively(TypeElement type, TypeElement tensorbacked) {
+        if (type.getModifiers().contains(Modifier.PRIVATE)) {
+            return;
+        }
+        if (type.getTypeParameters().isEmpty() && processingEnv.getTypeUtils().isAssignable(
+                processingEnv.getTypeUtils().erasure(type.asType()), processingEnv.getTypeUtils().erasure(
+                        tensorbacked.asType())) && !type.getQualifiedName().contentEquals(TENSORBACKED)) {
+            generate(type);
+        }
+        for (TypeElement member : ElementFilter.typesIn(type.getEnclosedElements())) {
+            processRecursively(member, tensorbacked);
+        }
+    }
+
+    private void generate(TypeElement type) {
+        DeclaredType tensorbackedType = findSupertype(type.asType(), TENSORBACKED::equals);
+        if (tensorbackedType == null || tensorbackedType.getTypeArguments().size() != 1) {
+            return;
+        }
+        String valueType = classLiteralOf(tensorbackedType.getTypeArguments().get(0));
+        List<String> dimensions = dimensionsOf(type);
+        if (valueType == null || dimensions == null) {
+            return;
+        }
+
+        String packageName = packageOf(type).getQualifiedName().toString();
+        String simpleName = binarySimpleName(type) + SUFFIX;
+        String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        String typeName = processingEnv.getTypeUtils().erasure(type.asType()).toString();
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("/**\n * Generated by ").append(getClass().getName()).append(" for {@link ").append(typeName)
+                .append("}.\n */\n");
+        source.append("public final class ").append(simpleName).append(" implements ").append(PROVIDER)
+                .append(" {\n\n");
+        source.append("    @Override\n");
+        source.append("    public org.tensorics.gson.adapters.TensorbackedType<?, ?> type() {\n");
+        source.append("        return org.tensorics.gson.adapters.TensorbackedType.of(").append(typeName)
+                .append(".class, ").append(valueType).append(",\n");
+        source.append("                java.util.Arrays.<Class<?>>asList(").append(String.join(", ", dimensions))
+                .append(")");
+        if (hasTensorConstructor(type)) {
+            source.append(",\n                ").append(typeName).append("::new");
+        }
+        source.append(");\n");
+        source.append("    }\n\n");
+        source.append("}\n");
+
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, type);
+            try (Writer writer = file.openWriter()) {
+                writer.write(source.toString());
+            }
+            providers.add(qualifiedName);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Cannot write the tensorbacked type " + qualifiedName + ": " + e, type);
+        }
+    }
+
+    /**
+     * @return the class literals of the dimensions, or {@code null} if they cannot be determined at compile time
+     */
+    private List<String> dimensionsOf(TypeElement type) {
+        for (AnnotationMirror annotation : type.getAnnotationMirrors()) {
+            if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName()
+                    .contentEquals(DIMENSIONS)) {
+                return dimensionsOf(annotation);
+            }
+        }
+        DeclaredType dimtyped = findSupertype(type.asType(), name -> DIMTYPED.matcher(name).matches());
+        if (dimtyped == null || type.getKind() != ElementKind.INTERFACE) {
+            /* Classes without annotation might inherit the dimensions: this is left to the runtime */
+            return null;
+        }
+        List<? extends TypeMirror> arguments = dimtyped.getTypeArguments();
+        List<String> dimensions = new ArrayList<>();
+        for (TypeMirror argument : arguments.subList(0, arguments.size() - 1)) {
+            String dimension = classLiteralOf(argument);
+            if (dimension == null) {
+                return null;
+            }
+            dimensions.add(dimension);
+        }
+        return dimensions;
+    }
+
+    private static List<String> dimensionsOf(AnnotationMirror annotation) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> element : annotation
+                .getElementValues().entrySet()) {
+            if (element.getKey().getSimpleName().contentEquals("value")) {
+                List<String> dimensions = new ArrayList<>();
+                for (Object value : (List<?>) element.getValue().getValue()) {
+                    TypeMirror dimension = (TypeMirror) ((AnnotationValue) value).getValue();
+                    dimensions.add(dimension + ".class");
+                }
+                return dimensions;
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Searches the given type and all its super types for a type of the given name, with the type arguments resolved
+     * as far as possible.
+     */
+    private DeclaredType findSupertype(TypeMirror type, Predicate<String> name) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        DeclaredType declared = (DeclaredType) type;
+        if (name.test(((TypeElement) declared.asElement()).getQualifiedName().toString())) {
+            return declared;
+        }
+        for (TypeMirror supertype : processingEnv.getTypeUtils().directSupertypes(type)) {
+            DeclaredType found = findSupertype(supertype, name);
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the class literal for the given type argument, or {@code null} if it is not a concrete, non-generic
+     * class
+     */
+    private String classLiteralOf(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED || !((DeclaredType) type).getTypeArguments().isEmpty()) {
+            return null;
+        }
+        return processingEnv.getTypeUtils().erasure(type) + ".class";
+    }
+
+    private boolean hasTensorConstructor(TypeElement type) {
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)
+                || (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC))) {
+            return false;
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (!constructor.getModifiers().contains(Modifier.PRIVATE) && constructor.getParameters().size() == 1
+                    && constructor.getThrownTypes().isEmpty()) {
+                TypeMirror parameter = processingEnv.getTypeUtils().erasure(constructor.getParameters().get(0)
+                        .asType());
+                if (parameter.toString().equals(TENSOR)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static PackageElement packageOf(Element element) {
+        Element current = element;
+        while (current.getKind() != ElementKind.PACKAGE) {
+            current = current.getEnclosingElement();
+        }
+        return (PackageElement) current;
+    }
+
+    /**
+     * @return the simple name of the given type, prefixed by the names of the enclosing types (separated by '_')
+     */
+    private static String binarySimpleName(TypeElement type) {
+        Element enclosing = type.getEnclosingElement();
+        if (enclosing instanceof TypeElement) {
+            return binarySimpleName((TypeElement) enclosing) + "_" + type.getSimpleName();
+        }
+        return type.getSimpleName().toString();
+    }
+
+    private void writeServices() {
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                    "META-INF/services/" + PROVIDER);
+            try (Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8)) {
+                for (String provider : providers) {
+                    writer.write(provider);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Cannot register the generated tensorbacked types: " + e);
+        }
+    }
+
+}
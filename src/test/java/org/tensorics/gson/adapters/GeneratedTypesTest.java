@@ -0,0 +1,142 @@
+package org.tensorics.gson.adapters;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tensorics.core.tensor.Tensor;
+import org.tensorics.core.tensorbacked.AbstractTensorbacked;
+import org.tensorics.core.tensorbacked.annotation.Dimensions;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GeneratedTypesTest {
+
+    @Rule
+    public final TemporaryFolder services = new TemporaryFolder();
+
+    private GeneratedTypes generatedTypes;
+
+    @Before
+    public void setUp() throws IOException {
+        File file = new File(services.newFolder("META-INF", "services"), TensorbackedTypeProvider.class.getName());
+        Files.write(file.toPath(), Arrays.asList("# the generated types", //
+                GeneratedTypes.providerNameOf(Generated.class), //
+                GeneratedTypes.providerNameOf(Failing.class) + "  # does not link", //
+                GeneratedTypes.providerNameOf(Missing.class)), StandardCharsets.UTF_8);
+        generatedTypes = new GeneratedTypes(new URLClassLoader(new URL[]{services.getRoot().toURI().toURL()},
+                getClass().getClassLoader()));
+        GeneratedTypesTest_Generated_TensorbackedType.INSTANCES.set(0);
+    }
+
+    @Test
+    public void providerNameIsTheGeneratedOne() {
+        assertThat(GeneratedTypes.providerNameOf(Generated.class))//
+                .isEqualTo("org.tensorics.gson.adapters.GeneratedTypesTest_Generated_TensorbackedType");
+    }
+
+    @Test
+    public void providerIsInstantiatedOnFirstLookup() {
+        assertThat(generatedTypes.typeOf(NotGenerated.class)).isNull();
+        assertThat(GeneratedTypesTest_Generated_TensorbackedType.INSTANCES).hasValue(0);
+
+        TensorbackedType<?, ?> type = generatedTypes.typeOf(Generated.class);
+        assertThat(type.tensorbackedClass()).isEqualTo(Generated.class);
+        assertThat(type.dimensions()).containsExactly(String.class);
+        assertThat(GeneratedTypesTest_Generated_TensorbackedType.INSTANCES).hasValue(1);
+    }
+
+    @Test
+    public void brokenProvidersAreIgnored() {
+        assertThat(generatedTypes.typeOf(Failing.class)).isNull();
+        assertThat(generatedTypes.typeOf(Missing.class)).isNull();
+        assertThat(generatedTypes.typeOf(Generated.class)).isNotNull();
+    }
+
+    @Test
+    public void providersAreAlsoFoundThroughTheClassLoaderOfTheClass() throws Exception {
+        URL testClasses = GeneratedTypesTest.class.getProtectionDomain().getCodeSource().getLocation();
+        try (URLClassLoader plugin = new PluginClassLoader(services.getRoot().toURI().toURL(), testClasses)) {
+            Class<?> pluginClass = plugin.loadClass(Generated.class.getName());
+            GeneratedTypes withoutServices = new GeneratedTypes(new URLClassLoader(new URL[0], null));
+
+            assertThat(pluginClass).isNotSameAs(Generated.class);
+            assertThat(withoutServices.typeOf(pluginClass).tensorbackedClass()).isSameAs(pluginClass);
+        }
+    }
+
+    /**
+     * Loads the classes of this test itself (as a plugin would), everything else through the class loader of the test.
+     */
+    private static final class PluginClassLoader extends URLClassLoader {
+
+        private PluginClassLoader(URL... urls) {
+            super(urls, GeneratedTypesTest.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.startsWith(GeneratedTypesTest.class.getName())) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    loaded = findClass(name);
+                }
+                if (resolve) {
+                    resolveClass(loaded);
+                }
+                return loaded;
+            }
+        }
+    }
+
+    @Dimensions({String.class})
+    public static class Generated extends AbstractTensorbacked<Double> {
+
+        public Generated(Tensor<Double> tensor) {
+            super(tensor);
+        }
+
+    }
+
+    @Dimensions({String.class})
+    public static class Failing extends AbstractTensorbacked<Double> {
+
+        public Failing(Tensor<Double> tensor) {
+            super(tensor);
+        }
+
+    }
+
+    /**
+     * Listed as generated, but there is no provider class.
+     */
+    @Dimensions({String.class})
+    public static class Missing extends AbstractTensorbacked<Double> {
+
+        public Missing(Tensor<Double> tensor) {
+            super(tensor);
+        }
+
+    }
+
+    @Dimensions({String.class})
+    public static class NotGenerated extends AbstractTensorbacked<Double> {
+
+        public NotGenerated(Tensor<Double> tensor) {
+            super(tensor);
+        }
+
+    }
+
+}
@@ -0,0 +1,13 @@
+package org.tensorics.gson.adapters;
+
+/**
+ * A provider as generated by the processor, of which a referenced class is missing at runtime.
+ */
+public final class GeneratedTypesTest_Failing_TensorbackedType implements TensorbackedTypeProvider {
+
+    @Override
+    public TensorbackedType<?, ?> type() {
+        throw new NoClassDefFoundError("org/example/Removed");
+    }
+
+}
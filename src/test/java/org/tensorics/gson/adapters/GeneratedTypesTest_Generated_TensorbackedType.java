@@ -0,0 +1,23 @@
+package org.tensorics.gson.adapters;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A provider as generated by the processor, which counts its instances.
+ */
+public final class GeneratedTypesTest_Generated_TensorbackedType implements TensorbackedTypeProvider {
+
+    static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    public GeneratedTypesTest_Generated_TensorbackedType() {
+        INSTANCES.incrementAndGet();
+    }
+
+    @Override
+    public TensorbackedType<?, ?> type() {
+        return TensorbackedType.of(GeneratedTypesTest.Generated.class, Double.class,
+                Collections.<Class<?>>singletonList(String.class), GeneratedTypesTest.Generated::new);
+    }
+
+}
@@ -0,0 +1,180 @@
+package org.tensorics.gson.adapters;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.Test;
+import org.tensorics.core.lang.Tensorics;
+import org.tensorics.core.tensorbacked.Tensorbacked;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.AComplexCoordTensorbacked;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.AScalarBacked;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.AnInheritedTensorbacked;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.Pair;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.tensorics.core.lang.Tensorics.at;
+
+public class TensorbackedBatchWriterTest {
+
+    private static final AnInheritedTensorbacked FIRST = Tensorics.builderFor(AnInheritedTensorbacked.class)//
+            .put(at("A", 1), 0.11)//
+            .put(at("A", 2), 0.12)//
+            .put(at("B", 1), 0.21)//
+            .build();
+
+    private static final AnInheritedTensorbacked SECOND = Tensorics.builderFor(AnInheritedTensorbacked.class)//
+            .put(at("A", 1), 0.13)//
+            .put(at("B", 2), 0.22)//
+            .build();
+
+    private static final AnInheritedTensorbacked THIRD = Tensorics.builderFor(AnInheritedTensorbacked.class)//
+            .put(at("C", 2), 0.32)//
+            .build();
+
+    private final Gson gson = new GsonBuilder()//
+            .registerTypeAdapterFactory(TensorbackedGsonAdapter.FACTORY)//
+            .create();
+
+    @Test
+    public void ndjsonContainsOneElementPerLine() throws IOException {
+        String batch = write(gson, AnInheritedTensorbacked.class, BatchFormat.NDJSON, false, FIRST, SECOND, THIRD);
+        assertThat(batch).isEqualTo(gson.toJson(FIRST) + "\n" + gson.toJson(SECOND) + "\n" + gson.toJson(THIRD)
+                + "\n");
+        assertThat(read(gson, AnInheritedTensorbacked.class, BatchFormat.NDJSON, false, batch))//
+                .containsExactly(FIRST, SECOND, THIRD);
+    }
+
+    @Test
+    public void ndjsonIsNotIndentedForPrettyPrintingGson() throws IOException {
+        Gson prettyGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapter.FACTORY)//
+                .setPrettyPrinting()//
+                .create();
+        String batch = write(prettyGson, AnInheritedTensorbacked.class, BatchFormat.NDJSON, false, FIRST, SECOND);
+        assertThat(batch).isEqualTo(gson.toJson(FIRST) + "\n" + gson.toJson(SECOND) + "\n");
+    }
+
+    @Test
+    public void sharedDictionaryAnnouncesOnlyNewCoordinates() throws IOException {
+        String batch = write(gson, AnInheritedTensorbacked.class, BatchFormat.JSON_ARRAY, true, FIRST, SECOND, THIRD);
+        assertThat(batch).isEqualTo("[{\"@dictionary\":[[\"A\",\"B\"],[1,2]]},"//
+                + "{\"0\":{\"0\":0.11,\"1\":0.12},\"1\":{\"0\":0.21}},"//
+                + "{\"0\":{\"0\":0.13},\"1\":{\"1\":0.22}},"//
+                + "{\"@dictionary\":[[\"C\"],[]]},"//
+                + "{\"2\":{\"1\":0.32}}]");
+        assertThat(read(gson, AnInheritedTensorbacked.class, BatchFormat.JSON_ARRAY, true, batch))//
+                .containsExactly(FIRST, SECOND, THIRD);
+    }
+
+    @Test
+    public void coordinateNamedLikeDictionaryFieldRoundTripIsOk() throws IOException {
+        AnInheritedTensorbacked reservedName = Tensorics.builderFor(AnInheritedTensorbacked.class)//
+                .put(at("@dictionary", 1), 0.11)//
+                .put(at("B", 2), 0.22)//
+                .build();
+
+        for (boolean sharedDictionary : new boolean[]{false, true}) {
+            String batch = write(gson, AnInheritedTensorbacked.class, BatchFormat.NDJSON, sharedDictionary,
+                    reservedName, FIRST);
+            assertThat(read(gson, AnInheritedTensorbacked.class, BatchFormat.NDJSON, sharedDictionary, batch))//
+                    .containsExactly(reservedName, FIRST);
+        }
+    }
+
+    @Test
+    public void sharedDictionaryRoundTripOfComplexCoordinatesIsOk() throws IOException {
+        AComplexCoordTensorbacked first = Tensorics.builderFor(AComplexCoordTensorbacked.class)//
+                .put(at(new Pair("a1", "b1")), 0.11)//
+                .put(at(new Pair("a2", "b2")), 0.22)//
+                .build();
+        AComplexCoordTensorbacked second = Tensorics.builderFor(AComplexCoordTensorbacked.class)//
+                .put(at(new Pair("a2", "b2")), 0.23)//
+                .build();
+
+        String batch = write(gson, AComplexCoordTensorbacked.class, BatchFormat.NDJSON, true, first, second);
+        assertThat(batch).isEqualTo("{\"@dictionary\":[[{\"a\":\"a1\",\"b\":\"b1\"},{\"a\":\"a2\",\"b\":\"b2\"}]]}\n"//
+                + "{\"0\":0.11,\"1\":0.22}\n"//
+                + "{\"1\":0.23}\n");
+        assertThat(read(gson, AComplexCoordTensorbacked.class, BatchFormat.NDJSON, true, batch))//
+                .containsExactly(first, second);
+    }
+
+    @Test
+    public void emptyBatchesAndElementsAreRead() throws IOException {
+        AnInheritedTensorbacked empty = Tensorics.builderFor(AnInheritedTensorbacked.class).build();
+        for (BatchFormat format : BatchFormat.values()) {
+            assertThat(read(gson, AnInheritedTensorbacked.class, format, true,
+                    write(gson, AnInheritedTensorbacked.class, format, true))).isEmpty();
+            assertThat(read(gson, AnInheritedTensorbacked.class, format, true,
+                    write(gson, AnInheritedTensorbacked.class, format, true, empty, FIRST, empty)))//
+                    .containsExactly(empty, FIRST, empty);
+        }
+    }
+
+    @Test
+    public void scalarsAreWrittenAsValues() throws IOException {
+        AScalarBacked first = Tensorics.builderForScalar(AScalarBacked.class).put(0.33).build();
+        AScalarBacked second = Tensorics.builderForScalar(AScalarBacked.class).put(0.44).build();
+
+        String batch = write(gson, AScalarBacked.class, BatchFormat.JSON_ARRAY, true, first, second);
+        assertThat(batch).isEqualTo("[0.33,0.44]");
+        assertThat(read(gson, AScalarBacked.class, BatchFormat.JSON_ARRAY, true, batch)).containsExactly(first, second);
+    }
+
+    @Test
+    public void sharedDictionaryIsRejectedForColumnarLayoutOrSizeHints() {
+        Gson columnarGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                        .withLayout(JsonLayout.COLUMNAR)//
+                        .build())//
+                .create();
+        Gson sizeHintGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                        .withSizeHints()//
+                        .build())//
+                .create();
+
+        assertThatThrownBy(() -> write(columnarGson, AnInheritedTensorbacked.class, BatchFormat.NDJSON, true, FIRST))//
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> write(sizeHintGson, AnInheritedTensorbacked.class, BatchFormat.NDJSON, true, FIRST))//
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void elementsAreReadOnDemand() {
+        String batch = gson.toJson(FIRST) + "\n" + gson.toJson(SECOND) + "\n{ this is not json";
+        TensorbackedBatchReader<Double, AnInheritedTensorbacked> reader = TensorbackedBatchReader.open(gson,
+                AnInheritedTensorbacked.class, new StringReader(batch), BatchFormat.NDJSON, false);
+        assertThat(reader.stream().limit(2).collect(Collectors.toList())).containsExactly(FIRST, SECOND);
+    }
+
+    @SafeVarargs
+    private static <TB extends Tensorbacked<Double>> String write(Gson gson,
+            Class<TB> tensorbackedClass, BatchFormat format, boolean sharedDictionary, TB... values)
+            throws IOException {
+        StringWriter string = new StringWriter();
+        try (TensorbackedBatchWriter<Double, TB> writer = TensorbackedBatchWriter.open(gson, tensorbackedClass,
+                string, format, sharedDictionary)) {
+            for (TB value : values) {
+                writer.write(value);
+            }
+        }
+        return string.toString();
+    }
+
+    private static <TB extends Tensorbacked<Double>> List<TB> read(Gson gson,
+            Class<TB> tensorbackedClass, BatchFormat format, boolean sharedDictionary, String batch)
+            throws IOException {
+        try (TensorbackedBatchReader<Double, TB> reader = TensorbackedBatchReader.open(gson, tensorbackedClass,
+                new StringReader(batch), format, sharedDictionary)) {
+            return reader.stream().collect(Collectors.toList());
+        }
+    }
+
+}
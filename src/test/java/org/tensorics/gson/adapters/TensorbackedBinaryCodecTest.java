@@ -0,0 +1,197 @@
+package org.tensorics.gson.adapters;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import org.junit.Test;
+import org.tensorics.core.lang.Tensorics;
+import org.tensorics.core.tensorbacked.dimtyped.Tensorbacked1d;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterFactoryTest.InvalidTensorbacked;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.AComplexCoordTensorbacked;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.AScalarBacked;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.AThreeDimTensorbacked;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.AnInheritedTensorbacked;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.Pair;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.tensorics.core.lang.Tensorics.at;
+import static org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.BIG_TB;
+import static org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.THREE_DIM_TB;
+
+public class TensorbackedBinaryCodecTest {
+
+    private final Gson gson = new GsonBuilder()//
+            .registerTypeAdapterFactory(TensorbackedGsonAdapter.FACTORY)//
+            .create();
+
+    @Test
+    public void roundTripIsIdenticalToJson() {
+        TensorbackedBinaryCodec<Double, AThreeDimTensorbacked> codec = TensorbackedBinaryCodec.of(gson,
+                AThreeDimTensorbacked.class);
+        AThreeDimTensorbacked viaJson = gson.fromJson(gson.toJson(THREE_DIM_TB), AThreeDimTensorbacked.class);
+
+        assertThat(codec.decode(codec.encode(THREE_DIM_TB))).isEqualTo(THREE_DIM_TB).isEqualTo(viaJson);
+        assertThat(codec.decode(codec.withCompression(true).encode(THREE_DIM_TB))).isEqualTo(viaJson);
+    }
+
+    @Test
+    public void streamRoundTripIsOk() throws IOException {
+        TensorbackedBinaryCodec<Double, AThreeDimTensorbacked> codec = TensorbackedBinaryCodec.of(gson,
+                AThreeDimTensorbacked.class);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.encode(THREE_DIM_TB, out);
+        codec.encode(THREE_DIM_TB, out);
+
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        assertThat(codec.decode(in)).isEqualTo(THREE_DIM_TB);
+        /* uncompressed data is consumed exactly, so several tensors can follow each other */
+        assertThat(codec.decode(in)).isEqualTo(THREE_DIM_TB);
+        assertThat(in.available()).isZero();
+    }
+
+    @Test
+    public void unbufferedStreamIsNotReadByteByByte() throws IOException {
+        TensorbackedBinaryCodec<Double, AnInheritedTensorbacked> codec = TensorbackedBinaryCodec.of(gson,
+                AnInheritedTensorbacked.class);
+        for (boolean compressed : new boolean[]{false, true}) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            codec.withCompression(compressed).encode(BIG_TB, out);
+            int[] singleByteReads = new int[1];
+            InputStream unbuffered = new FilterInputStream(new ByteArrayInputStream(out.toByteArray())) {
+                @Override
+                public int read() throws IOException {
+                    singleByteReads[0]++;
+                    return super.read();
+                }
+            };
+
+            assertThat(codec.decode(unbuffered)).isEqualTo(BIG_TB);
+            assertThat(singleByteReads[0]).isZero();
+        }
+    }
+
+    @Test
+    public void scalarAndEmptyRoundTripsAreOk() {
+        AScalarBacked scalar = Tensorics.builderFor(AScalarBacked.class).put(at(), 0.42).build();
+        TensorbackedBinaryCodec<Double, AScalarBacked> scalarCodec = TensorbackedBinaryCodec.of(gson, AScalarBacked.class);
+        assertThat(scalarCodec.decode(scalarCodec.encode(scalar))).isEqualTo(scalar);
+
+        AnInheritedTensorbacked empty = Tensorics.builderFor(AnInheritedTensorbacked.class).build();
+        TensorbackedBinaryCodec<Double, AnInheritedTensorbacked> codec = TensorbackedBinaryCodec.of(gson,
+                AnInheritedTensorbacked.class);
+        assertThat(codec.decode(codec.encode(empty))).isEqualTo(empty);
+    }
+
+    @Test
+    public void complexCoordinatesAndNonNumericValuesUseGsonAdapters() {
+        AComplexCoordTensorbacked complex = Tensorics.builderFor(AComplexCoordTensorbacked.class)//
+                .put(at(new Pair("a1", "b1")), 0.11)//
+                .put(at(new Pair("a2", "b2")), 0.22)//
+                .build();
+        TensorbackedBinaryCodec<Double, AComplexCoordTensorbacked> complexCodec = TensorbackedBinaryCodec.of(gson,
+                AComplexCoordTensorbacked.class);
+        assertThat(complexCodec.decode(complexCodec.encode(complex))).isEqualTo(complex);
+
+        AStringValuedTensorbacked strings = Tensorics.builderFor(AStringValuedTensorbacked.class)//
+                .put(at(1), "one")//
+                .put(at(2), "zwei ü")//
+                .build();
+        TensorbackedBinaryCodec<String, AStringValuedTensorbacked> stringCodec = TensorbackedBinaryCodec.of(gson,
+                AStringValuedTensorbacked.class);
+        assertThat(stringCodec.decode(stringCodec.encode(strings))).isEqualTo(strings);
+    }
+
+    @Test
+    public void encodingIsSmallerThanJson() {
+        TensorbackedBinaryCodec<Double, AnInheritedTensorbacked> codec = TensorbackedBinaryCodec.of(gson,
+                AnInheritedTensorbacked.class);
+
+        int jsonSize = gson.toJson(BIG_TB).length();
+        int binarySize = codec.encode(BIG_TB).remaining();
+        int compressedSize = codec.withCompression(true).encode(BIG_TB).remaining();
+        assertThat(binarySize).isLessThan(jsonSize);
+        assertThat(compressedSize).isLessThan(binarySize);
+        assertThat(codec.decode(codec.withCompression(true).encode(BIG_TB))).isEqualTo(BIG_TB);
+    }
+
+    @Test
+    public void wrongMagicThrows() {
+        TensorbackedBinaryCodec<Double, AnInheritedTensorbacked> codec = TensorbackedBinaryCodec.of(gson,
+                AnInheritedTensorbacked.class);
+        assertThatThrownBy(() -> codec.decode(ByteBuffer.wrap("{\"A\":{}}".getBytes()))) //
+                .isInstanceOf(JsonSyntaxException.class) //
+                .hasMessageContaining("magic");
+    }
+
+    @Test
+    public void wrongTensorbackedClassThrows() {
+        ByteBuffer encoded = TensorbackedBinaryCodec.of(gson, AThreeDimTensorbacked.class).encode(THREE_DIM_TB);
+        TensorbackedBinaryCodec<Double, AnInheritedTensorbacked> codec = TensorbackedBinaryCodec.of(gson,
+                AnInheritedTensorbacked.class);
+        assertThatThrownBy(() -> codec.decode(encoded)) //
+                .isInstanceOf(JsonSyntaxException.class) //
+                .hasMessageContaining("dimensions");
+    }
+
+    @Test
+    public void truncatedDataThrows() {
+        ByteBuffer encoded = TensorbackedBinaryCodec.of(gson, AThreeDimTensorbacked.class).encode(THREE_DIM_TB);
+        encoded.limit(encoded.limit() - 3);
+        TensorbackedBinaryCodec<Double, AThreeDimTensorbacked> codec = TensorbackedBinaryCodec.of(gson,
+                AThreeDimTensorbacked.class);
+        assertThatThrownBy(() -> codec.decode(encoded)) //
+                .isInstanceOf(JsonSyntaxException.class) //
+                .hasMessageContaining("end");
+    }
+
+    @Test
+    public void hugeSizesInCorruptDataDoNotAllocateUpFront() {
+        TensorbackedBinaryCodec<Double, AnInheritedTensorbacked> codec = TensorbackedBinaryCodec.of(gson,
+                AnInheritedTensorbacked.class);
+        byte[] maxVarint = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+        ByteArrayOutputStream hugeCount = new ByteArrayOutputStream();
+        hugeCount.write(new byte[]{'T', 'B', 'B', 1, 0, 2}, 0, 6);
+        hugeCount.write(maxVarint, 0, maxVarint.length);
+        ByteArrayOutputStream hugeString = new ByteArrayOutputStream();
+        hugeString.write(new byte[]{'T', 'B', 'B', 1, 0, 2, 1}, 0, 7);
+        hugeString.write(maxVarint, 0, maxVarint.length);
+        hugeString.write('"');
+
+        for (ByteArrayOutputStream corrupt : new ByteArrayOutputStream[]{hugeCount, hugeString}) {
+            assertThatThrownBy(() -> codec.decode(ByteBuffer.wrap(corrupt.toByteArray()))) //
+                    .isInstanceOf(JsonSyntaxException.class) //
+                    .hasMessageContaining("end");
+        }
+    }
+
+    @Test
+    public void typeRegisteredOnFactoryIsUsed() {
+        Gson typedGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                        .withTypes(TensorbackedType.of(InvalidTensorbacked.class, Double.class,
+                                Arrays.asList(String.class, Integer.class), InvalidTensorbacked::new))//
+                        .build())//
+                .create();
+        /* Without the registration, the dimensions of this class could not be determined */
+        TensorbackedBinaryCodec<Double, InvalidTensorbacked> codec = TensorbackedBinaryCodec.of(typedGson,
+                InvalidTensorbacked.class);
+        InvalidTensorbacked tensorbacked = new InvalidTensorbacked(Tensorics.<Double>builder(String.class,
+                Integer.class).put(at("A", 1), 0.11).build());
+
+        assertThat(codec.decode(codec.encode(tensorbacked)).tensor()).isEqualTo(tensorbacked.tensor());
+    }
+
+    public interface AStringValuedTensorbacked extends Tensorbacked1d<Integer, String> {
+
+    }
+
+}
@@ -0,0 +1,175 @@
+package org.tensorics.gson.adapters;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tensorics.core.lang.Tensorics;
+import org.tensorics.core.tensorbacked.Tensorbacked;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.AComplexCoordTensorbacked;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.AScalarBacked;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.AnInheritedTensorbacked;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.Pair;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.tensorics.core.lang.Tensorics.at;
+import static org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.BIG_TB;
+
+public class TensorbackedByteWriterTest {
+
+    private static final AnInheritedTensorbacked SPECIAL_KEYS_TB = Tensorics.builderFor(AnInheritedTensorbacked.class)//
+            .put(at("A<\"quoted\">", 1), 0.11)//
+            .put(at("Grüße 😀", 1), 0.21)//
+            .put(at("A<\"quoted\">", 2), 0.12)//
+            .put(at(" ", 2), 0.22)//
+            .build();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final Gson gson = new GsonBuilder()//
+            .registerTypeAdapterFactory(TensorbackedGsonAdapter.FACTORY)//
+            .create();
+
+    @Test
+    public void writtenBytesAreIdenticalToGson() throws IOException {
+        assertThat(writeToChannel(gson, AnInheritedTensorbacked.class, SPECIAL_KEYS_TB))//
+                .isEqualTo(gson.toJson(SPECIAL_KEYS_TB));
+
+        Gson notHtmlSafeGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapter.FACTORY)//
+                .disableHtmlEscaping()//
+                .create();
+        assertThat(writeToChannel(notHtmlSafeGson, AnInheritedTensorbacked.class, SPECIAL_KEYS_TB))//
+                .isEqualTo(notHtmlSafeGson.toJson(SPECIAL_KEYS_TB));
+    }
+
+    @Test
+    public void bigTensorIsWrittenOverManyBuffers() throws IOException {
+                /* written twice, so that also the cached names are used */
+        assertThat(writeToChannel(gson, AnInheritedTensorbacked.class, BIG_TB)).isEqualTo(gson.toJson(BIG_TB));
+        assertThat(writeToChannel(gson, AnInheritedTensorbacked.class, BIG_TB)).isEqualTo(gson.toJson(BIG_TB));
+    }
+
+    @Test
+    public void otherLayoutsAndScalarsAreWrittenByTheAdapter() throws IOException {
+        Gson columnarGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                        .withLayout(JsonLayout.COLUMNAR)//
+                        .build())//
+                .create();
+        assertThat(writeToChannel(columnarGson, AnInheritedTensorbacked.class, SPECIAL_KEYS_TB))//
+                .isEqualTo(columnarGson.toJson(SPECIAL_KEYS_TB));
+
+        Gson complexMapKeyGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapter.FACTORY)//
+                .enableComplexMapKeySerialization()//
+                .create();
+        AComplexCoordTensorbacked complex = Tensorics.builderFor(AComplexCoordTensorbacked.class)//
+                .put(at(new Pair("a1", "b1")), 0.11)//
+                .build();
+        assertThat(writeToChannel(complexMapKeyGson, AComplexCoordTensorbacked.class, complex))//
+                .isEqualTo(complexMapKeyGson.toJson(complex));
+
+        AScalarBacked scalar = Tensorics.builderForScalar(AScalarBacked.class).put(0.33).build();
+        assertThat(writeToChannel(gson, AScalarBacked.class, scalar)).isEqualTo("0.33");
+    }
+
+    @Test
+    public void writingToMappedFileIsIdenticalToGson() throws IOException {
+                Path file = temporaryFolder.newFile().toPath();
+        byte[] prefix = "prefix".getBytes(StandardCharsets.UTF_8);
+        Files.write(file, prefix);
+
+        TensorbackedByteWriter<Double, AnInheritedTensorbacked> writer = TensorbackedByteWriter.of(gson,
+                AnInheritedTensorbacked.class);
+        long written;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            written = writer.write(BIG_TB, channel, prefix.length);
+        }
+
+        byte[] content = Files.readAllBytes(file);
+        assertThat(content).hasSize(prefix.length + (int) written);
+        assertThat(new String(Arrays.copyOfRange(content, prefix.length, content.length), StandardCharsets.UTF_8))//
+                .isEqualTo(gson.toJson(BIG_TB));
+    }
+
+    @Test
+    public void partialJsonIsDiscardedOnError() throws IOException {
+        Gson failingGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapter.FACTORY)//
+                .registerTypeAdapter(Double.class, new TypeAdapter<Double>() {
+                    @Override
+                    public void write(JsonWriter out, Double value) throws IOException {
+                        if (value == 0.12) {
+                            throw new IOException("not writable");
+                        }
+                        out.value(value);
+                    }
+
+                    @Override
+                    public Double read(JsonReader in) throws IOException {
+                        return in.nextDouble();
+                    }
+                })//
+                .create();
+        TensorbackedByteWriter<Double, AnInheritedTensorbacked> writer = TensorbackedByteWriter.of(failingGson,
+                AnInheritedTensorbacked.class);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThatThrownBy(() -> writer.write(SPECIAL_KEYS_TB, Channels.newChannel(out)))//
+                .isInstanceOf(IOException.class);
+        assertThat(out.size()).isZero();
+
+        Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, "prefix".getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            assertThatThrownBy(() -> writer.write(SPECIAL_KEYS_TB, channel, 6))//
+                    .isInstanceOf(IOException.class);
+        }
+        assertThat(new String(Files.readAllBytes(file), StandardCharsets.UTF_8)).isEqualTo("prefix");
+    }
+
+    @Test
+    public void nonBlockingChannelIsRejected() throws IOException {
+        TensorbackedByteWriter<Double, AnInheritedTensorbacked> writer = TensorbackedByteWriter.of(gson,
+                AnInheritedTensorbacked.class);
+        Pipe pipe = Pipe.open();
+        try {
+            pipe.sink().configureBlocking(false);
+            assertThatThrownBy(() -> writer.write(SPECIAL_KEYS_TB, pipe.sink()))//
+                    .isInstanceOf(IllegalBlockingModeException.class);
+        } finally {
+            pipe.sink().close();
+            pipe.source().close();
+        }
+    }
+
+    private static <TB extends Tensorbacked<Double>> String writeToChannel(Gson gson,
+            Class<TB> tensorbackedClass, TB value) throws IOException {
+        /* small buffers, so that all the code paths for full buffers are used */
+        TensorbackedByteWriter<Double, TB> writer = TensorbackedByteWriter.of(gson, tensorbackedClass,
+                ByteBufferPool.create(16, 1));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(value, Channels.newChannel(out));
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+}
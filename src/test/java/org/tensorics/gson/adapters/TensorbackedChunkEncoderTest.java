@@ -0,0 +1,168 @@
+package org.tensorics.gson.adapters;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.After;
+import org.junit.Test;
+import org.tensorics.core.tensorbacked.Tensorbacked;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.AComplexCoordTensorbacked;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.AThreeDimTensorbacked;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.ESCAPED_THREE_DIM_TB;
+
+public class TensorbackedChunkEncoderTest {
+
+    private final Gson gson = new GsonBuilder()//
+            .registerTypeAdapterFactory(TensorbackedGsonAdapter.FACTORY)//
+            .create();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @After
+    public void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void chunksAreTheJsonOfGson() {
+        List<ByteBuffer> chunks = chunks(gson, AThreeDimTensorbacked.class, ESCAPED_THREE_DIM_TB, 5);
+        byte[] expected = gson.toJson(ESCAPED_THREE_DIM_TB).getBytes(StandardCharsets.UTF_8);
+
+        assertThat(concat(chunks)).isEqualTo(expected);
+        assertThat(chunks).allMatch(chunk -> chunk.hasRemaining() && chunk.remaining() <= 5);
+    }
+
+    @Test
+    public void chunksWithSizeHintAreTheJsonOfGson() {
+        Gson sizeHintGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                        .withSizeHints()//
+                        .build())//
+                .create();
+        List<ByteBuffer> chunks = chunks(sizeHintGson, AThreeDimTensorbacked.class, ESCAPED_THREE_DIM_TB, 5);
+
+        assertThat(concat(chunks))//
+                .isEqualTo(sizeHintGson.toJson(ESCAPED_THREE_DIM_TB).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void complexMapKeySerializationIsRejected() {
+        Gson complexMapKeyGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapter.FACTORY)//
+                .enableComplexMapKeySerialization()//
+                .create();
+
+        assertThatThrownBy(() -> TensorbackedChunkEncoder.of(complexMapKeyGson, AComplexCoordTensorbacked.class, 7))//
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void columnarLayoutIsRejected() {
+        Gson columnarGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                        .withLayout(JsonLayout.COLUMNAR)//
+                        .build())//
+                .create();
+
+        assertThatThrownBy(() -> TensorbackedChunkEncoder.of(columnarGson, AThreeDimTensorbacked.class, 7))//
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void chunksAreDecodedOnDemand() throws Exception {
+        /* small chunks, so that multi-byte characters are split */
+        Iterator<ByteBuffer> chunks = TensorbackedChunkEncoder.of(gson, AThreeDimTensorbacked.class, 4)//
+                .encode(ESCAPED_THREE_DIM_TB);
+        AtomicReference<TensorbackedChunkDecoder<Double, AThreeDimTensorbacked>> decoder = new AtomicReference<>();
+        decoder.set(TensorbackedChunkDecoder.start(gson, AThreeDimTensorbacked.class, executor, 2,
+                n -> handOver(chunks, decoder.get(), n)));
+        handOver(chunks, decoder.get(), 2);
+
+        assertThat(decoder.get().result().get(10, TimeUnit.SECONDS)).isEqualTo(ESCAPED_THREE_DIM_TB);
+    }
+
+    @Test
+    public void moreChunksThanRequestedFailTheResult() {
+        List<Runnable> notRunning = new ArrayList<>();
+        TensorbackedChunkDecoder<Double, AThreeDimTensorbacked> decoder = TensorbackedChunkDecoder.start(gson,
+                AThreeDimTensorbacked.class, notRunning::add, 1, n -> {
+                });
+        decoder.onNext(ByteBuffer.wrap("{".getBytes(StandardCharsets.UTF_8)));
+
+        assertThatThrownBy(() -> decoder.onNext(ByteBuffer.wrap("}".getBytes(StandardCharsets.UTF_8))))//
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(decoder.result()).isCompletedExceptionally();
+    }
+
+    @Test
+    public void upstreamErrorFailsTheResult() {
+        TensorbackedChunkDecoder<Double, AThreeDimTensorbacked> decoder = TensorbackedChunkDecoder.start(gson,
+                AThreeDimTensorbacked.class, executor, 4, n -> {
+                });
+        decoder.onNext(ByteBuffer.wrap("{\"a\":".getBytes(StandardCharsets.UTF_8)));
+        IllegalStateException error = new IllegalStateException("connection lost");
+        decoder.onError(error);
+
+        assertThatThrownBy(() -> decoder.result().get(10, TimeUnit.SECONDS))//
+                .isInstanceOf(ExecutionException.class)//
+                .hasCause(error);
+    }
+
+    @Test
+    public void invalidJsonFailsTheResult() {
+        TensorbackedChunkDecoder<Double, AThreeDimTensorbacked> decoder = TensorbackedChunkDecoder.start(gson,
+                AThreeDimTensorbacked.class, executor, 4, n -> {
+                });
+        decoder.onNext(ByteBuffer.wrap("{\"a\":{\"1\":[".getBytes(StandardCharsets.UTF_8)));
+        decoder.onComplete();
+
+        assertThatThrownBy(() -> decoder.result().get(10, TimeUnit.SECONDS))//
+                .isInstanceOf(ExecutionException.class);
+    }
+
+    /**
+     * Hands over the requested amount of chunks (serially, as a reactive publisher) and completes after the last one.
+     */
+    private static void handOver(Iterator<ByteBuffer> chunks, TensorbackedChunkDecoder<?, ?> decoder, long amount) {
+        synchronized (chunks) {
+            for (long i = 0; i < amount && chunks.hasNext(); i++) {
+                decoder.onNext(chunks.next());
+            }
+            if (!chunks.hasNext()) {
+                decoder.onComplete();
+            }
+        }
+    }
+
+    private static <TB extends Tensorbacked<Double>> List<ByteBuffer> chunks(
+            Gson gson, Class<TB> tensorbackedClass, TB value, int chunkSize) {
+        List<ByteBuffer> chunks = new ArrayList<>();
+        TensorbackedChunkEncoder.of(gson, tensorbackedClass, chunkSize).encode(value).forEachRemaining(chunks::add);
+        return chunks;
+    }
+
+    private static byte[] concat(List<ByteBuffer> chunks) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (ByteBuffer chunk : chunks) {
+            byte[] chunkBytes = new byte[chunk.remaining()];
+            chunk.duplicate().get(chunkBytes);
+            bytes.write(chunkBytes, 0, chunkBytes.length);
+        }
+        return bytes.toByteArray();
+    }
+
+}
@@ -0,0 +1,102 @@
+package org.tensorics.gson.adapters;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.Test;
+import org.tensorics.core.lang.Tensorics;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.AComplexCoordTensorbacked;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.AScalarBacked;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.AnInheritedTensorbacked;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.Pair;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.tensorics.core.lang.Tensorics.at;
+
+public class TensorbackedDiffTest {
+
+    private static final AnInheritedTensorbacked PREVIOUS = Tensorics.builderFor(AnInheritedTensorbacked.class)//
+            .put(at("A", 1), 0.11)//
+            .put(at("A", 2), 0.12)//
+            .put(at("B", 1), 0.21)//
+            .put(at("B", 2), 0.22)//
+            .build();
+
+    private static final AnInheritedTensorbacked CURRENT = Tensorics.builderFor(AnInheritedTensorbacked.class)//
+            .put(at("A", 1), 0.15)//
+            .put(at("A", 2), 0.12)//
+            .put(at("A", 3), 0.13)//
+            .put(at("B", 1), 0.21)//
+            .build();
+
+    private final Gson gson = new GsonBuilder()//
+            .registerTypeAdapterFactory(TensorbackedGsonAdapter.FACTORY)//
+            .create();
+
+    private final TensorbackedDiff<Double, AnInheritedTensorbacked> diff = TensorbackedDiff.of(gson,
+            AnInheritedTensorbacked.class);
+
+    @Test
+    public void patchContainsOnlyChangesAndRemovals() {
+        assertThat(diff.diff(PREVIOUS, CURRENT)).isEqualTo("{\"A\":{\"1\":0.15,\"3\":0.13},\"B\":{\"2\":null}}");
+    }
+
+    @Test
+    public void appliedPatchResultsInCurrentVersion() {
+        String patch = diff.diff(PREVIOUS, CURRENT);
+        assertThat(diff.apply(PREVIOUS, patch)).isEqualTo(CURRENT);
+        assertThat(diff.apply(CURRENT, diff.diff(CURRENT, PREVIOUS))).isEqualTo(PREVIOUS);
+    }
+
+    @Test
+    public void patchOfEqualVersionsIsEmpty() {
+        assertThat(diff.diff(PREVIOUS, PREVIOUS)).isEqualTo("{}");
+        assertThat(diff.apply(PREVIOUS, "{}")).isEqualTo(PREVIOUS);
+    }
+
+    @Test
+    public void complexCoordinatesPatchRoundTripIsOk() {
+        Gson complexMapKeyGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapter.FACTORY)//
+                .enableComplexMapKeySerialization()//
+                .create();
+        TensorbackedDiff<Double, AComplexCoordTensorbacked> complexDiff = TensorbackedDiff.of(complexMapKeyGson,
+                AComplexCoordTensorbacked.class);
+        AComplexCoordTensorbacked previous = Tensorics.builderFor(AComplexCoordTensorbacked.class)//
+                .put(at(new Pair("a1", "b1")), 0.11)//
+                .put(at(new Pair("a2", "b2")), 0.22)//
+                .build();
+        AComplexCoordTensorbacked current = Tensorics.builderFor(AComplexCoordTensorbacked.class)//
+                .put(at(new Pair("a1", "b1")), 0.12)//
+                .build();
+
+        String patch = complexDiff.diff(previous, current);
+        assertThat(patch).isEqualTo("[[{\"a\":\"a1\",\"b\":\"b1\"},0.12],[{\"a\":\"a2\",\"b\":\"b2\"},null]]");
+        assertThat(complexDiff.apply(previous, patch)).isEqualTo(current);
+    }
+
+    @Test
+    public void scalarPatchIsTheNewValue() {
+        TensorbackedDiff<Double, AScalarBacked> scalarDiff = TensorbackedDiff.of(gson, AScalarBacked.class);
+        AScalarBacked previous = Tensorics.builderForScalar(AScalarBacked.class).put(0.33).build();
+        AScalarBacked current = Tensorics.builderForScalar(AScalarBacked.class).put(0.44).build();
+
+        assertThat(scalarDiff.diff(previous, current)).isEqualTo("0.44");
+        assertThat(scalarDiff.apply(previous, "0.44")).isEqualTo(current);
+    }
+
+    @Test
+    public void scalarPatchOfEqualVersionsIsEmpty() {
+        TensorbackedDiff<Double, AScalarBacked> scalarDiff = TensorbackedDiff.of(gson, AScalarBacked.class);
+        AScalarBacked scalar = Tensorics.builderForScalar(AScalarBacked.class).put(0.33).build();
+        AScalarBacked empty = Tensorics.builderForScalar(AScalarBacked.class).build();
+
+        assertThat(scalarDiff.diff(scalar, scalar)).isEmpty();
+        assertThat(scalarDiff.apply(scalar, scalarDiff.diff(scalar, scalar))).isEqualTo(scalar);
+        assertThat(scalarDiff.apply(empty, scalarDiff.diff(empty, empty))).isEqualTo(empty);
+
+        /* A removed value is still distinguished from an unchanged one */
+        assertThat(scalarDiff.diff(scalar, empty)).isEqualTo("null");
+        assertThat(scalarDiff.apply(scalar, scalarDiff.diff(scalar, empty))).isEqualTo(empty);
+    }
+
+}
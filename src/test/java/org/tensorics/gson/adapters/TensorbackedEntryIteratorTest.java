@@ -0,0 +1,122 @@
+package org.tensorics.gson.adapters;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.junit.Test;
+import org.tensorics.core.tensor.Position;
+import org.tensorics.core.tensorbacked.Tensorbacked;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.AB;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.AComplexCoordTensorbacked;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.AnInheritedTensorbacked;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.Pair;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.within;
+import static org.tensorics.core.lang.Tensorics.at;
+
+public class TensorbackedEntryIteratorTest {
+
+    private static final String JSON_STRING = "{\"A\":{\"1\":0.11,\"2\":0.12},\"B\":{\"1\":0.21,\"2\":0.22}}";
+    private static final String COLUMNAR_JSON_STRING = "{\"@coordinates\":[[\"A\",\"B\"],[1,2]],\"@values\":[0.11,null,0.21,0.22]}";
+    private static final String COMPLEX_COORD_JSON_STRING = "[[{\"a\":\"a1\",\"b\":\"b1\"},0.11],[{\"a\":\"a2\",\"b\":\"b2\"},0.22]]";
+
+    private final Gson gson = new GsonBuilder()//
+            .registerTypeAdapterFactory(TensorbackedGsonAdapter.FACTORY)//
+            .create();
+
+    private final Gson columnarGson = new GsonBuilder()//
+            .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                    .withLayout(JsonLayout.COLUMNAR)//
+                    .build())//
+            .create();
+
+    @Test
+    public void iteratesOverNestedEntries() throws IOException {
+        Map<Position, Double> entries = collect(JSON_STRING, AnInheritedTensorbacked.class);
+        assertThat(entries).containsOnly(//
+                entry(at("A", 1), 0.11), entry(at("A", 2), 0.12), //
+                entry(at("B", 1), 0.21), entry(at("B", 2), 0.22));
+    }
+
+    @Test
+    public void iteratesOverColumnarEntries() throws IOException {
+        Map<Position, Double> entries = collect(columnarGson, COLUMNAR_JSON_STRING, AnInheritedTensorbacked.class);
+        assertThat(entries).containsOnly(//
+                entry(at("A", 1), 0.11), entry(at("B", 1), 0.21), entry(at("B", 2), 0.22));
+    }
+
+    @Test
+    public void iteratesOverEntryArrays() throws IOException {
+        Map<Position, Double> entries = collect(COMPLEX_COORD_JSON_STRING, AComplexCoordTensorbacked.class);
+        assertThat(entries).containsOnly(//
+                entry(at(new Pair("a1", "b1")), 0.11), entry(at(new Pair("a2", "b2")), 0.22));
+    }
+
+    @Test
+    public void iteratesOverContentOfEnvelope() throws IOException {
+        Gson envelopeGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                        .withContextTypes(AB.class)//
+                        .withSizeHints()//
+                        .build())//
+                .create();
+        String enveloped = "{\"@context\":{\"" + AB.class.getName() + "\":\"A\"},"
+                + "\"@size\":{\"entries\":4,\"coordinates\":[2,2]},\"@tensor\":" + JSON_STRING + "}";
+        JsonReader in = new JsonReader(new StringReader(enveloped));
+
+        Map<Position, Double> entries = TensorbackedEntryIterator.of(envelopeGson, AnInheritedTensorbacked.class, in)
+                .stream().collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        assertThat(entries).containsOnly(//
+                entry(at("A", 1), 0.11), entry(at("A", 2), 0.12), //
+                entry(at("B", 1), 0.21), entry(at("B", 2), 0.22));
+        assertThat(in.peek()).isEqualTo(JsonToken.END_DOCUMENT);
+    }
+
+    @Test
+    public void pushesEntriesToCallback() throws IOException {
+        Map<Position, Double> entries = new HashMap<>();
+        TensorbackedEntryIterator<Double> iterator = TensorbackedEntryIterator.of(gson, AnInheritedTensorbacked.class,
+                new JsonReader(new StringReader(JSON_STRING)));
+        iterator.forEachEntry(entries::put);
+        assertThat(entries).hasSize(4);
+        assertThat(iterator.hasNext()).isFalse();
+    }
+
+    @Test
+    public void streamDoesNotClaimDistinctPositionsForRepeatedTopLevelKeys() throws IOException {
+        String repeated = "{\"A\":{\"1\":0.11},\"B\":{\"1\":0.21},\"A\":{\"1\":0.12}}";
+        TensorbackedEntryIterator<Double> iterator = TensorbackedEntryIterator.of(gson, AnInheritedTensorbacked.class,
+                new JsonReader(new StringReader(repeated)));
+        assertThat(iterator.stream().map(Map.Entry::getKey).distinct().count()).isEqualTo(2);
+    }
+
+    @Test
+    public void worksWithoutRegisteredFactory() throws IOException {
+        Gson plainGson = new Gson();
+        TensorbackedEntryIterator<Double> iterator = TensorbackedEntryIterator.of(plainGson, AnInheritedTensorbacked.class,
+                new JsonReader(new StringReader(JSON_STRING)));
+        assertThat(iterator.stream().mapToDouble(Map.Entry::getValue).sum()).isCloseTo(0.66, within(1e-9));
+    }
+
+    private <TB extends Tensorbacked<Double>> Map<Position, Double> collect(String json, Class<TB> tensorbackedClass)
+            throws IOException {
+        return collect(gson, json, tensorbackedClass);
+    }
+
+    private static <TB extends Tensorbacked<Double>> Map<Position, Double> collect(Gson gson, String json,
+                                                                                  Class<TB> tensorbackedClass)
+            throws IOException {
+        return TensorbackedEntryIterator.of(gson, tensorbackedClass, new JsonReader(new StringReader(json)))
+                .stream().collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+}
@@ -0,0 +1,169 @@
+package org.tensorics.gson.adapters;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tensorics.core.lang.Tensorics;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.AComplexCoordTensorbacked;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.AThreeDimTensorbacked;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.AnInheritedTensorbacked;
+import org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.Pair;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.tensorics.core.lang.Tensorics.at;
+import static org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.BIG_TB;
+import static org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.ESCAPED_NAME;
+import static org.tensorics.gson.adapters.TensorbackedGsonAdapterTest.ESCAPED_THREE_DIM_TB;
+
+public class TensorbackedFileReaderTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final Gson gson = new GsonBuilder()//
+            .registerTypeAdapterFactory(TensorbackedGsonAdapter.FACTORY)//
+            .create();
+
+    @Test
+    public void wholeFileIsRead() throws IOException {
+        Path file = write(gson.toJson(ESCAPED_THREE_DIM_TB));
+        try (TensorbackedFileReader<Double, AThreeDimTensorbacked> reader = TensorbackedFileReader.open(gson,
+                AThreeDimTensorbacked.class, file)) {
+            assertThat(reader.read()).isEqualTo(ESCAPED_THREE_DIM_TB);
+        }
+    }
+
+    @Test
+    public void topLevelCoordinatesAreIndexed() throws IOException {
+        Gson prettyGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapter.FACTORY)//
+                .setPrettyPrinting()//
+                .create();
+        Path file = write(prettyGson.toJson(ESCAPED_THREE_DIM_TB));
+        try (TensorbackedFileReader<Double, AThreeDimTensorbacked> reader = TensorbackedFileReader.open(gson,
+                AThreeDimTensorbacked.class, file)) {
+            assertThat(reader.topLevelCoordinates()).containsExactly("a", ESCAPED_NAME, "c");
+        }
+    }
+
+    @Test
+    public void singleSliceIsRead() throws IOException {
+        Path file = write(gson.toJson(ESCAPED_THREE_DIM_TB));
+        try (TensorbackedFileReader<Double, AThreeDimTensorbacked> reader = TensorbackedFileReader.open(gson,
+                AThreeDimTensorbacked.class, file)) {
+            assertThat(reader.readSlice(ESCAPED_NAME)).isEqualTo(Tensorics.builderFor(AThreeDimTensorbacked.class)//
+                    .put(at(ESCAPED_NAME, 1, 20L), 0.4)//
+                    .put(at(ESCAPED_NAME, 3, 10L), 0.5)//
+                    .build());
+            assertThat(reader.readSlice("c")).isEqualTo(Tensorics.builderFor(AThreeDimTensorbacked.class)//
+                    .put(at("c", 3, 10L), 0.6)//
+                    .build());
+            assertThat(reader.readSlice("notThere")).isEqualTo(Tensorics.builderFor(AThreeDimTensorbacked.class)//
+                    .build());
+        }
+    }
+
+    @Test
+    public void sliceOfEntryArraysIsRead() throws IOException {
+        Gson complexMapKeyGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapter.FACTORY)//
+                .enableComplexMapKeySerialization()//
+                .create();
+        AComplexCoordTensorbacked complex = Tensorics.builderFor(AComplexCoordTensorbacked.class)//
+                .put(at(new Pair("a1", "b1")), 0.11)//
+                .put(at(new Pair("a2", "b2")), 0.22)//
+                .build();
+        Path file = write(complexMapKeyGson.toJson(complex));
+        try (TensorbackedFileReader<Double, AComplexCoordTensorbacked> reader = TensorbackedFileReader.open(gson,
+                AComplexCoordTensorbacked.class, file)) {
+            assertThat(reader.topLevelCoordinates()).containsExactly(new Pair("a1", "b1"), new Pair("a2", "b2"));
+            assertThat(reader.readSlice(new Pair("a2", "b2")))//
+                    .isEqualTo(Tensorics.builderFor(AComplexCoordTensorbacked.class)//
+                            .put(at(new Pair("a2", "b2")), 0.22)//
+                            .build());
+        }
+    }
+
+    @Test
+    public void columnarOrEnvelopedFileIsNotIndexed() throws IOException {
+        Gson columnarGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                        .withLayout(JsonLayout.COLUMNAR)//
+                        .build())//
+                .create();
+        Gson sizeHintGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                        .withSizeHints(true)//
+                        .build())//
+                .create();
+
+        for (Gson otherGson : Arrays.asList(columnarGson, sizeHintGson)) {
+            Path file = write(otherGson.toJson(ESCAPED_THREE_DIM_TB));
+            try (TensorbackedFileReader<Double, AThreeDimTensorbacked> reader = TensorbackedFileReader.open(otherGson,
+                    AThreeDimTensorbacked.class, file)) {
+                assertThatThrownBy(reader::topLevelCoordinates).isInstanceOf(JsonSyntaxException.class);
+                assertThatThrownBy(() -> reader.readSlice("a")).isInstanceOf(JsonSyntaxException.class);
+                assertThat(reader.read()).isEqualTo(ESCAPED_THREE_DIM_TB);
+            }
+        }
+    }
+
+    @Test
+    public void wholeFileIsParsedInParallel() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Gson parallelGson = new GsonBuilder()//
+                    .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                            .withParallelReads(pool, 0)//
+                            .build())//
+                    .create();
+            Gson parallelSizeHintGson = new GsonBuilder()//
+                    .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                            .withParallelReads(pool, 0)//
+                            .withSizeHints(true)//
+                            .build())//
+                    .create();
+
+            /* nested ranges are parsed in parallel, the envelope falls back to parsing the file as a whole */
+            for (Gson otherGson : Arrays.asList(parallelGson, parallelSizeHintGson)) {
+                Path file = write(otherGson.toJson(ESCAPED_THREE_DIM_TB));
+                try (TensorbackedFileReader<Double, AThreeDimTensorbacked> reader = TensorbackedFileReader
+                        .open(otherGson, AThreeDimTensorbacked.class, file)) {
+                    assertThat(reader.read()).isEqualTo(ESCAPED_THREE_DIM_TB);
+                }
+            }
+            Path big = write(gson.toJson(BIG_TB));
+            try (TensorbackedFileReader<Double, AnInheritedTensorbacked> reader = TensorbackedFileReader
+                    .open(parallelGson, AnInheritedTensorbacked.class, big)) {
+                assertThat(reader.read()).isEqualTo(BIG_TB);
+            }
+            Path repeated = write("{\"a\":{\"1\":{\"10\":0.1}},\"a\":{\"2\":{\"10\":0.2}}}");
+            try (TensorbackedFileReader<Double, AThreeDimTensorbacked> reader = TensorbackedFileReader
+                    .open(parallelGson, AThreeDimTensorbacked.class, repeated)) {
+                assertThat(reader.read()).isEqualTo(Tensorics.builderFor(AThreeDimTensorbacked.class)//
+                        .put(at("a", 2, 10L), 0.2)//
+                        .build());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Path write(String json) throws IOException {
+        Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, json.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+}
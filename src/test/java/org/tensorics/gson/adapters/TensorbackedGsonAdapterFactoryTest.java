@@ -1,8 +1,8 @@
 package org.tensorics.gson.adapters;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import com.google.gson.TypeAdapter;
-import com.google.gson.TypeAdapterFactory;
 import com.google.gson.reflect.TypeToken;
 import org.assertj.core.api.Assertions;
 import org.junit.Test;
@@ -11,11 +11,14 @@ import org.tensorics.core.tensor.Tensor;
 import org.tensorics.core.tensorbacked.AbstractTensorbacked;
 import org.tensorics.core.tensorbacked.annotation.Dimensions;
 
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.tensorics.core.lang.Tensorics.at;
 
 public class TensorbackedGsonAdapterFactoryTest {
 
-    private final TypeAdapterFactory factory = new TensorbackedGsonAdapterFactory();
+    private final TensorbackedGsonAdapterFactory factory = new TensorbackedGsonAdapterFactory();
     private final Gson gson = new Gson();
 
     @Test
@@ -32,6 +35,69 @@ public class TensorbackedGsonAdapterFactoryTest {
         Assertions.assertThat(adapter).isNotNull();
     }
 
+    @Test
+    public void descriptorIsResolvedOnlyOncePerClass() {
+        TensorbackedDescriptor<?, ?> descriptor = factory.descriptorFor(AnInheritedTensorbacked.class);
+        Assertions.assertThat(descriptor.dimensions()).containsExactly(String.class, Integer.class);
+        Assertions.assertThat(factory.descriptorFor(AnInheritedTensorbacked.class)).isSameAs(descriptor);
+    }
+
+    @Test
+    public void cacheRecordsHitsAndMisses() {
+        /* The descriptor is kept referenced, as it could be garbage collected otherwise */
+        TensorbackedDescriptor<?, ?> descriptor = factory.descriptorFor(AnInheritedTensorbacked.class);
+        factory.descriptorFor(AnInheritedTensorbacked.class);
+        factory.descriptorFor(AnInheritedTensorbacked.class);
+
+        TensorbackedCacheStats stats = factory.cacheStats();
+        Assertions.assertThat(stats.missCount()).isEqualTo(1);
+        Assertions.assertThat(stats.hitCount()).isEqualTo(2);
+        Assertions.assertThat(stats.size()).isEqualTo(1);
+        Assertions.assertThat(factory.descriptorFor(AnInheritedTensorbacked.class)).isSameAs(descriptor);
+    }
+
+    @Test
+    public void cacheIsBounded() {
+        TensorbackedGsonAdapterFactory smallFactory = TensorbackedGsonAdapterFactory.builder()//
+                .withCacheSize(1)//
+                .build();
+        TensorbackedDescriptor<?, ?> descriptor = smallFactory.descriptorFor(AnInheritedTensorbacked.class);
+        TensorbackedDescriptor<?, ?> anotherDescriptor = smallFactory.descriptorFor(AnotherTensorbacked.class);
+
+        Assertions.assertThat(smallFactory.cacheStats().size()).isEqualTo(1);
+        Assertions.assertThat(smallFactory.cacheStats().evictionCount()).isEqualTo(1);
+        /* An evicted descriptor is simply determined again */
+        Assertions.assertThat(smallFactory.descriptorFor(AnInheritedTensorbacked.class).dimensions())//
+                .isEqualTo(descriptor.dimensions());
+        Assertions.assertThat(anotherDescriptor.dimensions()).containsExactly(Integer.class);
+    }
+
+    @Test
+    public void registeredTypeIsUsedInsteadOfReflection() {
+        AtomicInteger created = new AtomicInteger();
+        /* Without the registration, the dimensions of this class could not be determined */
+        TensorbackedGsonAdapterFactory typedFactory = TensorbackedGsonAdapterFactory.builder()//
+                .withTypes(TensorbackedType.of(InvalidTensorbacked.class, Double.class,
+                        Arrays.asList(String.class, Integer.class), tensor -> {
+                            created.incrementAndGet();
+                            return new InvalidTensorbacked(tensor);
+                        }))//
+                .build();
+        Gson typedGson = new GsonBuilder().registerTypeAdapterFactory(typedFactory).create();
+        Tensor<Double> entries = Tensorics.<Double>builder(String.class, Integer.class)//
+                .put(at("A", 1), 0.11)//
+                .build();
+        InvalidTensorbacked tensorbacked = new InvalidTensorbacked(entries);
+
+        String string = typedGson.toJson(tensorbacked);
+        Assertions.assertThat(string).isEqualTo("{\"A\":{\"1\":0.11}}");
+        Assertions.assertThat(typedGson.fromJson(string, InvalidTensorbacked.class).tensor())//
+                .isEqualTo(tensorbacked.tensor());
+        Assertions.assertThat(created).hasValue(1);
+        Assertions.assertThat(typedFactory.descriptorFor(InvalidTensorbacked.class).dimensions())//
+                .containsExactly(String.class, Integer.class);
+    }
+
     @Dimensions({String.class, Integer.class})
     public static class AnInheritedTensorbacked extends AbstractTensorbacked<Double> {
 
@@ -41,6 +107,15 @@ public class TensorbackedGsonAdapterFactoryTest {
 
     }
 
+    @Dimensions({Integer.class})
+    public static class AnotherTensorbacked extends AbstractTensorbacked<Double> {
+
+        public AnotherTensorbacked(Tensor<Double> tensor) {
+            super(tensor);
+        }
+
+    }
+
     /**
      * Despite not inheriting from abstract tensorbacked, this is not valid tensorbacked object, as it does not have
      * the required annotation.
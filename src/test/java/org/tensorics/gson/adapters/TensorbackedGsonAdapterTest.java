@@ -1,19 +1,36 @@
 package org.tensorics.gson.adapters;
 
+import com.google.common.collect.ImmutableList;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import org.junit.Test;
 import org.tensorics.core.lang.Tensorics;
 import org.tensorics.core.tensor.Position;
 import org.tensorics.core.tensor.Tensor;
 import org.tensorics.core.tensorbacked.AbstractTensorbacked;
+import org.tensorics.core.tensorbacked.Tensorbacked;
+import org.tensorics.core.tensorbacked.TensorbackedBuilder;
+import org.tensorics.core.tensorbacked.TensorbackedInternals;
 import org.tensorics.core.tensorbacked.annotation.Dimensions;
 import org.tensorics.core.tensorbacked.dimtyped.Tensorbacked1d;
 import org.tensorics.core.tensorbacked.dimtyped.Tensorbacked2d;
 import org.tensorics.core.tensorbacked.dimtyped.TensorbackedScalar;
-
+import org.tensorics.gson.util.Nestmaps;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -41,11 +58,43 @@ public class TensorbackedGsonAdapterTest {
             .build();
     private static final String COMPLEX_COORD_JSON_STRING = "[[{\"a\":\"a1\",\"b\":\"b1\"},0.11],[{\"a\":\"a2\",\"b\":\"b2\"},0.22]]";
 
+    static final AThreeDimTensorbacked THREE_DIM_TB = Tensorics.builderFor(AThreeDimTensorbacked.class)//
+            .put(at("a", 1, 10L), 0.1)//
+            .put(at("a", 1, 20L), 0.2)//
+            .put(at("a", 2, 10L), 0.3)//
+            .put(at("b", 1, 20L), 0.4)//
+            .put(at("b", 3, 10L), 0.5)//
+            .build();
+
+    static final String ESCAPED_NAME = "Grüße \"😀\"";
+
+    /**
+     * Like {@link #THREE_DIM_TB}, but with a top level coordinate which is escaped in json and encoded in multiple bytes
+     * (also as a surrogate pair) in UTF-8, and with one more top level coordinate.
+     */
+    static final AThreeDimTensorbacked ESCAPED_THREE_DIM_TB = Tensorics.builderFor(AThreeDimTensorbacked.class)//
+            .put(at("a", 1, 10L), 0.1)//
+            .put(at("a", 1, 20L), 0.2)//
+            .put(at("a", 2, 10L), 0.3)//
+            .put(at(ESCAPED_NAME, 1, 20L), 0.4)//
+            .put(at(ESCAPED_NAME, 3, 10L), 0.5)//
+            .put(at("c", 3, 10L), 0.6)//
+            .build();
+
+    /**
+     * A tensorbacked with 1000 entries, which is big enough to span many buffers and to be split into many tasks.
+     */
+    static final AnInheritedTensorbacked BIG_TB = bigTensorbacked();
+
     private final Gson complexMapKeyGson = new GsonBuilder()//
             .registerTypeAdapterFactory(TensorbackedGsonAdapter.FACTORY)//
             .enableComplexMapKeySerialization() //
             .create();
 
+    private final Gson columnarGson = new GsonBuilder()//
+            .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder().withLayout(JsonLayout.COLUMNAR).build())//
+            .create();
+
     @Test
     public void simpleTensorSerializationIsOk() {
         String string = simpleGson.toJson(TENSORBACKED);
@@ -123,6 +172,153 @@ public class TensorbackedGsonAdapterTest {
         assertThat(deserialized).isEqualTo(TENSORBACKED);
     }
 
+    @Test
+    public void contextIsSerializedForRegisteredTypes() {
+        Gson contextGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                        .withContextTypes(AB.class)//
+                        .build())//
+                .create();
+        AnInheritedTensorbacked tbWithContext = Tensorics.builderFor(AnInheritedTensorbacked.class)//
+                .putAll(TENSORBACKED)//
+                .context(Position.of(AB.A))//
+                .build();
+
+        String string = contextGson.toJson(tbWithContext);
+        assertThat(string).isEqualTo("{\"@context\":{\"" + AB.class.getName() + "\":\"A\"},\"@tensor\":"
+                + JSON_STRING + "}");
+        assertThat(contextGson.fromJson(string, AnInheritedTensorbacked.class)).isEqualTo(tbWithContext);
+
+        /* With other registered types, the envelope is still read, but the context is stripped */
+        Gson otherContextGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                        .withContextTypes(String.class)//
+                        .build())//
+                .create();
+        assertThat(otherContextGson.fromJson(string, AnInheritedTensorbacked.class)).isEqualTo(TENSORBACKED);
+        /* An empty context is not written at all */
+        assertThat(contextGson.toJson(TENSORBACKED)).isEqualTo(JSON_STRING);
+    }
+
+    @Test
+    public void contextOfComplexCoordinatesRoundTripIsOk() {
+        Gson contextGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                        .withContextTypes(AB.class)//
+                        .withParallelReads(ForkJoinPool.commonPool(), 0)//
+                        .build())//
+                .enableComplexMapKeySerialization()//
+                .create();
+        AComplexCoordTensorbacked complexWithContext = Tensorics.builderFor(AComplexCoordTensorbacked.class)//
+                .putAll(COMPLEX_COORD_TB)//
+                .context(Position.of(AB.A))//
+                .build();
+
+        String string = contextGson.toJson(complexWithContext);
+        assertThat(string).endsWith("\"@tensor\":" + COMPLEX_COORD_JSON_STRING + "}");
+        assertThat(contextGson.fromJson(string, AComplexCoordTensorbacked.class)).isEqualTo(complexWithContext);
+    }
+
+    @Test
+    public void contextOfScalarIsDeserialized() {
+        Gson contextGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                        .withContextTypes(AB.class)//
+                        .build())//
+                .create();
+        String string = "{\"@context\":{\"" + AB.class.getName() + "\":\"A\"},\"@tensor\":0.33}";
+
+        AScalarBacked scalar = contextGson.fromJson(string, AScalarBacked.class);
+        assertThat(scalar.tensor().context()).isEqualTo(Position.of(AB.A));
+        assertThat(scalar.get()).isEqualTo(0.33);
+    }
+
+    @Test
+    public void contextOfUnregisteredTypeIsSkipped() {
+        Gson contextGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                        .withContextTypes(String.class)//
+                        .build())//
+                .create();
+        AnInheritedTensorbacked tbWithContext = Tensorics.builderFor(AnInheritedTensorbacked.class)//
+                .putAll(TENSORBACKED)//
+                .context(Position.of(AB.A))//
+                .build();
+        AnInheritedTensorbacked tbWithMixedContext = Tensorics.builderFor(AnInheritedTensorbacked.class)//
+                .putAll(TENSORBACKED)//
+                .context(Position.of(AB.A, "XY"))//
+                .build();
+
+        assertThat(contextGson.toJson(tbWithContext)).isEqualTo(JSON_STRING);
+        String mixed = contextGson.toJson(tbWithMixedContext);
+        assertThat(mixed).isEqualTo("{\"@context\":{\"java.lang.String\":\"XY\"},\"@tensor\":" + JSON_STRING + "}");
+        assertThat(contextGson.fromJson(mixed, AnInheritedTensorbacked.class).tensor().context())//
+                .isEqualTo(Position.of("XY"));
+    }
+
+    @Test
+    public void sizeHintIsWrittenIfEnabled() {
+        Gson sizeHintGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                        .withSizeHints()//
+                        .withCoordinateInterning(100, false)//
+                        .build())//
+                .create();
+
+        String string = sizeHintGson.toJson(TENSORBACKED);
+        assertThat(string).isEqualTo("{\"@size\":{\"entries\":4,\"coordinates\":[2,2]},\"@tensor\":" + JSON_STRING
+                + "}");
+        assertThat(sizeHintGson.fromJson(string, AnInheritedTensorbacked.class)).isEqualTo(TENSORBACKED);
+
+        /* For sparse tensors, the coordinates of the inner dimension are the most within one top level coordinate */
+        AnInheritedTensorbacked sparse = Tensorics.builderFor(AnInheritedTensorbacked.class)//
+                .put(at("A", 1), 0.11)//
+                .put(at("A", 2), 0.12)//
+                .put(at("B", 3), 0.23)//
+                .build();
+        assertThat(sizeHintGson.toJson(sparse)).startsWith("{\"@size\":{\"entries\":3,\"coordinates\":[2,2]}");
+    }
+
+    @Test
+    public void wrongSizeHintIsTolerated() {
+        Gson parallelGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                        .withSizeHints()//
+                        .withParallelReads(ForkJoinPool.commonPool(), 0)//
+                        .withCoordinateInterning(100, false)//
+                        .build())//
+                .create();
+        String tooSmall = "{\"@size\":{\"entries\":1,\"coordinates\":[1]},\"@tensor\":" + JSON_STRING + "}";
+        String tooBig = "{\"@size\":{\"entries\":2147483647,\"coordinates\":[-5,2147483647,7],\"other\":[]},"
+                + "\"@tensor\":" + JSON_STRING + "}";
+
+        assertThat(parallelGson.fromJson(tooSmall, AnInheritedTensorbacked.class)).isEqualTo(TENSORBACKED);
+        assertThat(parallelGson.fromJson(tooBig, AnInheritedTensorbacked.class)).isEqualTo(TENSORBACKED);
+    }
+
+    @Test
+    public void coordinatesNamedLikeEnvelopeFieldsRoundTripIsOk() {
+        Gson envelopeGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                        .withContextTypes(AB.class)//
+                        .build())//
+                .create();
+        AnInheritedTensorbacked reservedNames = Tensorics.builderFor(AnInheritedTensorbacked.class)//
+                .put(at("@context", 1), 0.11)//
+                .put(at("@size", 1), 0.21)//
+                .put(at("@tensor", 2), 0.32)//
+                .build();
+
+        String string = simpleGson.toJson(reservedNames);
+        assertThat(string).isEqualTo("{\"@context\":{\"1\":0.11},\"@size\":{\"1\":0.21},\"@tensor\":{\"2\":0.32}}");
+        assertThat(simpleGson.fromJson(string, AnInheritedTensorbacked.class)).isEqualTo(reservedNames);
+
+        /* A factory detecting the envelope writes such tensors in an envelope */
+        String enveloped = envelopeGson.toJson(reservedNames);
+        assertThat(enveloped).isEqualTo("{\"@tensor\":" + string + "}");
+        assertThat(envelopeGson.fromJson(enveloped, AnInheritedTensorbacked.class)).isEqualTo(reservedNames);
+    }
+
     @Test
     public void complexCoordinateNotSupportedPerDefault() {
         String string = simpleGson.toJson(COMPLEX_COORD_TB);
@@ -147,6 +343,395 @@ public class TensorbackedGsonAdapterTest {
         assertThat(deserialized).isEqualTo(COMPLEX_COORD_TB);
     }
 
+    @Test
+    public void serializationIsIdenticalToNestedMaps() {
+        Object nested = Nestmaps.nestmap(THREE_DIM_TB.tensor(), TensorbackedInternals.dimensionListFrom(AThreeDimTensorbacked.class));
+
+        assertThat(simpleGson.toJson(THREE_DIM_TB)).isEqualTo(simpleGson.toJson(nested));
+        assertThat(complexMapKeyGson.toJson(THREE_DIM_TB)).isEqualTo(complexMapKeyGson.toJson(nested));
+    }
+
+    @Test
+    public void threeDimRoundTripIsOk() {
+        String string = simpleGson.toJson(THREE_DIM_TB);
+        AThreeDimTensorbacked deserialized = simpleGson.fromJson(string, AThreeDimTensorbacked.class);
+        assertThat(deserialized).isEqualTo(THREE_DIM_TB);
+    }
+
+    @Test
+    public void duplicateKeyInEntryArrayThrows() {
+        String string = "[[{\"a\":\"a1\",\"b\":\"b1\"},0.11],[{\"a\":\"a1\",\"b\":\"b1\"},0.22]]";
+        assertThatThrownBy(() -> simpleGson.fromJson(string, AComplexCoordTensorbacked.class)) //
+                .isInstanceOf(JsonSyntaxException.class) //
+                .hasMessageContaining("duplicate key");
+    }
+
+    @Test
+    public void emptyTensorIsSerializedAsNull() {
+        AnInheritedTensorbacked empty = Tensorics.builderFor(AnInheritedTensorbacked.class).build();
+        assertThat(simpleGson.toJson(empty)).isEqualTo("null");
+    }
+
+    @Test
+    public void columnarLayoutRoundTripIsOk() {
+        String string = columnarGson.toJson(TENSORBACKED);
+        assertThat(string).startsWith("{\"@coordinates\":[");
+        assertThat(columnarGson.fromJson(string, AnInheritedTensorbacked.class)).isEqualTo(TENSORBACKED);
+        /* The layout is detected on reading, so the nested layout can be read as well */
+        assertThat(columnarGson.fromJson(JSON_STRING, AnInheritedTensorbacked.class)).isEqualTo(TENSORBACKED);
+    }
+
+    @Test
+    public void columnarLayoutOfSparseTensorRoundTripIsOk() {
+        AnInheritedTensorbacked halfEmpty = Tensorics.builderFor(AnInheritedTensorbacked.class)//
+                .put(at("A", 1), 0.11)//
+                .put(at("B", 2), 0.22)//
+                .build();
+        String string = columnarGson.toJson(halfEmpty);
+        assertThat(string).isEqualTo("{\"@coordinates\":[[\"A\",\"B\"],[1,2]],\"@values\":[0.11,null,null,0.22]}");
+        assertThat(columnarGson.fromJson(string, AnInheritedTensorbacked.class)).isEqualTo(halfEmpty);
+
+        /* 5 entries in a grid of 12 positions: this is written in nested layout */
+        string = columnarGson.toJson(THREE_DIM_TB);
+        assertThat(string).isEqualTo(simpleGson.toJson(THREE_DIM_TB));
+        assertThat(columnarGson.fromJson(string, AThreeDimTensorbacked.class)).isEqualTo(THREE_DIM_TB);
+    }
+
+    @Test
+    public void columnarLayoutIsNotUsedIfAValueIsWrittenAsNull() {
+        Gson nanAsNullGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder().withLayout(JsonLayout.COLUMNAR).build())//
+                .registerTypeAdapter(Double.class, new NanAsNullAdapter())//
+                .serializeNulls()//
+                .create();
+        AnInheritedTensorbacked withNan = Tensorics.builderFor(AnInheritedTensorbacked.class)//
+                .put(at("A", 1), 0.11)//
+                .put(at("A", 2), Double.NaN)//
+                .put(at("B", 1), 0.21)//
+                .put(at("B", 2), 0.22)//
+                .build();
+
+        /* In columnar layout, the null would be read as an absent entry */
+        String string = nanAsNullGson.toJson(withNan);
+        assertThat(string).isEqualTo("{\"A\":{\"1\":0.11,\"2\":null},\"B\":{\"1\":0.21,\"2\":0.22}}");
+        assertThat(nanAsNullGson.fromJson(string, AnInheritedTensorbacked.class)).isEqualTo(withNan);
+    }
+
+    @Test
+    public void columnarLayoutDeserializationIsOk() {
+        String string = "{\"@coordinates\":[[\"A\",\"B\"],[1,2]],\"@values\":[0.11,0.12,0.21,null]}";
+        AnInheritedTensorbacked val = columnarGson.fromJson(string, AnInheritedTensorbacked.class);
+        assertThat(val).isEqualTo(Tensorics.builderFor(AnInheritedTensorbacked.class)//
+                .put(at("A", 1), 0.11)//
+                .put(at("A", 2), 0.12)//
+                .put(at("B", 1), 0.21)//
+                .build());
+    }
+
+    @Test
+    public void columnarLayoutWithWrongNumberOfValuesThrows() {
+        String string = "{\"@coordinates\":[[\"A\",\"B\"],[1,2]],\"@values\":[0.11,0.12,0.21]}";
+        assertThatThrownBy(() -> columnarGson.fromJson(string, AnInheritedTensorbacked.class)) //
+                .isInstanceOf(JsonSyntaxException.class) //
+                .hasMessageContaining("Expected 4 values");
+    }
+
+    @Test
+    public void coordinateNamedLikeColumnarFieldRoundTripIsOk() {
+        AnInheritedTensorbacked reservedName = Tensorics.builderFor(AnInheritedTensorbacked.class)//
+                .put(at("@coordinates", 1), 0.11)//
+                .put(at("@values", 2), 0.22)//
+                .build();
+
+        /* The columnar layout is only detected by adapters configured for it */
+        String string = simpleGson.toJson(reservedName);
+        assertThat(string).isEqualTo("{\"@coordinates\":{\"1\":0.11},\"@values\":{\"2\":0.22}}");
+        assertThat(simpleGson.fromJson(string, AnInheritedTensorbacked.class)).isEqualTo(reservedName);
+        assertThat(columnarGson.fromJson(columnarGson.toJson(reservedName), AnInheritedTensorbacked.class))
+                .isEqualTo(reservedName);
+
+        /* Sparse tensors starting with the reserved name are not written in nested layout, but in the columnar one */
+        AnInheritedTensorbacked sparseReservedName = Tensorics.builderFor(AnInheritedTensorbacked.class)//
+                .putAll(reservedName)//
+                .put(at("C", 3), 0.33)//
+                .build();
+        String sparse = columnarGson.toJson(sparseReservedName);
+        assertThat(sparse).startsWith("{\"@coordinates\":[[\"@coordinates\",\"@values\",\"C\"],[1,2,3]]");
+        assertThat(columnarGson.fromJson(sparse, AnInheritedTensorbacked.class)).isEqualTo(sparseReservedName);
+    }
+
+    @Test
+    public void columnarLayoutWithComplexCoordinatesRoundTripIsOk() {
+        String string = columnarGson.toJson(COMPLEX_COORD_TB);
+        assertThat(columnarGson.fromJson(string, AComplexCoordTensorbacked.class)).isEqualTo(COMPLEX_COORD_TB);
+    }
+
+    @Test
+    public void parallelSerializationIsIdenticalToSequential() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            TensorbackedGsonAdapterFactory parallelFactory = TensorbackedGsonAdapterFactory.builder()//
+                    .withParallelWrites(pool, 0)//
+                    .build();
+            Gson parallelGson = new GsonBuilder().registerTypeAdapterFactory(parallelFactory).create();
+            Gson parallelComplexMapKeyGson = new GsonBuilder().registerTypeAdapterFactory(parallelFactory)//
+                    .enableComplexMapKeySerialization()//
+                    .create();
+
+            /* Only the writers created by the byte writer are known to be compact, so only these are written in parallel */
+            assertThat(writeBytes(parallelGson, AnInheritedTensorbacked.class, BIG_TB))//
+                    .isEqualTo(simpleGson.toJson(BIG_TB));
+            assertThat(writeBytes(parallelGson, AThreeDimTensorbacked.class, THREE_DIM_TB))//
+                    .isEqualTo(simpleGson.toJson(THREE_DIM_TB));
+            assertThat(writeBytes(parallelComplexMapKeyGson, AThreeDimTensorbacked.class, THREE_DIM_TB))//
+                    .isEqualTo(complexMapKeyGson.toJson(THREE_DIM_TB));
+            assertThat(parallelGson.toJson(THREE_DIM_TB)).isEqualTo(simpleGson.toJson(THREE_DIM_TB));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void parallelSerializationFallsBackToSequentialForJsonTrees() {
+        TensorbackedGsonAdapterFactory parallelFactory = TensorbackedGsonAdapterFactory.builder()//
+                .withParallelWrites(ForkJoinPool.commonPool(), 0)//
+                .build();
+        Gson parallelGson = new GsonBuilder().registerTypeAdapterFactory(parallelFactory).create();
+
+        assertThat(parallelGson.toJsonTree(THREE_DIM_TB)).isEqualTo(simpleGson.toJsonTree(THREE_DIM_TB));
+        assertThat(parallelGson.fromJson(parallelGson.toJsonTree(THREE_DIM_TB), AThreeDimTensorbacked.class))
+                .isEqualTo(THREE_DIM_TB);
+    }
+
+    @Test
+    public void parallelSerializationFallsBackToSequentialForPrettyPrinting() throws IOException {
+        TensorbackedGsonAdapterFactory parallelFactory = TensorbackedGsonAdapterFactory.builder()//
+                .withParallelWrites(ForkJoinPool.commonPool(), 0)//
+                .build();
+        Gson prettyParallelGson = new GsonBuilder().registerTypeAdapterFactory(parallelFactory).setPrettyPrinting().create();
+        Gson prettyGson = new GsonBuilder().registerTypeAdapterFactory(TensorbackedGsonAdapter.FACTORY).setPrettyPrinting().create();
+        assertThat(prettyParallelGson.toJson(THREE_DIM_TB)).isEqualTo(prettyGson.toJson(THREE_DIM_TB));
+        assertThat(writeBytes(prettyParallelGson, AThreeDimTensorbacked.class, THREE_DIM_TB))//
+                .isEqualTo(prettyGson.toJson(THREE_DIM_TB));
+    }
+
+    private static <V, TB extends Tensorbacked<V>> String writeBytes(Gson gson, Class<TB> tensorbackedClass, TB value)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TensorbackedByteWriter.of(gson, tensorbackedClass).write(value, Channels.newChannel(out));
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void parallelDeserializationIsIdenticalToSequential() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Gson parallelGson = new GsonBuilder()//
+                    .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                            .withParallelReads(pool, 0)//
+                            .withLayout(JsonLayout.COLUMNAR)//
+                            .build())//
+                    .create();
+
+            assertThat(parallelGson.fromJson(simpleGson.toJson(BIG_TB), AnInheritedTensorbacked.class)).isEqualTo(BIG_TB);
+            assertThat(parallelGson.fromJson(simpleGson.toJson(THREE_DIM_TB), AThreeDimTensorbacked.class))
+                    .isEqualTo(THREE_DIM_TB);
+            assertThat(parallelGson.fromJson(complexMapKeyGson.toJson(THREE_DIM_TB), AThreeDimTensorbacked.class))
+                    .isEqualTo(THREE_DIM_TB);
+            assertThat(parallelGson.fromJson(columnarGson.toJson(THREE_DIM_TB), AThreeDimTensorbacked.class))
+                    .isEqualTo(THREE_DIM_TB);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void parallelDeserializationOfDuplicateKeyInEntryArrayThrows() {
+        Gson parallelGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                        .withParallelReads(ForkJoinPool.commonPool(), 0)//
+                        .build())//
+                .create();
+        String string = "[[\"a\",{\"1\":0.1}],[\"a\",{\"2\":0.2}]]";
+        assertThatThrownBy(() -> parallelGson.fromJson(string, AnInheritedTensorbacked.class)) //
+                .isInstanceOf(JsonSyntaxException.class) //
+                .hasMessageContaining("duplicate key");
+    }
+
+    @Test
+    public void laterDuplicateTopLevelKeyReplacesEarlierOne() {
+        Gson parallelGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                        .withParallelReads(ForkJoinPool.commonPool(), 0)//
+                        .build())//
+                .create();
+        String string = "{\"a\":{\"1\":0.1,\"2\":0.2},\"b\":{\"1\":0.3},\"a\":{\"3\":0.4}}";
+        String emptied = "{\"a\":{\"1\":0.1},\"b\":{\"1\":0.3},\"a\":{}}";
+        AnInheritedTensorbacked replaced = Tensorics.builderFor(AnInheritedTensorbacked.class)//
+                .put(at("b", 1), 0.3)//
+                .put(at("a", 3), 0.4)//
+                .build();
+        AnInheritedTensorbacked removed = Tensorics.builderFor(AnInheritedTensorbacked.class)//
+                .put(at("b", 1), 0.3)//
+                .build();
+
+        for (Gson gson : ImmutableList.of(simpleGson, parallelGson)) {
+            assertThat(gson.fromJson(string, AnInheritedTensorbacked.class)).isEqualTo(replaced);
+            assertThat(gson.fromJson(emptied, AnInheritedTensorbacked.class)).isEqualTo(removed);
+        }
+    }
+
+    @Test
+    public void internedCoordinatesAreSharedWithinOneRead() {
+        Gson interningGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                        .withCoordinateInterning(100, false)//
+                        .build())//
+                .create();
+        String string = "{\"A\":{\"1000\":0.11,\"2000\":0.12},\"B\":{\"1000\":0.21}}";
+
+        AnInheritedTensorbacked first = interningGson.fromJson(string, AnInheritedTensorbacked.class);
+        AnInheritedTensorbacked second = interningGson.fromJson(string, AnInheritedTensorbacked.class);
+
+        assertThat(first).isEqualTo(simpleGson.fromJson(string, AnInheritedTensorbacked.class));
+        assertThat(coordinateOf(first, "A", 1000)).isSameAs(coordinateOf(first, "B", 1000));
+        assertThat(coordinateOf(first, "A", 1000)).isNotSameAs(coordinateOf(second, "A", 1000));
+    }
+
+    @Test
+    public void sharedInternedCoordinatesAreSharedAcrossReads() {
+        Gson interningGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                        .withCoordinateInterning(100, true)//
+                        .withParallelReads(ForkJoinPool.commonPool(), 0)//
+                        .build())//
+                .create();
+        String string = "{\"A\":{\"1000\":0.11,\"2000\":0.12},\"B\":{\"1000\":0.21}}";
+
+        AnInheritedTensorbacked first = interningGson.fromJson(string, AnInheritedTensorbacked.class);
+        AnInheritedTensorbacked second = interningGson.fromJson(string, AnInheritedTensorbacked.class);
+
+        assertThat(second).isEqualTo(first).isEqualTo(simpleGson.fromJson(string, AnInheritedTensorbacked.class));
+        assertThat(coordinateOf(first, "A", 1000)).isSameAs(coordinateOf(second, "B", 1000));
+    }
+
+    @Test
+    public void filteredReadReturnsOnlyMatchingEntries() throws IOException {
+        TensorbackedGsonAdapter<Double, AThreeDimTensorbacked> adapter =
+                (TensorbackedGsonAdapter<Double, AThreeDimTensorbacked>) columnarGson.getAdapter(AThreeDimTensorbacked.class);
+        CoordinateFilter filter = CoordinateFilter.matching(Position.of("a")).and(Long.class, l -> l == 10L);
+        AThreeDimTensorbacked expected = Tensorics.builderFor(AThreeDimTensorbacked.class)//
+                .put(at("a", 1, 10L), 0.1)//
+                .put(at("a", 2, 10L), 0.3)//
+                .build();
+
+        for (String json : ImmutableList.of(simpleGson.toJson(THREE_DIM_TB), complexMapKeyGson.toJson(THREE_DIM_TB),
+                columnarGson.toJson(THREE_DIM_TB))) {
+            assertThat(adapter.read(new JsonReader(new StringReader(json)), filter)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void filterOfFactoryIsUsedForAllReads() {
+        Gson filteringGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                        .withReadFilter(CoordinateFilter.all().and(Integer.class, i -> i > 1))//
+                        .withParallelReads(ForkJoinPool.commonPool(), 0)//
+                        .build())//
+                .create();
+        AThreeDimTensorbacked expected = Tensorics.builderFor(AThreeDimTensorbacked.class)//
+                .put(at("a", 2, 10L), 0.3)//
+                .put(at("b", 3, 10L), 0.5)//
+                .build();
+
+        assertThat(filteringGson.fromJson(simpleGson.toJson(THREE_DIM_TB), AThreeDimTensorbacked.class))
+                .isEqualTo(expected);
+        assertThat(filteringGson.fromJson(complexMapKeyGson.toJson(THREE_DIM_TB), AThreeDimTensorbacked.class))
+                .isEqualTo(expected);
+    }
+
+    @Test
+    public void listenerIsNotifiedAboutReadsAndWrites() {
+        List<TensorbackedAdapterEvent> events = new ArrayList<>();
+        Gson listenedGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                        .withListener(events::add)//
+                        .build())//
+                .create();
+
+        String json = listenedGson.toJson(THREE_DIM_TB);
+        listenedGson.fromJson(json, AThreeDimTensorbacked.class);
+
+        assertThat(events).hasSize(2);
+        TensorbackedAdapterEvent write = events.get(0);
+        assertThat(write.operation()).isEqualTo(TensorbackedAdapterEvent.Operation.WRITE);
+        assertThat(write.tensorbackedClass()).isEqualTo(AThreeDimTensorbacked.class);
+        assertThat(write.entryCount()).isEqualTo(5);
+        assertThat(write.dimensionCount()).isEqualTo(3);
+        assertThat(write.encodedSize()).isEqualTo(-1);
+        TensorbackedAdapterEvent read = events.get(1);
+        assertThat(read.operation()).isEqualTo(TensorbackedAdapterEvent.Operation.READ);
+        assertThat(read.entryCount()).isEqualTo(5);
+        assertThat(read.jsonNanos()).isGreaterThanOrEqualTo(0);
+        assertThat(read.buildNanos()).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    public void listenerIsNotifiedAboutEncodedSizeOfByteWriter() throws IOException {
+        List<TensorbackedAdapterEvent> events = new ArrayList<>();
+        Gson listenedGson = new GsonBuilder()//
+                .registerTypeAdapterFactory(TensorbackedGsonAdapterFactory.builder()//
+                        .withListener(events::add)//
+                        .build())//
+                .create();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        TensorbackedByteWriter.of(listenedGson, AnInheritedTensorbacked.class)//
+                .write(TENSORBACKED, Channels.newChannel(bytes));
+
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).encodedSize()).isEqualTo(bytes.size()).isEqualTo(JSON_STRING.length());
+    }
+
+    private static Object coordinateOf(AnInheritedTensorbacked tensorbacked, String key, int coordinate) {
+        return tensorbacked.tensor().asMap().keySet().stream()//
+                .filter(p -> p.equals(at(key, coordinate)))//
+                .map(p -> p.coordinateFor(Integer.class))//
+                .findFirst()//
+                .orElseThrow(AssertionError::new);
+    }
+
+    private static AnInheritedTensorbacked bigTensorbacked() {
+        TensorbackedBuilder<Double, AnInheritedTensorbacked> builder = Tensorics.builderFor(AnInheritedTensorbacked.class);
+        for (int i = 0; i < 50; i++) {
+            for (int j = 0; j < 20; j++) {
+                builder.put(at("key " + i, j), i + j / 100.0);
+            }
+        }
+        return builder.build();
+    }
+
+    private static final class NanAsNullAdapter extends TypeAdapter<Double> {
+
+        @Override
+        public void write(JsonWriter out, Double value) throws IOException {
+            if (value == null || value.isNaN()) {
+                out.nullValue();
+            } else {
+                out.value(value.doubleValue());
+            }
+        }
+
+        @Override
+        public Double read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return Double.NaN;
+            }
+            return in.nextDouble();
+        }
+    }
+
     public interface AScalarBacked extends TensorbackedScalar<Double> {
 
     }
@@ -161,6 +746,15 @@ public class TensorbackedGsonAdapterTest {
 
     }
 
+    @Dimensions({String.class, Integer.class, Long.class})
+    public static class AThreeDimTensorbacked extends AbstractTensorbacked<Double> {
+
+        public AThreeDimTensorbacked(Tensor<Double> tensor) {
+            super(tensor);
+        }
+
+    }
+
     public interface AnInterfaceTensorbacked extends Tensorbacked2d<String, Integer, Double> {
 
     }
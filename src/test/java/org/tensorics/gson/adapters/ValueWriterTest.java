@@ -0,0 +1,94 @@
+package org.tensorics.gson.adapters;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.LongSerializationPolicy;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ValueWriterTest {
+
+    private final Gson gson = new Gson();
+
+    @Test
+    public void primitivesAreWrittenDirectlyForDefaultGson() {
+        assertThat(valueWriter(gson, Double.class).isPrimitive()).isTrue();
+        assertThat(valueWriter(gson, Long.class).isPrimitive()).isTrue();
+        assertThat(valueWriter(gson, Integer.class).isPrimitive()).isTrue();
+        assertThat(valueWriter(gson, Boolean.class).isPrimitive()).isTrue();
+        assertThat(valueWriter(gson, String.class).isPrimitive()).isFalse();
+    }
+
+    @Test
+    public void primitiveJsonIsTheJsonOfGson() throws IOException {
+        assertThat(write(valueWriter(gson, Double.class), 0.1, -3.3E300, null)).isEqualTo("[0.1,-3.3E300,null]");
+        assertThat(write(valueWriter(gson, Long.class), Long.MIN_VALUE, 7L)).isEqualTo("[-9223372036854775808,7]");
+        assertThat(write(valueWriter(gson, Boolean.class), true, false)).isEqualTo("[true,false]");
+    }
+
+    @Test
+    public void longSerializationPolicyIsRespected() throws IOException {
+        Gson stringLongGson = new GsonBuilder().setLongSerializationPolicy(LongSerializationPolicy.STRING).create();
+        ValueWriter valueWriter = valueWriter(stringLongGson, Long.class);
+        assertThat(valueWriter.isPrimitive()).isFalse();
+        assertThat(write(valueWriter, 5L)).isEqualTo("[\"5\"]");
+    }
+
+    @Test
+    public void customAdaptersAreRespected() throws IOException {
+        Gson customGson = new GsonBuilder().registerTypeAdapter(Double.class, new TypeAdapter<Double>() {
+            @Override
+            public void write(JsonWriter out, Double value) throws IOException {
+                out.value("custom");
+            }
+
+            @Override
+            public Double read(JsonReader in) throws IOException {
+                in.skipValue();
+                return 0.0;
+            }
+        }).create();
+        ValueWriter valueWriter = valueWriter(customGson, Double.class);
+        assertThat(valueWriter.isPrimitive()).isFalse();
+        assertThat(write(valueWriter, 1.0)).isEqualTo("[\"custom\"]");
+    }
+
+    @Test
+    public void specialFloatingPointValuesAreRejectedPerDefault() {
+        ValueWriter valueWriter = valueWriter(gson, Double.class);
+        assertThatThrownBy(() -> write(valueWriter, Double.NaN)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void specialFloatingPointValuesAreWrittenIfEnabled() throws IOException {
+        Gson specialGson = new GsonBuilder().serializeSpecialFloatingPointValues().create();
+        ValueWriter valueWriter = valueWriter(specialGson, Double.class);
+        assertThat(valueWriter.isPrimitive()).isTrue();
+        assertThat(write(valueWriter, Double.NaN, 1.5)).isEqualTo("[NaN,1.5]");
+    }
+
+    private static ValueWriter valueWriter(Gson gson, Class<?> valueType) {
+        return ValueWriter.of(valueType, gson.getAdapter(valueType));
+    }
+
+    private static String write(ValueWriter valueWriter, Object... values) throws IOException {
+        StringWriter json = new StringWriter();
+        JsonWriter out = new JsonWriter(json);
+        out.setLenient(true); /* as gson does it while serializing */
+        out.beginArray();
+        for (Object value : values) {
+            valueWriter.write(out, value);
+        }
+        out.endArray();
+        return json.toString();
+    }
+
+}
@@ -0,0 +1,210 @@
+package org.tensorics.gson.processor;
+
+import com.google.gson.Gson;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tensorics.core.tensorbacked.Tensorbacked;
+import org.tensorics.gson.adapters.TensorbackedType;
+import org.tensorics.gson.adapters.TensorbackedTypeProvider;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compiles small sources with the processor (in memory, with the system java compiler) and checks the generated types.
+ */
+public class TensorbackedTypeProcessorTest {
+
+    private static final String ANNOTATED = String.join("\n",
+            "package org.example;",
+            "@org.tensorics.core.tensorbacked.annotation.Dimensions({String.class, Integer.class})",
+            "public class Annotated extends org.tensorics.core.tensorbacked.AbstractTensorbacked<Double> {",
+            "    public Annotated(org.tensorics.core.tensor.Tensor<Double> tensor) {",
+            "        super(tensor);",
+            "    }",
+            "}");
+
+    @Rule
+    public final TemporaryFolder output = new TemporaryFolder();
+
+    @Test
+    public void typeIsGeneratedForAnnotatedClass() throws Exception {
+        compile(source("org.example.Annotated", ANNOTATED));
+
+        assertThat(generated("org/example/Annotated_TensorbackedType.java"))//
+                .contains("TensorbackedType.of(org.example.Annotated.class, java.lang.Double.class")//
+                .contains("asList(java.lang.String.class, java.lang.Integer.class)")//
+                .contains("org.example.Annotated::new");
+        assertThat(providers()).containsExactly("org.example.Annotated_TensorbackedType");
+
+        TensorbackedType<?, ?> type = load("org.example.Annotated_TensorbackedType").type();
+        assertThat(type.tensorbackedClass().getName()).isEqualTo("org.example.Annotated");
+        assertThat(type.valueType()).isEqualTo(Double.class);
+        assertThat(type.dimensions()).containsExactly(String.class, Integer.class);
+    }
+
+    @Test
+    public void typeIsGeneratedForDimensionTypedInterface() throws IOException {
+        compile(source("org.example.Typed", String.join("\n",
+                "package org.example;",
+                "public interface Typed extends",
+                "        org.tensorics.core.tensorbacked.dimtyped.Tensorbacked2d<String, Integer, Double> {",
+                "}")));
+
+        assertThat(generated("org/example/Typed_TensorbackedType.java"))//
+                .contains("TensorbackedType.of(org.example.Typed.class, java.lang.Double.class")//
+                .contains("asList(java.lang.String.class, java.lang.Integer.class)")//
+                .doesNotContain("::new");
+        assertThat(providers()).containsExactly("org.example.Typed_TensorbackedType");
+    }
+
+    @Test
+    public void typeIsGeneratedForNestedClass() throws IOException {
+        compile(source("org.example.Outer", String.join("\n",
+                "package org.example;",
+                "public class Outer {",
+                "    @org.tensorics.core.tensorbacked.annotation.Dimensions({String.class})",
+                "    public static class Inner extends org.tensorics.core.tensorbacked.AbstractTensorbacked<Long> {",
+                "        public Inner(org.tensorics.core.tensor.Tensor<Long> tensor) {",
+                "            super(tensor);",
+                "        }",
+                "    }",
+                "}")));
+
+        assertThat(generated("org/example/Outer_Inner_TensorbackedType.java"))//
+                .contains("TensorbackedType.of(org.example.Outer.Inner.class, java.lang.Long.class")//
+                .contains("asList(java.lang.String.class)")//
+                .contains("org.example.Outer.Inner::new");
+        assertThat(providers()).containsExactly("org.example.Outer_Inner_TensorbackedType");
+    }
+
+    @Test
+    public void genericAndInheritingTypesAreSkipped() throws IOException {
+        compile(source("org.example.Annotated", ANNOTATED),
+                source("org.example.Generic", String.join("\n",
+                        "package org.example;",
+                        "@org.tensorics.core.tensorbacked.annotation.Dimensions({String.class})",
+                        "public class Generic<V> extends org.tensorics.core.tensorbacked.AbstractTensorbacked<V> {",
+                        "    public Generic(org.tensorics.core.tensor.Tensor<V> tensor) {",
+                        "        super(tensor);",
+                        "    }",
+                        "}")),
+                source("org.example.ListValued", String.join("\n",
+                        "package org.example;",
+                        "public interface ListValued extends org.tensorics.core.tensorbacked.dimtyped",
+                        "        .Tensorbacked1d<String, java.util.List<String>> {",
+                        "}")),
+                source("org.example.Inheriting", String.join("\n",
+                        "package org.example;",
+                        "public class Inheriting extends Annotated {",
+                        "    public Inheriting(org.tensorics.core.tensor.Tensor<Double> tensor) {",
+                        "        super(tensor);",
+                        "    }",
+                        "}")));
+
+        assertThat(providers()).containsExactly("org.example.Annotated_TensorbackedType");
+        assertThat(output.getRoot().toPath().resolve("org/example/Generic_TensorbackedType.java")).doesNotExist();
+        assertThat(output.getRoot().toPath().resolve("org/example/ListValued_TensorbackedType.java")).doesNotExist();
+        assertThat(output.getRoot().toPath().resolve("org/example/Inheriting_TensorbackedType.java")).doesNotExist();
+    }
+
+    private void compile(JavaFileObject... sources) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager files = compiler.getStandardFileManager(diagnostics, null,
+                StandardCharsets.UTF_8)) {
+            files.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(output.getRoot()));
+            files.setLocation(StandardLocation.SOURCE_OUTPUT, Collections.singletonList(output.getRoot()));
+            files.setLocation(StandardLocation.CLASS_PATH, classPath());
+            JavaCompiler.CompilationTask task = compiler.getTask(null, files, diagnostics,
+                    Arrays.asList("-proc:only", "-Xlint:-options"), null, Arrays.asList(sources));
+            task.setProcessors(Collections.singletonList(new TensorbackedTypeProcessor()));
+            assertThat(task.call()).as("compilation succeeds: %s", diagnostics.getDiagnostics()).isTrue();
+        }
+    }
+
+    /**
+     * The class path of the compilation: the jars (or directories) of tensorics, gson and this library.
+     */
+    private static List<File> classPath() {
+        List<File> classPath = new ArrayList<>();
+        for (Class<?> type : Arrays.asList(Tensorbacked.class, Gson.class, TensorbackedTypeProvider.class)) {
+            try {
+                classPath.add(new File(type.getProtectionDomain().getCodeSource().getLocation().toURI()));
+            } catch (URISyntaxException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return classPath;
+    }
+
+    private static JavaFileObject source(String className, String code) {
+        return new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + ".java"),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+
+    private String generated(String path) throws IOException {
+        return new String(Files.readAllBytes(output.getRoot().toPath().resolve(path)), StandardCharsets.UTF_8);
+    }
+
+    private List<String> providers() throws IOException {
+        Path services = output.getRoot().toPath()
+                .resolve("META-INF/services/" + TensorbackedTypeProvider.class.getName());
+        if (!Files.exists(services)) {
+            return Collections.emptyList();
+        }
+        return Files.readAllLines(services, StandardCharsets.UTF_8);
+    }
+
+    private TensorbackedTypeProvider load(String providerName) throws Exception {
+        compileGenerated();
+        URLClassLoader loader = new URLClassLoader(new URL[]{output.getRoot().toURI().toURL()},
+                getClass().getClassLoader());
+        return (TensorbackedTypeProvider) loader.loadClass(providerName).newInstance();
+    }
+
+    /**
+     * As the processor runs with {@code -proc:only}, the sources (including the generated ones) are compiled here.
+     */
+    private void compileGenerated() throws IOException {
+        List<File> sources = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(output.getRoot().toPath())) {
+            paths.filter(p -> p.toString().endsWith(".java")).forEach(p -> sources.add(p.toFile()));
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager files = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            files.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(output.getRoot()));
+            files.setLocation(StandardLocation.CLASS_PATH, classPath());
+            assertThat(compiler.getTask(null, files, null, Arrays.asList("-proc:none", "-Xlint:-options"), null,
+                    files.getJavaFileObjectsFromFiles(sources)).call()).isTrue();
+        }
+    }
+
+}